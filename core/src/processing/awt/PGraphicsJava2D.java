@@ -25,11 +25,15 @@
 package processing.awt;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
 import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
 import java.awt.geom.*;
 import java.awt.image.*;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import processing.core.*;
@@ -92,6 +96,9 @@ public class PGraphicsJava2D extends PGraphics {
   public boolean strokeGradient;
   public Paint strokeGradientObject;
 
+  /** The image's own int array, when pixels[] is set to it by loadPixels() */
+  int[] aliasedPixels;
+
 
 
   //////////////////////////////////////////////////////////////
@@ -308,6 +315,8 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   public void beginDraw() {
     g2 = checkImage();
+    pixelBytesLoaded = 0;
+    pixelBytesUpdated = 0;
 
     // Calling getGraphics() seems to nuke several settings.
     // It seems to be re-creating a new Graphics2D object each time.
@@ -434,6 +443,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void endDraw() {
+    flushBatch();
     // hm, mark pixels as changed, because this will instantly do a full
     // copy of all the pixels to the surface.. so that's kind of a mess.
     //updatePixels();
@@ -571,6 +581,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void hint(int which) {
+    flushBatch();
     // take care of setting the hint
     super.hint(which);
 
@@ -584,6 +595,13 @@ public class PGraphicsJava2D extends PGraphics {
     } else if (which == DISABLE_STROKE_PURE) {
       g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL,
                           RenderingHints.VALUE_STROKE_DEFAULT);
+
+    } else if (which == DISABLE_PIXEL_ALIASING) {
+      if (pixels != null && pixels == aliasedPixels) {
+        // give pixels[] its own copy again, so that it stops changing
+        pixels = pixels.clone();
+      }
+      aliasedPixels = null;
     }
   }
 
@@ -943,12 +961,14 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   protected void clipImpl(float x1, float y1, float x2, float y2) {
+    flushBatch();
     g2.setClip(new Rectangle2D.Float(x1, y1, x2 - x1, y2 - y1));
   }
 
 
   @Override
   public void noClip() {
+    flushBatch();
     g2.setClip(null);
   }
 
@@ -999,6 +1019,7 @@ public class PGraphicsJava2D extends PGraphics {
    */
   @Override
   protected void blendModeImpl() {
+    flushBatch();
     if (blendMode == BLEND) {
       g2.setComposite(defaultComposite);
 
@@ -1185,7 +1206,11 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   public void line(float x1, float y1, float x2, float y2) {
     line.setLine(x1, y1, x2, y2);
-    strokeShape(line);
+    if (canBatch(false, stroke)) {
+      batchShape(line, false, stroke);
+    } else {
+      strokeShape(line);
+    }
   }
 
 
@@ -1228,6 +1253,8 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   protected void rectImpl(float x1, float y1, float x2, float y2) {
+    // Not batched, because Java2D already has a faster path for
+    // drawing a Rectangle2D on its own than for filling a path.
     rect.setFrame(x1, y1, x2-x1, y2-y1);
     drawShape(rect);
   }
@@ -1248,7 +1275,11 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   protected void ellipseImpl(float x, float y, float w, float h) {
     ellipse.setFrame(x, y, w, h);
-    drawShape(ellipse);
+    if (canBatch(fill, stroke)) {
+      batchShape(ellipse, fill, stroke);
+    } else {
+      drawShape(ellipse);
+    }
   }
 
 
@@ -1320,7 +1351,98 @@ public class PGraphicsJava2D extends PGraphics {
   // JAVA2D SHAPE/PATH HANDLING
 
 
+  /**
+   * Most shapes drawn at once. Java2D gets slower at filling and stroking
+   * long paths (the whole area they cover is rendered at once), and past
+   * about a hundred scattered shapes that costs more than the calls that
+   * batching saves.
+   */
+  static final int BATCH_LIMIT = 64;
+
+  // Shapes waiting to be drawn with hint(ENABLE_PRIMITIVE_BATCHING), along
+  // with the style they were added with. Any change to the transform or
+  // the image (and any other drawing) calls flushBatch() first.
+  protected Path2D.Float batchFill = new Path2D.Float();
+  protected Path2D.Float batchStroke = new Path2D.Float();
+  protected int batchCount;
+  protected boolean batchFilled;
+  protected boolean batchStroked;
+  protected Color batchFillColor;
+  protected Color batchStrokeColor;
+  protected Stroke batchStrokeObject;
+
+
+  /**
+   * Whether a shape can go in the batch without looking any different.
+   * Drawing a path fills the area where its shapes overlap once instead of
+   * once per shape, and the stroke of a shape would end up under the fills
+   * of the ones after it, so only shapes that are just filled or just
+   * stroked with an opaque color are batched, and only without blending or
+   * antialiasing (where partly covered pixels would blend differently).
+   */
+  protected boolean canBatch(boolean fillIt, boolean strokeIt) {
+    if (!hints[ENABLE_PRIMITIVE_BATCHING] || fillIt == strokeIt) {
+      return false;
+    }
+    if (fillIt ? (fillGradient || (fillColor >>> 24) != 255)
+               : (strokeGradient || (strokeColor >>> 24) != 255)) {
+      return false;
+    }
+    return blendMode == BLEND &&
+      g2.getRenderingHint(RenderingHints.KEY_ANTIALIASING) !=
+        RenderingHints.VALUE_ANTIALIAS_ON;
+  }
+
+
+  /**
+   * Add a shape to the batch, first drawing the batch if the shape's fill
+   * or stroke differs from the ones in it.
+   */
+  protected void batchShape(Shape s, boolean fillIt, boolean strokeIt) {
+    if (!fillIt && !strokeIt) return;
+
+    if (batchCount != 0 &&
+        (fillIt != batchFilled || strokeIt != batchStroked ||
+         (fillIt && batchFillColor.getRGB() != fillColor) ||
+         (strokeIt && (batchStrokeColor.getRGB() != strokeColor ||
+                       batchStrokeObject != strokeObject)))) {
+      flushBatch();
+    }
+    if (fillIt) batchFill.append(s, false);
+    if (strokeIt) batchStroke.append(s, false);
+    batchFilled = fillIt;
+    batchStroked = strokeIt;
+    batchFillColor = fillColorObject;
+    batchStrokeColor = strokeColorObject;
+    batchStrokeObject = strokeObject;
+    if (++batchCount == BATCH_LIMIT) {
+      flushBatch();
+    }
+  }
+
+
+  /** Draw the shapes in the batch, if any. */
+  protected void flushBatch() {
+    if (batchCount != 0) {
+      batchCount = 0;
+      if (batchFilled) {
+        g2.setColor(batchFillColor);
+        g2.fill(batchFill);
+        batchFill.reset();
+      }
+      if (batchStroked) {
+        g2.setColor(batchStrokeColor);
+        g2.setStroke(batchStrokeObject);
+        g2.draw(batchStroke);
+        g2.setStroke(strokeObject);
+        batchStroke.reset();
+      }
+    }
+  }
+
+
   protected void fillShape(Shape s) {
+    flushBatch();
     if (fillGradient) {
       g2.setPaint(fillGradientObject);
       g2.fill(s);
@@ -1332,6 +1454,7 @@ public class PGraphicsJava2D extends PGraphics {
 
 
   protected void strokeShape(Shape s) {
+    flushBatch();
     if (strokeGradient) {
       g2.setPaint(strokeGradientObject);
       g2.draw(s);
@@ -1343,6 +1466,7 @@ public class PGraphicsJava2D extends PGraphics {
 
 
   protected void drawShape(Shape s) {
+    flushBatch();
     if (fillGradient) {
       g2.setPaint(fillGradientObject);
       g2.fill(s);
@@ -1560,6 +1684,7 @@ public class PGraphicsJava2D extends PGraphics {
   protected void imageImpl(PImage who,
                            float x1, float y1, float x2, float y2,
                            int u1, int v1, int u2, int v2) {
+    flushBatch();
     // Image not ready yet, or an error
     if (who.width <= 0 || who.height <= 0) return;
 
@@ -1569,6 +1694,7 @@ public class PGraphicsJava2D extends PGraphics {
     if (cash != null) {
       if (who.pixelWidth != cash.image.getWidth() ||
           who.pixelHeight != cash.image.getHeight()) {
+        removeTintedImages(cash);
         cash = null;
       }
     }
@@ -1581,15 +1707,6 @@ public class PGraphicsJava2D extends PGraphics {
       who.setModified();
     }
 
-    // If image previously was tinted, or the color changed
-    // or the image was tinted, and tint is now disabled
-    if ((tint && !cash.tinted) ||
-        (tint && (cash.tintedColor != tintColor)) ||
-        (!tint && cash.tinted)) {
-      // For tint change, mark all pixels as needing update.
-      who.updatePixels();
-    }
-
     if (who.isModified()) {
       if (who.pixels == null) {
         // This might be a PGraphics that hasn't been drawn to yet.
@@ -1597,8 +1714,20 @@ public class PGraphicsJava2D extends PGraphics {
         // https://github.com/processing/processing/issues/2208
         who.pixels = new int[who.pixelWidth * who.pixelHeight];
       }
+      // other tints of the old pixels are no use now
+      removeTintedImages(cash);
       cash.update(who, tint, tintColor);
       who.setModified(false);
+
+    } else if ((tint && !cash.tinted) ||
+               (tint && (cash.tintedColor != tintColor)) ||
+               (!tint && cash.tinted)) {
+      // If image previously was tinted, or the color changed
+      // or the image was tinted, and tint is now disabled,
+      // use a copy with this tint from before, or make a new one.
+      if (!swapTintedImage(cash, tint, tintColor)) {
+        cash.update(who, tint, tintColor);
+      }
     }
 
     u1 *= who.pixelDensity;
@@ -1634,11 +1763,151 @@ public class PGraphicsJava2D extends PGraphics {
   }
 
 
+  //////////////////////////////////////////////////////////////
+
+  // TINTED IMAGES
+
+
+  /** Memory used for other tints of images, by default */
+  static public final long DEFAULT_TINT_CACHE = 64L << 20;
+
+  /**
+   * Images with a tint other than the one they were last drawn with.
+   * Shared by all renderers, least recently used first.
+   */
+  static final LinkedHashMap<TintKey, BufferedImage> tintCache =
+    new LinkedHashMap<>(64, 0.75f, true);
+  static long tintCacheLimit = DEFAULT_TINT_CACHE;
+  static long tintCacheBytes;
+  static long tintCacheHits;
+  static long tintCacheMisses;
+  static long tintCacheEvictions;
+
+
+  /** An image drawn with no tint (tinted == false) or with tintColor. */
+  record TintKey(ImageCache cache, boolean tinted, int tintColor) { }
+
+
+  /**
+   * Set how much memory can be used to keep tinted copies of images, so
+   * that an image drawn with several tints (sprites in a particle system,
+   * for instance) is only tinted again when its pixels change. The default
+   * is 64 MB. Set to 0 to tint each time the tint changes.
+   */
+  static public void tintCache(long bytes) {  // ignore
+    synchronized (tintCache) {
+      tintCacheLimit = Math.max(0, bytes);
+      trimTintCache();
+    }
+  }
+
+
+  /** Memory used by tinted copies of images. */
+  static public long tintCacheSize() {  // ignore
+    synchronized (tintCache) {
+      return tintCacheBytes;
+    }
+  }
+
+
+  /** Number of tint changes that found a copy with that tint already made. */
+  static public long tintCacheHits() {  // ignore
+    return tintCacheHits;
+  }
+
+
+  /** Number of tint changes that had to tint the pixels again. */
+  static public long tintCacheMisses() {  // ignore
+    return tintCacheMisses;
+  }
+
+
+  /** Number of tinted copies dropped to stay under the limit. */
+  static public long tintCacheEvictions() {  // ignore
+    return tintCacheEvictions;
+  }
+
+
+  static private void trimTintCache() {
+    var it = tintCache.entrySet().iterator();
+    while (tintCacheBytes > tintCacheLimit && it.hasNext()) {
+      var entry = it.next();
+      tintCacheBytes -= imageBytes(entry.getValue());
+      entry.getKey().cache.tintedCount--;
+      tintCacheEvictions++;
+      it.remove();
+    }
+  }
+
+
+  static private long imageBytes(BufferedImage image) {
+    return 4L * image.getWidth() * image.getHeight();
+  }
+
+
+  /**
+   * Put the image currently in the cache aside, and take the copy that has
+   * this tint, if there is one. Returns false if the image has to be tinted
+   * again, in which case cache.image may have been set to null so that
+   * update() makes a new one.
+   */
+  static private boolean swapTintedImage(ImageCache cache,
+                                         boolean tint, int tintColor) {
+    synchronized (tintCache) {
+      BufferedImage found =
+        tintCache.remove(new TintKey(cache, tint, tint ? tintColor : 0));
+      if (found != null) {
+        tintCacheBytes -= imageBytes(found);
+        cache.tintedCount--;
+      }
+      BufferedImage current = cache.image;
+      if (imageBytes(current) <= tintCacheLimit) {
+        tintCache.put(new TintKey(cache, cache.tinted,
+                                  cache.tinted ? cache.tintedColor : 0),
+                      current);
+        tintCacheBytes += imageBytes(current);
+        cache.tintedCount++;
+        cache.image = null;
+      }
+      if (found != null) {
+        cache.image = found;
+        cache.tinted = tint;
+        cache.tintedColor = tintColor;
+        tintCacheHits++;
+      } else {
+        tintCacheMisses++;
+      }
+      trimTintCache();
+      return found != null;
+    }
+  }
+
+
+  /** Remove any other tints of this image, because its pixels changed. */
+  static private void removeTintedImages(ImageCache cache) {
+    if (cache.tintedCount > 0) {
+      synchronized (tintCache) {
+        var it = tintCache.entrySet().iterator();
+        while (it.hasNext()) {
+          var entry = it.next();
+          if (entry.getKey().cache == cache) {
+            tintCacheBytes -= imageBytes(entry.getValue());
+            it.remove();
+          }
+        }
+        cache.tintedCount = 0;
+      }
+    }
+  }
+
+
   static class ImageCache {
     boolean tinted;
     int tintedColor;
     int[] tintedTemp;  // one row of tinted pixels
     BufferedImage image;
+    /** Number of other tints of this image in tintCache */
+    int tintedCount;
 //    BufferedImage compat;
 
 //    public ImageCache(PImage source) {
@@ -1981,7 +2250,6 @@ public class PGraphicsJava2D extends PGraphics {
       // maybe should use one of the newer/fancier functions for this?
 //      int length = stop - start;
 //      FontMetrics metrics = getFontMetrics(font);
-      FontMetrics metrics = g2.getFontMetrics(font);
       // Using fractional metrics makes the measurement worse, not better,
       // at least on OS X 10.6 (November, 2010).
       // TextLayout returns the same value as charsWidth().
@@ -1997,8 +2265,13 @@ public class PGraphicsJava2D extends PGraphics {
 ////      return m2;
 ////      return metrics.charsWidth(buffer, start, length);
 //      return m2;
-      return (float)
-        metrics.getStringBounds(buffer, start, stop, g2).getWidth();
+      TextRun run = textRun(font, buffer, start, stop);
+      if (Float.isNaN(run.width)) {
+        FontMetrics metrics = g2.getFontMetrics(font);
+        run.width = (float)
+          metrics.getStringBounds(buffer, start, stop, g2).getWidth();
+      }
+      return run.width;
     }
 //    System.err.println("not native");
     return super.textWidthImpl(buffer, start, stop);
@@ -2028,6 +2301,88 @@ public class PGraphicsJava2D extends PGraphics {
   // TEXT IMPL
 
 
+  /** Number of strings measured and laid out by default */
+  static public final int DEFAULT_TEXT_CACHE = 1024;
+
+  /** Strings that have been measured or drawn, least recently used first */
+  protected LinkedHashMap<TextKey, TextRun> textCache =
+    new LinkedHashMap<>(64, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TextKey, TextRun> eldest) {
+        return size() > textCacheLimit;
+      }
+    };
+  protected int textCacheLimit = DEFAULT_TEXT_CACHE;
+  protected long textCacheHits;
+  protected long textCacheMisses;
+
+
+  /**
+   * A string in a particular font, size (which is part of the Font), and
+   * render context (transform, antialiasing, and fractional metrics).
+   * The alignment isn't part of it, because it only changes where the
+   * same glyphs are placed.
+   */
+  protected record TextKey(Font font, FontRenderContext frc, String text) { }
+
+
+  /** What's known about a string so far. Filled in as it's needed. */
+  static protected class TextRun {
+    final TextKey key;
+    float width = Float.NaN;
+    GlyphVector glyphs;
+    /** Used instead of glyphs when the font has kerning or other layout */
+    TextLayout layout;
+
+    TextRun(TextKey key) {
+      this.key = key;
+    }
+  }
+
+
+  protected TextRun textRun(Font font, char[] buffer, int start, int stop) {
+    TextKey key = new TextKey(font, g2.getFontRenderContext(),
+                              new String(buffer, start, stop - start));
+    TextRun run = textCache.get(key);
+    if (run != null) {
+      textCacheHits++;
+    } else {
+      textCacheMisses++;
+      run = new TextRun(key);
+      if (textCacheLimit > 0) {
+        textCache.put(key, run);
+      }
+    }
+    return run;
+  }
+
+
+  /**
+   * Set how many strings have their widths and glyphs kept for the next
+   * time they're used with text() or textWidth(). Labels that are drawn
+   * every frame are then measured and laid out only once. Set to 0 to
+   * measure and lay out text each time. The default is 1024.
+   */
+  public void textCache(int count) {  // ignore
+    textCacheLimit = Math.max(0, count);
+    if (textCache.size() > textCacheLimit) {
+      textCache.clear();
+    }
+  }
+
+
+  /** Number of text() and textWidth() calls that found their string cached. */
+  public long textCacheHits() {  // ignore
+    return textCacheHits;
+  }
+
+
+  /** Number of text() and textWidth() calls that had to lay out their text. */
+  public long textCacheMisses() {  // ignore
+    return textCacheMisses;
+  }
+
+
   //protected void textLineAlignImpl(char buffer[], int start, int stop,
   //                                 float x, float y)
 
@@ -2035,13 +2390,18 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   protected void textLineImpl(char[] buffer, int start, int stop,
                               float x, float y) {
+    flushBatch();
     Font font = (Font) textFont.getNative();
     if (font != null) {
+      TextRun run = (start == stop) ? null : textRun(font, buffer, start, stop);
+
       // If using the default font, warn the user when their code calls
       // text() called with unavailable characters. Not done with all
       // fonts because it would be too slow, but useful/acceptable for
       // the default case because it will hit beginners/casual use.
-      if (textFont.getName().equals(defaultFontName)) {
+      // (Text from the cache has already been checked.)
+      if ((run == null || (run.glyphs == null && run.layout == null)) &&
+          textFont.getName().equals(defaultFontName)) {
         if (font.canDisplayUpTo(buffer, start, stop) != -1) {
           final String msg =
             "Some characters not available in the current font, " +
@@ -2084,7 +2444,24 @@ public class PGraphicsJava2D extends PGraphics {
 
       int length = stop - start;
       if (length != 0) {
-      g2.drawChars(buffer, start, length, (int) (x + 0.5f), (int) (y + 0.5f));
+      if (run.glyphs == null && run.layout == null) {
+        if (font.hasLayoutAttributes()) {
+          // createGlyphVector() ignores the kerning set by handleTextSize(),
+          // so keep the same TextLayout that drawChars() would make
+          run.layout = new TextLayout(run.key.text(), font, run.key.frc());
+        } else if (!Font.textRequiresLayout(buffer, start, stop)) {
+          // Complex text (right-to-left, combining marks) still goes through
+          // drawChars(), which does the layout each time.
+          run.glyphs = font.createGlyphVector(run.key.frc(), run.key.text());
+        }
+      }
+      if (run.layout != null) {
+        run.layout.draw(g2, (int) (x + 0.5f), (int) (y + 0.5f));
+      } else if (run.glyphs != null) {
+        g2.drawGlyphVector(run.glyphs, (int) (x + 0.5f), (int) (y + 0.5f));
+      } else {
+        g2.drawChars(buffer, start, length, (int) (x + 0.5f), (int) (y + 0.5f));
+      }
       // better to use round here? also, drawChars now just calls drawString
 //      g2.drawString(new String(buffer, start, stop - start), Math.round(x), Math.round(y));
 
@@ -2161,13 +2538,22 @@ public class PGraphicsJava2D extends PGraphics {
       throw new RuntimeException("pushMatrix() cannot use push more than " +
                                  transformStack.length + " times");
     }
-    transformStack[transformCount] = g2.getTransform();
+    // Reuse the transform left in this slot by an earlier push. The copy
+    // made by getTransform() doesn't outlive setTransform(), so the JIT
+    // can avoid allocating it, and nothing is allocated per push.
+    AffineTransform saved = transformStack[transformCount];
+    if (saved == null) {
+      transformStack[transformCount] = g2.getTransform();
+    } else {
+      saved.setTransform(g2.getTransform());
+    }
     transformCount++;
   }
 
 
   @Override
   public void popMatrix() {
+    flushBatch();
     if (transformCount == 0) {
       throw new RuntimeException("missing a pushMatrix() " +
                                  "to go with that popMatrix()");
@@ -2185,6 +2571,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void translate(float tx, float ty) {
+    flushBatch();
     g2.translate(tx, ty);
   }
 
@@ -2194,6 +2581,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void rotate(float angle) {
+    flushBatch();
     g2.rotate(angle);
   }
 
@@ -2224,12 +2612,14 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void scale(float s) {
+    flushBatch();
     g2.scale(s, s);
   }
 
 
   @Override
   public void scale(float sx, float sy) {
+    flushBatch();
     g2.scale(sx, sy);
   }
 
@@ -2242,12 +2632,14 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void shearX(float angle) {
+    flushBatch();
     g2.shear(Math.tan(angle), 0);
   }
 
 
   @Override
   public void shearY(float angle) {
+    flushBatch();
     g2.shear(0, Math.tan(angle));
   }
 
@@ -2260,6 +2652,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void resetMatrix() {
+    flushBatch();
     g2.setTransform(new AffineTransform());
     g2.scale(pixelDensity, pixelDensity);
   }
@@ -2271,6 +2664,7 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   public void applyMatrix(float n00, float n01, float n02,
                           float n10, float n11, float n12) {
+    flushBatch();
     //System.out.println("PGraphicsJava2D.applyMatrix()");
     //System.out.println(new AffineTransform(n00, n10, n01, n11, n02, n12));
     g2.transform(new AffineTransform(n00, n10, n01, n11, n02, n12));
@@ -2326,6 +2720,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void setMatrix(PMatrix2D source) {
+    flushBatch();
     g2.setTransform(new AffineTransform(source.m00, source.m10,
                                         source.m01, source.m11,
                                         source.m02, source.m12));
@@ -2611,6 +3006,7 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void backgroundImpl() {
+    flushBatch();
     if (backgroundAlpha) {
       clearPixels(backgroundColor);
 
@@ -2745,6 +3141,7 @@ public class PGraphicsJava2D extends PGraphics {
 
 
   protected WritableRaster getRaster() {
+    flushBatch();
     WritableRaster raster = null;
     if (primaryGraphics) {
       /*
@@ -2777,12 +3174,22 @@ public class PGraphicsJava2D extends PGraphics {
 
   @Override
   public void loadPixels() {
-    if (pixels == null || (pixels.length != pixelWidth*pixelHeight)) {
+    flushBatch();
+    if (hints[ENABLE_PIXEL_ALIASING]) {
+      int[] data = aliasPixels();
+      if (data != null) {
+        pixels = data;
+        return;
+      }
+    }
+    if (pixels == null || (pixels.length != pixelWidth*pixelHeight) ||
+        pixels == aliasedPixels) {
       pixels = new int[pixelWidth * pixelHeight];
     }
 
     WritableRaster raster = getRaster();
     raster.getDataElements(0, 0, pixelWidth, pixelHeight, pixels);
+    pixelBytesLoaded += 4L * pixels.length;
     if (raster.getNumBands() == 3) {
       // Java won't set the high bits when RGB, returns 0 for alpha
       // https://github.com/processing/processing/issues/2030
@@ -2808,26 +3215,70 @@ public class PGraphicsJava2D extends PGraphics {
 //  }
 
 
+  /**
+   * The int array behind the image, if pixels[] can use it directly:
+   * the image has to be a plain TYPE_INT_ARGB BufferedImage, exactly
+   * pixelWidth x pixelHeight (so this works at any pixelDensity), and not
+   * a VolatileImage whose raster is only a snapshot. Once Java hands out
+   * the array, it stops caching the image in video memory (it can't tell
+   * when the pixels change), which is why this needs a hint.
+   */
+  protected int[] aliasPixels() {
+    if (!(image instanceof BufferedImage bi) ||
+        bi.getType() != BufferedImage.TYPE_INT_ARGB ||
+        bi.getWidth() != pixelWidth || bi.getHeight() != pixelHeight) {
+      return null;
+    }
+    WritableRaster raster = bi.getRaster();
+    if (!(raster.getDataBuffer() instanceof DataBufferInt db) ||
+        db.getNumBanks() != 1 || db.getOffset() != 0 ||
+        !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sm) ||
+        sm.getScanlineStride() != pixelWidth ||
+        raster.getSampleModelTranslateX() != 0 ||
+        raster.getSampleModelTranslateY() != 0) {
+      return null;
+    }
+    // the image may have been replaced since the last time
+    aliasedPixels = db.getData();
+    return aliasedPixels;
+  }
+
+
   /**
    * Update the pixels[] buffer to the PGraphics image.
    * <P>
    * Unlike in PImage, where updatePixels() only requests that the
    * update happens, in PGraphicsJava2D, this will happen immediately.
+   * Only the rows and columns inside the region are copied, so a sketch
+   * that changes a few pixels can pass just that part.
    */
   @Override
   public void updatePixels(int x, int y, int c, int d) {
-    //if ((x == 0) && (y == 0) && (c == width) && (d == height)) {
-//    System.err.format("%d %d %d %d .. w/h = %d %d .. pw/ph = %d %d %n", x, y, c, d, width, height, pixelWidth, pixelHeight);
-    if ((x != 0) || (y != 0) || (c != pixelWidth) || (d != pixelHeight)) {
-      // Show a warning message, but continue anyway.
-      showVariationWarning("updatePixels(x, y, w, h)");
-//      new Exception().printStackTrace(System.out);
-    }
-//    updatePixels();
-    if (pixels != null) {
-      getRaster().setDataElements(0, 0, pixelWidth, pixelHeight, pixels);
+    int x1 = Math.max(0, x);
+    int y1 = Math.max(0, y);
+    int x2 = Math.min(pixelWidth, x + c);
+    int y2 = Math.min(pixelHeight, y + d);
+    if (pixels != null && pixels != aliasedPixels && x2 > x1 && y2 > y1) {
+      WritableRaster raster = getRaster();
+      int w = x2 - x1;
+      if (w == pixelWidth) {
+        if (y1 == 0 && y2 == pixelHeight) {
+          raster.setDataElements(0, 0, pixelWidth, pixelHeight, pixels);
+        } else {
+          // whole rows are already one piece of the array
+          raster.setDataElements(0, y1, w, y2 - y1,
+                                 Arrays.copyOfRange(pixels, y1 * w, y2 * w));
+        }
+      } else {
+        int[] row = new int[w];
+        for (int j = y1; j < y2; j++) {
+          System.arraycopy(pixels, j * pixelWidth + x1, row, 0, w);
+          raster.setDataElements(x1, j, w, 1, row);
+        }
+      }
+      pixelBytesUpdated += 4L * w * (y2 - y1);
     }
-    modified = true;
+    super.updatePixels(x, y, c, d);
   }
 
 
@@ -3007,6 +3458,7 @@ public class PGraphicsJava2D extends PGraphics {
   @Override
   public void copy(int sx, int sy, int sw, int sh,
                    int dx, int dy, int dw, int dh) {
+    flushBatch();
     if ((sw != dw) || (sh != dh)) {
       g2.drawImage(image, dx, dy, dx + dw, dy + dh, sx, sy, sx + sw, sy + sh, null);
 
@@ -3022,6 +3474,16 @@ public class PGraphicsJava2D extends PGraphics {
   public void copy(PImage src,
                    int sx, int sy, int sw, int sh,
                    int dx, int dy, int dw, int dh) {
+    flushBatch();
+    if (src instanceof PTiledImage tiled) {
+      // only read the tiles that are needed, from a smaller level of the
+      // pyramid when the region is shrunk
+      src = tiled.getScaled(sx, sy, sw, sh, dw, dh);
+      sx = 0;
+      sy = 0;
+      sw = src.pixelWidth;
+      sh = src.pixelHeight;
+    }
     Image nativeImage;
     if (src instanceof PGraphicsJava2D) {
       // if it's a Java2D drawing surface, use its backing image
@@ -13,12 +13,15 @@ import java.util.Map;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.metadata.IIOInvalidTreeException;
 import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
 import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
 import javax.swing.UIManager;
@@ -29,6 +32,7 @@ import javax.swing.filechooser.FileSystemView;
 import processing.core.PApplet;
 import processing.core.PConstants;
 import processing.core.PImage;
+import processing.core.PTiledImage;
 
 
 /**
@@ -237,108 +241,6 @@ public class ShimAWT implements PConstants {
   }
 
 
-  static public void resizeImage(PImage img, int w, int h) {  // ignore
-    if (w <= 0 && h <= 0) {
-      throw new IllegalArgumentException("width or height must be > 0 for resize");
-    }
-
-    if (w == 0) {  // Use height to determine relative size
-      float diff = (float) h / (float) img.height;
-      w = (int) (img.width * diff);
-    } else if (h == 0) {  // Use the width to determine relative size
-      float diff = (float) w / (float) img.width;
-      h = (int) (img.height * diff);
-    }
-
-    BufferedImage bimg =
-      shrinkImage((BufferedImage) img.getNative(), w*img.pixelDensity, h*img.pixelDensity);
-
-    PImage temp = new PImageAWT(bimg);
-    img.pixelWidth = temp.width;
-    img.pixelHeight = temp.height;
-
-    // Get the resized pixel array
-    img.pixels = temp.pixels;
-
-    img.width = img.pixelWidth / img.pixelDensity;
-    img.height = img.pixelHeight / img.pixelDensity;
-
-    // Mark the pixels array as altered
-    img.updatePixels();
-  }
-
-
-  // Adapted from getFasterScaledInstance() method from page 111 of
-  // "Filthy Rich Clients" by Chet Haase and Romain Guy
-  // Additional modifications and simplifications have been added,
-  // plus a fix to deal with an infinite loop if images are expanded.
-  // https://github.com/processing/processing/issues/1501
-  static private BufferedImage shrinkImage(BufferedImage img,
-                                           int targetWidth, int targetHeight) {
-    int type = (img.getTransparency() == Transparency.OPAQUE) ?
-      BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
-    BufferedImage outgoing = img;
-    BufferedImage scratchImage = null;
-    Graphics2D g2 = null;
-    int prevW = outgoing.getWidth();
-    int prevH = outgoing.getHeight();
-    boolean isTranslucent = img.getTransparency() != Transparency.OPAQUE;
-
-    // Use multi-step technique: start with original size, then scale down in
-    // multiple passes with drawImage() until the target size is reached
-    int w = img.getWidth();
-    int h = img.getHeight();
-
-    do {
-      if (w > targetWidth) {
-        w /= 2;
-        // if this is the last step, do the exact size
-        if (w < targetWidth) {
-          w = targetWidth;
-        }
-      } else {  //if (targetWidth >= w) {
-        w = targetWidth;
-      }
-      if (h > targetHeight) {
-        h /= 2;
-        if (h < targetHeight) {
-          h = targetHeight;
-        }
-      } else {  //if (targetHeight >= h) {
-        h = targetHeight;
-      }
-      if (scratchImage == null || isTranslucent) {
-        // Use a single scratch buffer for all iterations and then copy
-        // to the final, correctly-sized image before returning
-        scratchImage = new BufferedImage(w, h, type);
-        g2 = scratchImage.createGraphics();
-      }
-      g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-      g2.drawImage(outgoing, 0, 0, w, h, 0, 0, prevW, prevH, null);
-      prevW = w;
-      prevH = h;
-      outgoing = scratchImage;
-    } while (w != targetWidth || h != targetHeight);
-
-    //if (g2 != null) {
-    g2.dispose();
-    //}
-
-    // If we used a scratch buffer that is larger than our target size,
-    // create an image of the right size and copy the results into it
-    if (targetWidth != outgoing.getWidth() ||
-      targetHeight != outgoing.getHeight()) {
-      scratchImage = new BufferedImage(targetWidth, targetHeight, type);
-      g2 = scratchImage.createGraphics();
-      g2.drawImage(outgoing, 0, 0, null);
-      g2.dispose();
-      outgoing = scratchImage;
-    }
-    return outgoing;
-  }
-
-
   static protected String[] loadImageExtensions;  // list of ImageIO formats
 
 
@@ -512,6 +414,69 @@ public class ShimAWT implements PConstants {
   }
 
 
+  /**
+   * Open an image with ImageIO, and read it one tile at a time. The reader
+   * is kept open so that tiles can be read as they're needed, and reads
+   * only the region of the file for each tile, skipping pixels for the
+   * smaller levels of the pyramid. Pass the local file when there is one,
+   * otherwise the stream from createInput() is used, which ImageIO will
+   * cache so that it can go back to earlier parts of the image.
+   */
+  static public PTiledImage loadTiledImage(PApplet sketch, String filename,
+                                           File file, int tileSize) {
+    try {
+      ImageInputStream input;
+      if (file != null) {
+        input = ImageIO.createImageInputStream(file);
+      } else {
+        InputStream stream = sketch.createInput(filename);
+        if (stream == null) {
+          System.err.println("The image " + filename + " could not be found.");
+          return null;
+        }
+        input = ImageIO.createImageInputStream(stream);
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        System.err.println("Could not load " + filename + ", " +
+                           "it's not an image type that Java can read");
+        input.close();
+        return null;
+      }
+      ImageReader reader = readers.next();
+      reader.setInput(input, true, true);
+
+      ImageTypeSpecifier type = reader.getRawImageType(0);
+      if (type == null) {
+        type = reader.getImageTypes(0).next();
+      }
+      int format = type.getColorModel().hasAlpha() ? ARGB : RGB;
+
+      PTiledImage outgoing =
+        new PTiledImage(reader.getWidth(0), reader.getHeight(0),
+                        format, tileSize, (x, y, w, h, step) -> {
+          // a single reader can only read one region at a time
+          synchronized (reader) {
+            try {
+              ImageReadParam param = reader.getDefaultReadParam();
+              param.setSourceRegion(new Rectangle(x, y, w, h));
+              param.setSourceSubsampling(step, step, 0, 0);
+              return new PImageAWT(reader.read(0, param));
+            } catch (IOException e) {
+              throw new RuntimeException("Could not read " + filename, e);
+            }
+          }
+        });
+      outgoing.parent = sketch;
+      return outgoing;
+
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+
   // . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . .
 
 
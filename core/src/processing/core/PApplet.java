@@ -25,12 +25,21 @@
 package processing.core;
 
 import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.net.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -746,6 +755,13 @@ public class PApplet implements PConstants {
 
   static public final String ARGS_HIDE_STOP = "--hide-stop";
 
+  /**
+   * Run without a window and without frame rate pacing, so that draw() is
+   * called back to back. Used for batch rendering of frames to disk, also
+   * on machines that have no display at all.
+   */
+  static public final String ARGS_OFFLINE = "--offline";
+
   /**
    * Allows the user or PdeEditor to set a specific sketch folder path.
    * <p>
@@ -805,6 +821,8 @@ public class PApplet implements PConstants {
 
   boolean present;
 
+  boolean offline;
+
   String outputPath;
   OutputStream outputStream;
 
@@ -840,7 +858,10 @@ public class PApplet implements PConstants {
   void handleSettings() {
     insideSettings = true;
 
-    if (!disableAWT) {
+    if (offline) {
+      // No display to ask about, and asking would throw a HeadlessException
+
+    } else if (!disableAWT) {
       displayWidth = ShimAWT.getDisplayWidth();
       displayHeight = ShimAWT.getDisplayHeight();
     } else {
@@ -988,6 +1009,15 @@ public class PApplet implements PConstants {
   }
 
 
+  /**
+   * True if running in offline mode (see {@link PApplet#ARGS_OFFLINE}),
+   * where frames are drawn as quickly as possible without a window.
+   */
+  final public boolean sketchOffline() {
+    return offline;
+  }
+
+
   // . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . .
 
  /**
@@ -1272,76 +1302,95 @@ public class PApplet implements PConstants {
 
 
   class RegisteredMethods {
-    /**
-     * List of the objects for which the method is registered.
-     * This is an ordered collection because the order of calls
-     * likely matters, or at a minimum, needs to be stable.
-     */
-    Queue<Object> entries = new ConcurrentLinkedQueue<>();
+    /** Name of the method, used when reporting times to the profiler */
+    final String name;
 
     /**
-     * A reference to the Method inside each Object, stored so that we're
-     * not redoing the same reflection call inside a tight loop like draw().
+     * The objects for which the method is registered, each paired with a
+     * MethodHandle bound to that object, so that calls from a tight loop
+     * like draw() skip reflection entirely. This is an ordered collection
+     * because the order of calls likely matters, or at a minimum, needs to
+     * be stable.
+     * <p>
+     * The array is replaced (never modified) whenever an entry is added or
+     * removed. That keeps handle() from allocating anything, and means that
+     * removals from inside handle() (i.e. so the Video Library can call
+     * unregisterMethod("dispose") from inside its dispose() method) only
+     * take effect once the current round of calls is done.
+     * https://github.com/processing/processing4/pull/199
      */
-    Map<Object, Method> methods = new ConcurrentHashMap<>();
+    volatile Entry[] entries = new Entry[0];
 
-    /** While handle() is being called, store any removals in this Set. */
-    Set<Object> removals = null;
 
-    /** Create and store this once. */
-    final Object[] emptyArgs = new Object[] { };
+    RegisteredMethods(String name) {
+      this.name = name;
+    }
+
 
-    @SuppressWarnings("unused")
     void handle() {
-      handle(emptyArgs);
+      final PProfiler profiler = PApplet.this.profiler;
+      for (Entry entry : entries) {
+        long start = (profiler != null) ? System.nanoTime() : 0;
+        try {
+          entry.handle.invokeExact();
+        } catch (RuntimeException e) {
+          // allow it to bubble up
+          throw e;
+        } catch (Throwable t) {
+          // trap and print as usual
+          printStackTrace(t);
+        }
+        if (profiler != null) {
+          profiler.addMethodTime(name, entry.target, System.nanoTime() - start);
+        }
+      }
     }
 
-    void handle(Object[] args) {
-      // Queue removed entries until done iterating, i.e. so the Video Library
-      // can call unregisterMethod("dispose") from inside its dispose() method
-      // https://github.com/processing/processing4/pull/199
-      removals = ConcurrentHashMap.newKeySet();
 
-      for (Object entry : entries) {
+    void handle(Object arg) {
+      final PProfiler profiler = PApplet.this.profiler;
+      for (Entry entry : entries) {
+        long start = (profiler != null) ? System.nanoTime() : 0;
         try {
-          //methods[i].invoke(objects[i], args);
-          //entry.method.invoke(entry.object, args);
-          methods.get(entry).invoke(entry, args);
-        } catch (Exception e) {
-          // check for wrapped exception, get root exception
-          Throwable t;
-          if (e instanceof InvocationTargetException ite) {
-            t = ite.getCause();
-          } else {
-            t = e;
-          }
-          // check for RuntimeException, and allow it to bubble up
-          if (t instanceof RuntimeException) {
-            // re-throw exception
-            throw (RuntimeException) t;
-          } else {
-            // trap and print as usual
-            printStackTrace(t);
-          }
+          entry.handle.invokeExact(arg);
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Throwable t) {
+          printStackTrace(t);
+        }
+        if (profiler != null) {
+          profiler.addMethodTime(name, entry.target, System.nanoTime() - start);
         }
       }
-      // Clear the entries queued for removal (if any)
-      for (Object object : removals) {
-        entries.remove(object);
-        methods.remove(object);
+    }
+
+
+    void handle(Object[] args) {
+      switch (args.length) {
+        case 0 -> handle();
+        case 1 -> handle(args[0]);
+        default -> throw new IllegalArgumentException(name + "() can only be " +
+                                                      "called with zero or one argument");
       }
-      removals = null;  // clear this out
     }
 
 
-    void add(Object object, Method method) {
-      if (!entries.contains(object)) {
-        entries.add(object);
-        methods.put(object, method);
-      } else {
-        die(method.getName() + "() already added for this instance of " +
-            object.getClass().getName());
+    synchronized void add(Object object, Method method) throws IllegalAccessException {
+      for (Entry entry : entries) {
+        if (entry.target == object) {
+          die(method.getName() + "() already added for this instance of " +
+              object.getClass().getName());
+        }
       }
+      // Bind the target, and erase the parameter (if any) to Object
+      // so that all entries can be called through invokeExact().
+      MethodHandle handle =
+        MethodHandles.publicLookup().unreflect(method).bindTo(object);
+      handle = handle.asType(handle.type().generic().changeReturnType(void.class));
+
+      Entry[] outgoing = Arrays.copyOf(entries, entries.length + 1);
+      outgoing[entries.length] = new Entry(object, handle);
+      entries = outgoing;
     }
 
 
@@ -1349,15 +1398,27 @@ public class PApplet implements PConstants {
      * Removes first object/method pair matched (and only the first,
      * must be called multiple times if object is registered multiple times).
      */
-    public void remove(Object object) {
-      if (removals == null) {
-        // If the removals list is null, that means we're not currently iterating
-        // the entries, so it's safe to remove the entry immediately.
-        entries.remove(object);
-        methods.remove(object);
-      } else {
-        // Iterates the list of methods, remove this afterwards
-        removals.add(object);
+    synchronized public void remove(Object object) {
+      Entry[] current = entries;
+      for (int i = 0; i < current.length; i++) {
+        if (current[i].target == object) {
+          Entry[] outgoing = new Entry[current.length - 1];
+          System.arraycopy(current, 0, outgoing, 0, i);
+          System.arraycopy(current, i + 1, outgoing, i, current.length - i - 1);
+          entries = outgoing;
+          return;
+        }
+      }
+    }
+
+
+    static class Entry {
+      final Object target;
+      final MethodHandle handle;
+
+      Entry(Object target, MethodHandle handle) {
+        this.target = target;
+        this.handle = handle;
       }
     }
   }
@@ -1402,7 +1463,7 @@ public class PApplet implements PConstants {
       Method method = c.getMethod(name);
       RegisteredMethods meth = registerMap.get(name);
       if (meth == null) {
-        meth = new RegisteredMethods();
+        meth = new RegisteredMethods(name);
         registerMap.put(name, meth);
       }
       meth.add(o, method);
@@ -1422,7 +1483,7 @@ public class PApplet implements PConstants {
       Method method = c.getMethod(name, cargs);
       RegisteredMethods meth = registerMap.get(name);
       if (meth == null) {
-        meth = new RegisteredMethods();
+        meth = new RegisteredMethods(name);
         registerMap.put(name, meth);
       }
       meth.add(o, method);
@@ -1450,6 +1511,22 @@ public class PApplet implements PConstants {
     }
   }
 
+  protected void handleMethods(String methodName) {
+    RegisteredMethods meth = registerMap.get(methodName);
+    if (meth != null) {
+      meth.handle();
+    }
+  }
+
+
+  protected void handleMethods(String methodName, Object arg) {
+    RegisteredMethods meth = registerMap.get(methodName);
+    if (meth != null) {
+      meth.handle(arg);
+    }
+  }
+
+
   protected void handleMethods(String methodName, Object...args) {
     RegisteredMethods meth = registerMap.get(methodName);
     if (meth != null) {
@@ -1458,6 +1535,49 @@ public class PApplet implements PConstants {
   }
 
 
+  //////////////////////////////////////////////////////////////
+
+
+  /** Only set while profiling, so that handleDraw() can skip it otherwise. */
+  protected PProfiler profiler;
+
+
+  /**
+   * Start recording the time taken by each phase of every frame (draw(),
+   * events, registered library methods, and the renderer's beginDraw() and
+   * endDraw()), keeping timings for the most recent 600 frames.
+   * If the profiler is already running, it keeps going.
+   *
+   * @see PProfiler
+   */
+  public PProfiler startProfiler() {
+    return startProfiler(PProfiler.DEFAULT_CAPACITY);
+  }
+
+
+  /**
+   * @param frames number of recent frames to keep timings for
+   */
+  public PProfiler startProfiler(int frames) {
+    if (profiler == null || profiler.capacity != frames) {
+      profiler = new PProfiler(frames);
+    }
+    return profiler;
+  }
+
+
+  /** Stop recording frame timings. */
+  public void stopProfiler() {
+    profiler = null;
+  }
+
+
+  /** Returns the running profiler, or null if startProfiler() was not called. */
+  public PProfiler getProfiler() {
+    return profiler;
+  }
+
+
 
   //////////////////////////////////////////////////////////////
 
@@ -2029,10 +2149,16 @@ public class PApplet implements PConstants {
     }
 
     insideDraw = true;
+
+    // setup() is not a typical frame, so it's left out of the profile
+    final PProfiler profiler = (frameCount != 0) ? this.profiler : null;
+    if (profiler != null) profiler.beginFrame();
+
     g.beginDraw();
     if (recorder != null) {
       recorder.beginDraw();
     }
+    if (profiler != null) profiler.mark(PProfiler.BEGIN_DRAW);
 
     // apply window ratio if set
     if (windowRatio) {
@@ -2084,7 +2210,11 @@ public class PApplet implements PConstants {
       // post move and resize events to the sketch here
       dequeueWindowEvents();
 
+      // callbacks from tasks started with thread() that have completed
+      dequeueThreadCallbacks();
+
       handleMethods("pre");
+      if (profiler != null) profiler.mark(PProfiler.PRE);
 
       // use dmouseX/Y as previous mouse pos, since this is the
       // last position the mouse was in during the previous draw.
@@ -2092,6 +2222,7 @@ public class PApplet implements PConstants {
       pmouseY = dmouseY;
 
       draw();
+      if (profiler != null) profiler.mark(PProfiler.DRAW);
 
       // dmouseX/Y is updated only once per frame (unlike emouseX/Y)
       dmouseX = mouseX;
@@ -2102,8 +2233,10 @@ public class PApplet implements PConstants {
       // be before, since a call to background() would wipe
       // out anything that had been drawn so far.
       dequeueEvents();
+      if (profiler != null) profiler.mark(PProfiler.EVENTS);
 
       handleMethods("draw");
+      if (profiler != null) profiler.mark(PProfiler.DRAW_METHODS);
 
       redraw = false;  // unset 'redraw' flag in case it was set
       // (only do this once draw() has run, not just setup())
@@ -2114,10 +2247,15 @@ public class PApplet implements PConstants {
       recorder.endDraw();
     }
     insideDraw = false;
+    if (profiler != null) profiler.mark(PProfiler.END_DRAW);
 
     if (frameCount != 0) {
       handleMethods("post");
     }
+    if (profiler != null) {
+      profiler.mark(PProfiler.POST);
+      profiler.endFrame();
+    }
 
     frameRateLastNanos = now;
     frameCount++;
@@ -3418,6 +3556,11 @@ public class PApplet implements PConstants {
       }
       // run dispose() methods registered by libraries
       handleMethods("dispose");
+
+      // let running thread() tasks finish, but don't start new pool threads
+      if (threadPool != null) {
+        threadPool.shutdown();
+      }
     }
 
     if (platform == MACOS) {
@@ -3445,18 +3588,41 @@ public class PApplet implements PConstants {
    * (like from Eclipse) you'll have to do it yourself.
    */
   public void method(String name) {
-    try {
-      Method method = getClass().getMethod(name);
-      method.invoke(this);
+    MethodHandle handle = findMethod(name);
+    if (handle != null) {
+      try {
+        handle.invokeExact();
+      } catch (Throwable t) {
+        t.printStackTrace();
+      }
+    }
+  }
 
-    } catch (IllegalArgumentException | IllegalAccessException e) {
-      e.printStackTrace();
-    } catch (InvocationTargetException e) {
-      e.getTargetException().printStackTrace();
-    } catch (NoSuchMethodException nsme) {
-      System.err.println("There is no public " + name + "() method " +
-                         "in the class " + getClass().getName());
+
+  /**
+   * Method handles for method() and thread(), looked up once per name
+   * because sketches often call the same one over and over.
+   */
+  private final Map<String, MethodHandle> methodCache = new ConcurrentHashMap<>();
+
+
+  private MethodHandle findMethod(String name) {
+    MethodHandle handle = methodCache.get(name);
+    if (handle == null) {
+      try {
+        Method method = getClass().getMethod(name);
+        handle = MethodHandles.publicLookup().unreflect(method).bindTo(this)
+          .asType(MethodType.methodType(void.class));
+        methodCache.put(name, handle);
+
+      } catch (IllegalAccessException e) {
+        e.printStackTrace();
+      } catch (NoSuchMethodException nsme) {
+        System.err.println("There is no public " + name + "() method " +
+                           "in the class " + getClass().getName());
+      }
     }
+    return handle;
   }
 
 
@@ -3505,7 +3671,148 @@ public class PApplet implements PConstants {
    * @see PApplet#noLoop()
    */
   public void thread(final String name) {
-    new Thread(() -> method(name)).start();
+    execute(new ThreadTask<>(Executors.callable(() -> method(name)), null));
+  }
+
+
+  /**
+   * Run a function in a separate thread, then call another function on the
+   * animation thread once it has finished, just before the next
+   * <b>draw()</b>. The callback is skipped if the task is cancelled or fails.
+   *
+   * @param callback name of the function to call once <b>name</b> is done
+   * @return can be used to check on the task, or cancel() it
+   */
+  public Future<?> thread(final String name, final String callback) {
+    final MethodHandle handle = findMethod(name);
+    if (handle == null) {
+      return CompletableFuture.failedFuture(new NoSuchMethodException(name));
+    }
+    ThreadTask<Object> task = new ThreadTask<>(() -> {
+      try {
+        handle.invokeExact();
+      } catch (Exception | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+      return null;
+    }, result -> method(callback));
+    execute(task);
+    return task;
+  }
+
+
+  /**
+   * Run code in a separate thread, using the same threads as
+   * <b>thread(name)</b>.
+   *
+   * @return can be used to check on the task, or cancel() it
+   */
+  public Future<?> thread(Runnable task) {
+    ThreadTask<Object> outgoing = new ThreadTask<>(Executors.callable(task), null);
+    execute(outgoing);
+    return outgoing;
+  }
+
+
+  /**
+   * Compute a value in a separate thread, and pass it to a callback on the
+   * animation thread once it's ready, just before the next <b>draw()</b>.
+   * The callback is skipped if the task is cancelled or throws an exception.
+   *
+   * @return can be used to check on the task, or cancel() it
+   */
+  public <T> Future<T> thread(Callable<T> task, Consumer<? super T> callback) {
+    ThreadTask<T> outgoing = new ThreadTask<>(task, callback);
+    execute(outgoing);
+    return outgoing;
+  }
+
+
+  /**
+   * Threads used by thread(). On Java 21 and later these are virtual
+   * threads. Otherwise, a pool that keeps idle threads around for reuse,
+   * up to a limit, after which tasks get a thread of their own (as they
+   * always did) so that long-running tasks can't starve the others.
+   */
+  private ExecutorService threadPool;
+
+  private final Queue<ThreadTask<?>> threadCallbacks = new ConcurrentLinkedQueue<>();
+
+  static final int THREAD_POOL_MAX = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+
+  private synchronized ExecutorService threadPool() {
+    if (threadPool == null) {
+      try {
+        Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        threadPool = (ExecutorService) method.invoke(null);
+      } catch (Exception e) {
+        // Not available (prior to Java 21), use a regular pool instead
+        ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(0, THREAD_POOL_MAX, 60, TimeUnit.SECONDS,
+                                 new SynchronousQueue<>());
+        pool.setRejectedExecutionHandler((r, executor) -> new Thread(r).start());
+        threadPool = pool;
+      }
+    }
+    return threadPool;
+  }
+
+
+  private void execute(ThreadTask<?> task) {
+    try {
+      threadPool().execute(task);
+    } catch (RejectedExecutionException e) {
+      // pool has been shut down, so behave the way thread() always has
+      new Thread(task).start();
+    }
+  }
+
+
+  /** Run the callbacks of any completed thread() tasks. */
+  protected void dequeueThreadCallbacks() {
+    ThreadTask<?> task;
+    while ((task = threadCallbacks.poll()) != null) {
+      task.deliver();
+    }
+  }
+
+
+  /**
+   * Task run by thread(), which passes its result
+   * (if there is a callback) back to the animation thread.
+   */
+  class ThreadTask<T> extends FutureTask<T> {
+    final Consumer<? super T> callback;
+
+    ThreadTask(Callable<T> callable, Consumer<? super T> callback) {
+      super(callable);
+      this.callback = callback;
+    }
+
+    @Override
+    protected void done() {
+      if (!isCancelled()) {
+        if (callback != null) {
+          threadCallbacks.add(this);
+        } else {
+          deliver();  // only to report failure, there's nobody to tell
+        }
+      }
+    }
+
+    void deliver() {
+      try {
+        T result = get();
+        if (callback != null) {
+          callback.accept(result);
+        }
+      } catch (ExecutionException e) {
+        printStackTrace(e.getCause());
+      } catch (InterruptedException | CancellationException ignored) { }
+    }
   }
 
 
@@ -4754,6 +5061,7 @@ public class PApplet implements PConstants {
    *          upper limit
    * @see PApplet#randomSeed(long)
    * @see PApplet#noise(float, float, float)
+   * @see PRandom
    */
   public final float random(float low, float high) {
     if (low >= high) return low;
@@ -4816,46 +5124,29 @@ public class PApplet implements PConstants {
 
   // PERLIN NOISE
 
-  // [toxi 040903]
-  // octaves and amplitude amount per octave are now user controlled
-  // via the noiseDetail() function.
-
-  // [toxi 030902]
-  // cleaned up code and now using bagel's cosine table to speed up
+  // The implementation lives in PNoise, so that sketches can also create
+  // their own generators, with separate seeds, for use from other threads.
+  PNoise perlinNoise;
 
-  // [toxi 030901]
-  // implementation by the german demo group farbrausch
-  // as used in their demo "art": http://www.farb-rausch.de/fr010src.zip
 
-  static final int PERLIN_YWRAPB = 4;
-  static final int PERLIN_YWRAP = 1<<PERLIN_YWRAPB;
-  static final int PERLIN_ZWRAPB = 8;
-  static final int PERLIN_ZWRAP = 1<<PERLIN_ZWRAPB;
-  static final int PERLIN_SIZE = 4095;
-
-  int perlin_octaves = 4; // default to medium smooth
-  float perlin_amp_falloff = 0.5f; // 50% reduction/octave
-
-  // [toxi 031112]
-  // new vars needed due to recent change of cos table in PGraphics
-  int perlin_TWOPI, perlin_PI;
-  float[] perlin_cosTable;
-  float[] perlin;
-
-  Random perlinRandom;
+  PNoise perlinNoise() {
+    if (perlinNoise == null) {
+      perlinNoise = new PNoise();
+    }
+    return perlinNoise;
+  }
 
 
   /**
    */
   public float noise(float x) {
-    // is this legit? it's a dumb way to do it (but repair it later)
-    return noise(x, 0f, 0f);
+    return perlinNoise().noise(x);
   }
 
   /**
    */
   public float noise(float x, float y) {
-    return noise(x, y, 0f);
+    return perlinNoise().noise(x, y);
   }
 
   /**
@@ -4904,80 +5195,11 @@ public class PApplet implements PConstants {
    *          z-coordinate in noise space
    * @see PApplet#noiseSeed(long)
    * @see PApplet#noiseDetail(int, float)
+   * @see PNoise
    * @see PApplet#random(float,float)
    */
   public float noise(float x, float y, float z) {
-    if (perlin == null) {
-      if (perlinRandom == null) {
-        perlinRandom = new Random();
-      }
-      perlin = new float[PERLIN_SIZE + 1];
-      for (int i = 0; i < PERLIN_SIZE + 1; i++) {
-        perlin[i] = perlinRandom.nextFloat(); //(float)Math.random();
-      }
-      // [toxi 031112]
-      // noise broke due to recent change of cos table in PGraphics
-      // this will take care of it
-      perlin_cosTable = PGraphics.cosLUT;
-      perlin_TWOPI = perlin_PI = PGraphics.SINCOS_LENGTH;
-      perlin_PI >>= 1;
-    }
-
-    if (x<0) x=-x;
-    if (y<0) y=-y;
-    if (z<0) z=-z;
-
-    int xi=(int)x, yi=(int)y, zi=(int)z;
-    float xf = x - xi;
-    float yf = y - yi;
-    float zf = z - zi;
-    float rxf, ryf;
-
-    float r=0;
-    float ampl=0.5f;
-
-    float n1,n2,n3;
-
-    for (int i=0; i<perlin_octaves; i++) {
-      int of=xi+(yi<<PERLIN_YWRAPB)+(zi<<PERLIN_ZWRAPB);
-
-      rxf=noise_fsc(xf);
-      ryf=noise_fsc(yf);
-
-      n1  = perlin[of&PERLIN_SIZE];
-      n1 += rxf*(perlin[(of+1)&PERLIN_SIZE]-n1);
-      n2  = perlin[(of+PERLIN_YWRAP)&PERLIN_SIZE];
-      n2 += rxf*(perlin[(of+PERLIN_YWRAP+1)&PERLIN_SIZE]-n2);
-      n1 += ryf*(n2-n1);
-
-      of += PERLIN_ZWRAP;
-      n2  = perlin[of&PERLIN_SIZE];
-      n2 += rxf*(perlin[(of+1)&PERLIN_SIZE]-n2);
-      n3  = perlin[(of+PERLIN_YWRAP)&PERLIN_SIZE];
-      n3 += rxf*(perlin[(of+PERLIN_YWRAP+1)&PERLIN_SIZE]-n3);
-      n2 += ryf*(n3-n2);
-
-      n1 += noise_fsc(zf)*(n2-n1);
-
-      r += n1*ampl;
-      ampl *= perlin_amp_falloff;
-      xi<<=1; xf*=2;
-      yi<<=1; yf*=2;
-      zi<<=1; zf*=2;
-
-      if (xf>=1.0f) { xi++; xf--; }
-      if (yf>=1.0f) { yi++; yf--; }
-      if (zf>=1.0f) { zi++; zf--; }
-    }
-    return r;
-  }
-
-  // [toxi 031112]
-  // now adjusts to the size of the cosLUT used via
-  // the new variables, defined above
-  private float noise_fsc(float i) {
-    // using bagel's cosine table instead
-    return 0.5f*(1.0f-perlin_cosTable[(int)(i*perlin_PI)%perlin_TWOPI]);
+    return perlinNoise().noise(x, y, z);
   }
 
   // [toxi 040903]
@@ -5012,7 +5234,7 @@ public class PApplet implements PConstants {
    * @see PApplet#noise(float, float, float)
    */
   public void noiseDetail(int lod) {
-    if (lod>0) perlin_octaves=lod;
+    perlinNoise().noiseDetail(lod);
   }
 
   /**
@@ -5020,8 +5242,7 @@ public class PApplet implements PConstants {
    * @param falloff falloff factor for each octave
    */
   public void noiseDetail(int lod, float falloff) {
-    if (lod>0) perlin_octaves=lod;
-    if (falloff>0) perlin_amp_falloff=falloff;
+    perlinNoise().noiseDetail(lod, falloff);
   }
 
   /**
@@ -5040,10 +5261,7 @@ public class PApplet implements PConstants {
    * @see PApplet#randomSeed(long)
    */
   public void noiseSeed(long seed) {
-    if (perlinRandom == null) perlinRandom = new Random();
-    perlinRandom.setSeed(seed);
-    // force table reset after changing the random number seed [0122]
-    perlin = null;
+    perlinNoise().noiseSeed(seed);
   }
 
 
@@ -5113,18 +5331,80 @@ public class PApplet implements PConstants {
       g.awaitAsyncSaveCompletion(filename);
     }
 
+    File cacheFile = PImageCache.isEnabled() ? inputFile(filename) : null;
+    if (cacheFile != null) {
+      PImage cached = PImageCache.get(cacheFile, extension, this);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    PImage image;
     // Hack so that calling loadImage() in settings() will work
     // https://github.com/processing/processing4/issues/299
     if (surface == null) {
-      return ShimAWT.loadImage(this, filename, extension);
+      image = ShimAWT.loadImage(this, filename, extension);
+    } else {
+      image = surface.loadImage(filename, extension);
+    }
+
+    if (cacheFile != null) {
+      PImageCache.put(cacheFile, extension, image);
+    }
+    return image;
+  }
+
+
+  /**
+   * Open an image that's too large to load all at once, such as a gigapixel
+   * scan. Parts of the image are read from the file only when they're drawn
+   * or read with <b>get()</b>, and only a limited number are kept in memory.
+   * Draw it with <b>image()</b> as usual. Returns null if the image could
+   * not be opened.
+   *
+   * @param filename name of the image file to open
+   * @see PTiledImage
+   */
+  public PTiledImage loadTiledImage(String filename) {
+    return loadTiledImage(filename, PTiledImage.DEFAULT_TILE_SIZE);
+  }
+
+
+  /**
+   * @param tileSize width and height of the pieces read from the file
+   */
+  public PTiledImage loadTiledImage(String filename, int tileSize) {
+    return ShimAWT.loadTiledImage(this, filename, inputFile(filename), tileSize);
+  }
+
+
+  /**
+   * The local file that createInput() would read, or null if
+   * it's a URL or not a plain file (i.e. a resource inside a jar).
+   */
+  private File inputFile(String filename) {
+    if (filename == null || filename.length() == 0 ||
+        filename.contains("://") || sketchPath == null) {
+      return null;
+    }
+    try {
+      File file = new File(dataPath(filename));
+      if (!file.exists()) {
+        file = sketchFile(filename);
+      }
+      return file.isFile() ? file : null;
+    } catch (SecurityException e) {
+      return null;
     }
-    return surface.loadImage(filename, extension);
   }
 
 
   static private final String REQUEST_IMAGE_THREAD_PREFIX = "requestImage";
-  // fixed-size thread pool used by requestImage()
-  ExecutorService requestImagePool;
+  // thread pool used by requestImage(), ordered by request priority
+  ThreadPoolExecutor requestImagePool;
+  int requestImageThreads = 4;
+  final AtomicLong requestImageCount = new AtomicLong();
+  final Map<PImage, ImageRequest> imageRequests = new ConcurrentHashMap<>();
 
 
   public PImage requestImage(String filename) {
@@ -5158,6 +5438,15 @@ public class PApplet implements PConstants {
    * @see PApplet#loadImage(String, String)
    */
   public PImage requestImage(String filename, String extension) {
+    return requestImage(filename, extension, 0);
+  }
+
+
+  /**
+   * @param priority requests with a higher priority are loaded first,
+   *                 the default is 0
+   */
+  public PImage requestImage(String filename, String extension, int priority) {
     // Make sure saving to this file completes before trying to load it
     // Has to be called on main thread, because P2D and P3D need GL functions
     if (g != null) {
@@ -5166,11 +5455,97 @@ public class PApplet implements PConstants {
     PImage vessel = createImage(0, 0, ARGB);
 
     // if the image loading thread pool hasn't been created, create it
-    if (requestImagePool == null) {
-      ThreadFactory factory = r -> new Thread(r, REQUEST_IMAGE_THREAD_PREFIX);
-      requestImagePool = Executors.newFixedThreadPool(4, factory);
+    synchronized (imageRequests) {
+      if (requestImagePool == null) {
+        ThreadFactory factory = r -> new Thread(r, REQUEST_IMAGE_THREAD_PREFIX);
+        requestImagePool =
+          new ThreadPoolExecutor(requestImageThreads, requestImageThreads,
+                                 0, TimeUnit.MILLISECONDS,
+                                 new PriorityBlockingQueue<>(), factory);
+      }
     }
-    requestImagePool.execute(() -> {
+    ImageRequest request =
+      new ImageRequest(vessel, filename, extension, priority);
+    imageRequests.put(vessel, request);
+    requestImagePool.execute(request);
+    return vessel;
+  }
+
+
+  /**
+   * Set how many images requestImage() will load at the same time.
+   * The default is 4.
+   */
+  public void requestImageThreads(int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("requestImage() needs at least one thread");
+    }
+    synchronized (imageRequests) {
+      requestImageThreads = count;
+      if (requestImagePool != null) {
+        // order matters, the core size can't be larger than the maximum
+        if (count > requestImagePool.getMaximumPoolSize()) {
+          requestImagePool.setMaximumPoolSize(count);
+          requestImagePool.setCorePoolSize(count);
+        } else {
+          requestImagePool.setCorePoolSize(count);
+          requestImagePool.setMaximumPoolSize(count);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Cancel a requestImage() that hasn't started loading yet. The image
+   * will keep a width and height of 0. Returns false if it's already
+   * loading or has finished.
+   *
+   * @param image the image returned by requestImage()
+   */
+  public boolean cancelImageRequest(PImage image) {
+    ImageRequest request = imageRequests.remove(image);
+    if (request != null && requestImagePool.remove(request)) {
+      return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * Cancel all requestImage() calls that haven't started loading yet,
+   * for instance because the sketch has moved on to another scene.
+   * Returns the number of requests that were cancelled.
+   */
+  public int cancelImageRequests() {
+    int count = 0;
+    for (PImage image : imageRequests.keySet()) {
+      if (cancelImageRequest(image)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+
+  class ImageRequest implements Runnable, Comparable<ImageRequest> {
+    final PImage vessel;
+    final String filename;
+    final String extension;
+    final int priority;
+    final long order;
+
+    ImageRequest(PImage vessel, String filename, String extension, int priority) {
+      this.vessel = vessel;
+      this.filename = filename;
+      this.extension = extension;
+      this.priority = priority;
+      this.order = requestImageCount.getAndIncrement();
+    }
+
+    @Override
+    public void run() {
+      imageRequests.remove(vessel);
       PImage actual = loadImage(filename, extension);
 
       // An error message should have already printed
@@ -5188,8 +5563,16 @@ public class PApplet implements PConstants {
         vessel.pixelHeight = actual.height;
         vessel.pixelDensity = 1;
       }
-    });
-    return vessel;
+    }
+
+    /** Higher priority first, then in the order requested. */
+    @Override
+    public int compareTo(ImageRequest o) {
+      if (priority != o.priority) {
+        return Integer.compare(o.priority, priority);
+      }
+      return Long.compare(order, o.order);
+    }
   }
 
 
@@ -6841,6 +7224,76 @@ public class PApplet implements PConstants {
   }
 
 
+  /**
+   * Reads a file one line at a time, for files that are too large to load
+   * into memory all at once with <b>loadStrings()</b>. The file is found the
+   * same way as <b>loadStrings()</b>, and .gz files are decompressed on the
+   * fly. Use the result in a for loop:
+   * <pre>
+   * for (String line : streamStrings("huge.log")) {
+   *   ...
+   * }
+   * </pre>
+   * If the file is not available, <b>null</b> is returned and an error
+   * message is printed to the console.
+   *
+   * @param filename name of the file or url to load
+   * @see PApplet#loadStrings(String)
+   * @see LineStream
+   */
+  public LineStream streamStrings(String filename) {
+    ReadableByteChannel channel = createChannel(filename);
+    return (channel == null) ? null : new LineStream(channel);
+  }
+
+
+  /**
+   * Reads a file as a series of fixed-size records, for binary files that
+   * are too large to load into memory all at once with <b>loadBytes()</b>.
+   * The file is found the same way as <b>loadBytes()</b>, and .gz files are
+   * decompressed on the fly.
+   *
+   * @param filename name of the file or url to load
+   * @param recordLength number of bytes in each record
+   * @see PApplet#loadBytes(String)
+   * @see RecordStream
+   */
+  public RecordStream streamBytes(String filename, int recordLength) {
+    ReadableByteChannel channel = createChannel(filename);
+    return (channel == null) ? null : new RecordStream(channel, recordLength);
+  }
+
+
+  /**
+   * Opens a channel for the streaming functions. Plain local files are read
+   * directly through a FileChannel, everything else (URLs, compressed files,
+   * resources inside a jar) goes through createInput().
+   */
+  private ReadableByteChannel createChannel(String filename) {
+    File file = inputFile(filename);
+    if (file != null && !filename.toLowerCase().endsWith(".gz")) {
+      try {
+        // Leave capitalization problems to createInput(), which explains them
+        if (file.getCanonicalFile().getName().equals(new File(filename).getName())) {
+          return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+      } catch (IOException e) {
+        printStackTrace(e);
+        return null;
+      }
+    }
+    InputStream input = createInput(filename);
+    if (input == null) {
+      System.err.println("The file \"" + filename + "\" " +
+                         "is missing or inaccessible, make sure " +
+                         "the URL is valid or that the file has been " +
+                         "added to your sketch and is readable.");
+      return null;
+    }
+    return Channels.newChannel(input);
+  }
+
+
 
   //////////////////////////////////////////////////////////////
 
@@ -9828,6 +10281,12 @@ public class PApplet implements PConstants {
    *                        a display. Omitting this option will cause the
    *                        default display to be used.
    *
+   * --offline              Render without a window, and call draw() as
+   *                        quickly as possible, ignoring frameRate().
+   *                        Frames written with saveFrame() are encoded
+   *                        on separate threads. Works without a display,
+   *                        but not with the OpenGL renderers.
+   *
    * Parameters used by Processing when running via the PDE
    *
    * --external             set when the sketch is being used by the PDE
@@ -9936,6 +10395,7 @@ public class PApplet implements PConstants {
     int displayNum = -1;  // use default
     boolean present = false;
     boolean fullScreen = false;
+    boolean offline = false;
     float uiScale = 0;
 
     String param, value;
@@ -10020,6 +10480,10 @@ public class PApplet implements PConstants {
             fullScreen = true;
             break;
 
+          case ARGS_OFFLINE:
+            offline = true;
+            break;
+
           default:
             name = args[argIndex];
             break label;  // because of break, argIndex won't increment again
@@ -10054,7 +10518,7 @@ public class PApplet implements PConstants {
       }
     }
 
-    if (!disableAWT) {
+    if (!disableAWT && !offline) {
       ShimAWT.initRun();
     }
 
@@ -10077,7 +10541,7 @@ public class PApplet implements PConstants {
 
     // TODO When disabling AWT for LWJGL or others, we need to figure out
     //      how to make Cmd-Q and the rest of this still work properly.
-    if (platform == MACOS && !disableAWT) {
+    if (platform == MACOS && !disableAWT && !offline) {
       try {
         final String td = "processing.core.ThinkDifferent";
         Class<?> thinkDifferent =
@@ -10096,6 +10560,7 @@ public class PApplet implements PConstants {
 
     sketch.present = present;
     sketch.fullScreen = fullScreen;
+    sketch.offline = offline;
 
     // For 3.0.1, moved this above handleSettings() so that loadImage() can be
     // used inside settings(). Sets a terrible precedent, but the alternative
@@ -10144,7 +10609,7 @@ public class PApplet implements PConstants {
 
   /** Danger: available for advanced subclassing, but here be dragons. */
   protected void showSurface() {
-    if (getGraphics().displayable()) {
+    if (getGraphics().displayable() && !offline) {
       surface.setVisible(true);
     }
   }
@@ -10158,6 +10623,20 @@ public class PApplet implements PConstants {
 
   protected PSurface initSurface() {
     g = createPrimaryGraphics();
+
+    if (offline) {
+      if (!g.isGL()) {
+        // Skip the window entirely, and let PSurfaceNone run the
+        // animation thread without pacing the frame rate.
+        surface = g.surface = new PSurfaceNone(g);
+        surface.initOffscreen(this);
+        return surface;
+      }
+      System.err.println(ARGS_OFFLINE + " is not available with " +
+                         renderer + ", running with a window instead");
+      offline = false;
+    }
+
     surface = g.createSurface();
 
     // Create fake Frame object to warn user about the changes
@@ -11977,6 +12456,28 @@ public class PApplet implements PConstants {
   }
 
 
+  /**
+   * Draws curves from <b>bezierVertex()</b>, <b>quadraticVertex()</b>,
+   * <b>curveVertex()</b>, <b>bezier()</b>, and <b>curve()</b> with as many
+   * line segments as each one needs to stay within <b>tolerance</b> pixels
+   * of the real curve, at the size it's drawn on screen. Small curves then
+   * use only a few segments, and large ones stay smooth. Arcs and ellipses
+   * in P2D and P3D follow the same tolerance. Use 0 (the default) to go back
+   * to the fixed number of segments set by <b>bezierDetail()</b> and
+   * <b>curveDetail()</b>. Like those, this is only useful with the
+   * <b>P2D</b> and <b>P3D</b> renderers, because JAVA2D already draws
+   * curves this way.
+   *
+   * @param tolerance largest distance from the curve, in pixels
+   * @see PGraphics#bezierDetail(int)
+   * @see PGraphics#curveDetail(int)
+   */
+  public void curveTolerance(float tolerance) {
+    if (recorder != null) recorder.curveTolerance(tolerance);
+    g.curveTolerance(tolerance);
+  }
+
+
   /**
    *
    * Draws a curved line on the screen. The first and second parameters
@@ -15044,7 +15545,9 @@ public class PApplet implements PConstants {
    * BLUR<br />
    * Executes a Gaussian blur with the level parameter specifying the extent of
    * the blurring. If no parameter is used, the blur is equivalent to Gaussian
-   * blur of radius 1. Larger values increase the blur.<br />
+   * blur of radius 1. Larger values increase the blur. From a level of about
+   * 7, a faster approximation is used, which takes the same time no matter
+   * how large the level.<br />
    * <br />
    * ERODE<br />
    * Reduces the light areas. No parameter is used.<br />
@@ -252,6 +252,14 @@ public interface PConstants {
   int DILATE    = 18;
 
 
+  // resize() filters
+  // (BILINEAR uses the same value as the OpenGL texture sampling mode)
+
+  int BILINEAR = 4;
+  int AREA     = 21;
+  int LANCZOS  = 22;
+
+
   // blend mode keyword definitions
   // @see processing.core.PImage#blendColor(int,int,int)
 
@@ -494,6 +502,9 @@ public interface PConstants {
   int DISABLE_DEPTH_TEST         =  2;
   int ENABLE_DEPTH_TEST          = -2;
 
+  // The regular depth sort stops fixing the order of overlapping triangles
+  // after a set number of tests (see PGraphicsOpenGL.DepthSorter), the
+  // exact one always finishes
   int ENABLE_DEPTH_SORT          =  3;
   int DISABLE_DEPTH_SORT         = -3;
 
@@ -524,5 +535,14 @@ public interface PConstants {
   int DISABLE_ASYNC_SAVEFRAME    =  12;
   int ENABLE_ASYNC_SAVEFRAME     = -12;
 
-  int HINT_COUNT                 =  13;
+  int ENABLE_PIXEL_ALIASING      =  13;
+  int DISABLE_PIXEL_ALIASING     = -13;
+
+  int ENABLE_PRIMITIVE_BATCHING  =  14;
+  int DISABLE_PRIMITIVE_BATCHING = -14;
+
+  int ENABLE_EXACT_DEPTH_SORT    =  15;
+  int DISABLE_EXACT_DEPTH_SORT   = -15;
+
+  int HINT_COUNT                 =  16;
 }
@@ -0,0 +1,1218 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Records drawing calls so that they can be drawn again later, with a single
+ * call to <b>draw()</b>, on any renderer. Use it for parts of a sketch that
+ * don't change from frame to frame, but take a lot of calls to draw:
+ * <pre>
+ * PDisplayList grid = new PDisplayList();
+ * beginRecord(grid);
+ * for (...) { rect(...); text(...); }
+ * endRecord();
+ * ...
+ * void draw() {
+ *   grid.draw(g);
+ * }
+ * </pre>
+ * A PDisplayList can also be drawn into directly, between <b>beginDraw()</b>
+ * and <b>endDraw()</b>, like a PGraphics. Each <b>beginDraw()</b> starts a
+ * new recording.
+ * <p>
+ * Shapes, images, text, and the transformation and style calls that affect
+ * them (fill, stroke, tint, stroke weight, the various modes, and so on) are
+ * recorded. Colors are recorded as they are when the call is made, so
+ * <b>colorMode()</b> doesn't matter when drawing. Lights and materials
+ * are not recorded. Drawing a list starts with the current style and
+ * transformation of the renderer, and changes made by the list don't
+ * carry over after it's done.
+ * <p>
+ * A list can be saved with <b>write()</b> and loaded with <b>read()</b>,
+ * unless it contains PShape objects.
+ */
+public class PDisplayList extends PGraphics {
+
+  // style
+  static final int OP_FILL = 1;
+  static final int OP_NO_FILL = 2;
+  static final int OP_STROKE = 3;
+  static final int OP_NO_STROKE = 4;
+  static final int OP_TINT = 5;
+  static final int OP_NO_TINT = 6;
+  static final int OP_STROKE_WEIGHT = 7;
+  static final int OP_STROKE_CAP = 8;
+  static final int OP_STROKE_JOIN = 9;
+  static final int OP_RECT_MODE = 10;
+  static final int OP_ELLIPSE_MODE = 11;
+  static final int OP_IMAGE_MODE = 12;
+  static final int OP_SHAPE_MODE = 13;
+  static final int OP_BLEND_MODE = 14;
+  static final int OP_TEXT_ALIGN = 15;
+  static final int OP_TEXT_LEADING = 16;
+  static final int OP_TEXT_MODE = 17;
+  static final int OP_TEXT_SIZE = 18;
+  static final int OP_TEXT_FONT = 19;
+  static final int OP_TEXT_FONT_SIZE = 20;
+  static final int OP_TEXTURE_MODE = 21;
+  static final int OP_TEXTURE_WRAP = 22;
+  static final int OP_CURVE_DETAIL = 23;
+  static final int OP_BEZIER_DETAIL = 24;
+  static final int OP_CURVE_TIGHTNESS = 25;
+  static final int OP_SPHERE_DETAIL = 26;
+  static final int OP_PUSH_STYLE = 27;
+  static final int OP_POP_STYLE = 28;
+  static final int OP_CLIP = 29;
+  static final int OP_NO_CLIP = 30;
+  static final int OP_BACKGROUND = 31;
+  static final int OP_BACKGROUND_IMAGE = 32;
+
+  // transformations
+  static final int OP_PUSH_MATRIX = 40;
+  static final int OP_POP_MATRIX = 41;
+  static final int OP_TRANSLATE = 42;
+  static final int OP_TRANSLATE_3D = 43;
+  static final int OP_ROTATE = 44;
+  static final int OP_ROTATE_X = 45;
+  static final int OP_ROTATE_Y = 46;
+  static final int OP_ROTATE_Z = 47;
+  static final int OP_ROTATE_AXIS = 48;
+  static final int OP_SCALE_UNIFORM = 49;
+  static final int OP_SCALE = 50;
+  static final int OP_SCALE_3D = 51;
+  static final int OP_SHEAR_X = 52;
+  static final int OP_SHEAR_Y = 53;
+  static final int OP_RESET_MATRIX = 54;
+  static final int OP_APPLY_MATRIX = 55;
+  static final int OP_APPLY_MATRIX_3D = 56;
+
+  // drawing
+  static final int OP_POINT = 60;
+  static final int OP_POINT_3D = 61;
+  static final int OP_LINE = 62;
+  static final int OP_LINE_3D = 63;
+  static final int OP_TRIANGLE = 64;
+  static final int OP_QUAD = 65;
+  static final int OP_RECT = 66;
+  static final int OP_RECT_ROUNDED = 67;
+  static final int OP_RECT_CORNERS = 68;
+  static final int OP_ELLIPSE = 69;
+  static final int OP_ARC = 70;
+  static final int OP_ARC_MODE = 71;
+  static final int OP_BOX = 72;
+  static final int OP_SPHERE = 73;
+  static final int OP_BEZIER = 74;
+  static final int OP_BEZIER_3D = 75;
+  static final int OP_CURVE = 76;
+  static final int OP_CURVE_3D = 77;
+  static final int OP_BEGIN_SHAPE = 78;
+  static final int OP_END_SHAPE = 79;
+  static final int OP_VERTEX = 80;
+  static final int OP_VERTEX_3D = 81;
+  static final int OP_VERTEX_UV = 82;
+  static final int OP_VERTEX_3D_UV = 83;
+  static final int OP_BEZIER_VERTEX = 84;
+  static final int OP_BEZIER_VERTEX_3D = 85;
+  static final int OP_QUADRATIC_VERTEX = 86;
+  static final int OP_QUADRATIC_VERTEX_3D = 87;
+  static final int OP_CURVE_VERTEX = 88;
+  static final int OP_CURVE_VERTEX_3D = 89;
+  static final int OP_BEGIN_CONTOUR = 90;
+  static final int OP_END_CONTOUR = 91;
+  static final int OP_NORMAL = 92;
+  static final int OP_TEXTURE = 93;
+  static final int OP_IMAGE = 94;
+  static final int OP_IMAGE_SIZED = 95;
+  static final int OP_SHAPE = 96;
+  static final int OP_SHAPE_AT = 97;
+  static final int OP_SHAPE_SIZED = 98;
+  static final int OP_TEXT = 99;
+  static final int OP_TEXT_3D = 100;
+  static final int OP_TEXT_BOX = 101;
+
+  /** Identifies a saved list, followed by the format version */
+  static final int MAGIC = 0x50444c53;  // "PDLS"
+  static final int VERSION = 1;
+
+  static final int OBJECT_STRING = 1;
+  static final int OBJECT_IMAGE = 2;
+  static final int OBJECT_FONT = 3;
+
+  /** One entry per call */
+  int[] commands = new int[256];
+  int commandCount;
+  /** The float parameters of all calls, in order */
+  float[] params = new float[1024];
+  int paramCount;
+  /** Images, fonts, shapes, and strings, in the order they're used */
+  List<Object> objects = new ArrayList<>();
+
+  /** More than zero while a call made by one of the recorded ones runs */
+  private int nested;
+
+
+  public PDisplayList() {
+    // recorded colors keep their alpha, even for background()
+    format = ARGB;
+  }
+
+
+  @Override
+  public void beginDraw() {
+    clearCommands();
+    nested++;
+    defaultSettings();
+    nested--;
+  }
+
+
+  /** Throw away everything recorded so far. */
+  public void clearCommands() {
+    commandCount = 0;
+    paramCount = 0;
+    objects.clear();
+  }
+
+
+  /** Number of calls recorded. */
+  public int commandCount() {
+    return commandCount;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // RECORDING
+
+
+  private boolean record(int command) {
+    if (nested > 0) return false;
+    if (commandCount == commands.length) {
+      commands = Arrays.copyOf(commands, commandCount << 1);
+    }
+    commands[commandCount++] = command;
+    return true;
+  }
+
+
+  private void record(int command, float... values) {
+    if (record(command)) {
+      if (paramCount + values.length > params.length) {
+        params = Arrays.copyOf(params, Math.max(params.length << 1,
+                                                paramCount + values.length));
+      }
+      System.arraycopy(values, 0, params, paramCount, values.length);
+      paramCount += values.length;
+    }
+  }
+
+
+  private void recordObject(int command, Object object, float... values) {
+    if (nested == 0) {
+      objects.add(object);
+      record(command, values);
+    }
+  }
+
+
+  @Override
+  protected void fillFromCalc() {
+    super.fillFromCalc();
+    record(OP_FILL, fillR, fillG, fillB, fillA);
+  }
+
+
+  @Override
+  public void noFill() {
+    super.noFill();
+    record(OP_NO_FILL);
+  }
+
+
+  @Override
+  protected void strokeFromCalc() {
+    super.strokeFromCalc();
+    record(OP_STROKE, strokeR, strokeG, strokeB, strokeA);
+  }
+
+
+  @Override
+  public void noStroke() {
+    super.noStroke();
+    record(OP_NO_STROKE);
+  }
+
+
+  @Override
+  protected void tintFromCalc() {
+    super.tintFromCalc();
+    record(OP_TINT, tintR, tintG, tintB, tintA);
+  }
+
+
+  @Override
+  public void noTint() {
+    super.noTint();
+    record(OP_NO_TINT);
+  }
+
+
+  @Override
+  public void strokeWeight(float weight) {
+    super.strokeWeight(weight);
+    record(OP_STROKE_WEIGHT, weight);
+  }
+
+
+  @Override
+  public void strokeCap(int cap) {
+    super.strokeCap(cap);
+    record(OP_STROKE_CAP, cap);
+  }
+
+
+  @Override
+  public void strokeJoin(int join) {
+    super.strokeJoin(join);
+    record(OP_STROKE_JOIN, join);
+  }
+
+
+  @Override
+  public void rectMode(int mode) {
+    super.rectMode(mode);
+    record(OP_RECT_MODE, mode);
+  }
+
+
+  @Override
+  public void ellipseMode(int mode) {
+    super.ellipseMode(mode);
+    record(OP_ELLIPSE_MODE, mode);
+  }
+
+
+  @Override
+  public void imageMode(int mode) {
+    super.imageMode(mode);
+    record(OP_IMAGE_MODE, mode);
+  }
+
+
+  @Override
+  public void shapeMode(int mode) {
+    super.shapeMode(mode);
+    record(OP_SHAPE_MODE, mode);
+  }
+
+
+  @Override
+  public void blendMode(int mode) {
+    blendMode = mode;
+    record(OP_BLEND_MODE, mode);
+  }
+
+
+  @Override
+  public void textAlign(int alignX, int alignY) {
+    super.textAlign(alignX, alignY);
+    record(OP_TEXT_ALIGN, alignX, alignY);
+  }
+
+
+  @Override
+  public void textLeading(float leading) {
+    super.textLeading(leading);
+    record(OP_TEXT_LEADING, leading);
+  }
+
+
+  @Override
+  public void textMode(int mode) {
+    textMode = mode;
+    record(OP_TEXT_MODE, mode);
+  }
+
+
+  @Override
+  public void textSize(float size) {
+    // no font is needed, since nothing is drawn here
+    textSize = size;
+    textLeading = (textAscent() + textDescent()) * 1.275f;
+    record(OP_TEXT_SIZE, size);
+  }
+
+
+  @Override
+  public float textAscent() {
+    return (textFont == null) ? textSize * 0.8f : super.textAscent();
+  }
+
+
+  @Override
+  public float textDescent() {
+    return (textFont == null) ? textSize * 0.2f : super.textDescent();
+  }
+
+
+  @Override
+  public void textFont(PFont which) {
+    nested++;
+    super.textFont(which);
+    nested--;
+    recordObject(OP_TEXT_FONT, which);
+  }
+
+
+  @Override
+  public void textFont(PFont which, float size) {
+    nested++;
+    super.textFont(which, size);
+    nested--;
+    recordObject(OP_TEXT_FONT_SIZE, which, size);
+  }
+
+
+  @Override
+  public void textureMode(int mode) {
+    super.textureMode(mode);
+    record(OP_TEXTURE_MODE, mode);
+  }
+
+
+  @Override
+  public void textureWrap(int wrap) {
+    super.textureWrap(wrap);
+    record(OP_TEXTURE_WRAP, wrap);
+  }
+
+
+  @Override
+  public void curveDetail(int detail) {
+    curveDetail = detail;
+    record(OP_CURVE_DETAIL, detail);
+  }
+
+
+  @Override
+  public void bezierDetail(int detail) {
+    bezierDetail = detail;
+    record(OP_BEZIER_DETAIL, detail);
+  }
+
+
+  @Override
+  public void curveTightness(float tightness) {
+    curveTightness = tightness;
+    record(OP_CURVE_TIGHTNESS, tightness);
+  }
+
+
+  @Override
+  public void sphereDetail(int ures, int vres) {
+    sphereDetailU = ures;
+    sphereDetailV = vres;
+    record(OP_SPHERE_DETAIL, ures, vres);
+  }
+
+
+  @Override
+  public void pushStyle() {
+    super.pushStyle();
+    record(OP_PUSH_STYLE);
+  }
+
+
+  @Override
+  public void popStyle() {
+    // popStyle() sets each style again, which shouldn't be recorded
+    nested++;
+    super.popStyle();
+    nested--;
+    record(OP_POP_STYLE);
+  }
+
+
+  @Override
+  public void clip(float a, float b, float c, float d) {
+    record(OP_CLIP, a, b, c, d);
+  }
+
+
+  @Override
+  public void noClip() {
+    record(OP_NO_CLIP);
+  }
+
+
+  @Override
+  protected void backgroundImpl() {
+    record(OP_BACKGROUND, backgroundR, backgroundG, backgroundB, backgroundA);
+  }
+
+
+  @Override
+  public void background(PImage image) {
+    recordObject(OP_BACKGROUND_IMAGE, image);
+  }
+
+
+  @Override
+  public void pushMatrix() {
+    record(OP_PUSH_MATRIX);
+  }
+
+
+  @Override
+  public void popMatrix() {
+    record(OP_POP_MATRIX);
+  }
+
+
+  @Override
+  public void translate(float x, float y) {
+    record(OP_TRANSLATE, x, y);
+  }
+
+
+  @Override
+  public void translate(float x, float y, float z) {
+    record(OP_TRANSLATE_3D, x, y, z);
+  }
+
+
+  @Override
+  public void rotate(float angle) {
+    record(OP_ROTATE, angle);
+  }
+
+
+  @Override
+  public void rotateX(float angle) {
+    record(OP_ROTATE_X, angle);
+  }
+
+
+  @Override
+  public void rotateY(float angle) {
+    record(OP_ROTATE_Y, angle);
+  }
+
+
+  @Override
+  public void rotateZ(float angle) {
+    record(OP_ROTATE_Z, angle);
+  }
+
+
+  @Override
+  public void rotate(float angle, float x, float y, float z) {
+    record(OP_ROTATE_AXIS, angle, x, y, z);
+  }
+
+
+  @Override
+  public void scale(float s) {
+    record(OP_SCALE_UNIFORM, s);
+  }
+
+
+  @Override
+  public void scale(float x, float y) {
+    record(OP_SCALE, x, y);
+  }
+
+
+  @Override
+  public void scale(float x, float y, float z) {
+    record(OP_SCALE_3D, x, y, z);
+  }
+
+
+  @Override
+  public void shearX(float angle) {
+    record(OP_SHEAR_X, angle);
+  }
+
+
+  @Override
+  public void shearY(float angle) {
+    record(OP_SHEAR_Y, angle);
+  }
+
+
+  @Override
+  public void resetMatrix() {
+    record(OP_RESET_MATRIX);
+  }
+
+
+  @Override
+  public void applyMatrix(float n00, float n01, float n02,
+                          float n10, float n11, float n12) {
+    record(OP_APPLY_MATRIX, n00, n01, n02, n10, n11, n12);
+  }
+
+
+  @Override
+  public void applyMatrix(float n00, float n01, float n02, float n03,
+                          float n10, float n11, float n12, float n13,
+                          float n20, float n21, float n22, float n23,
+                          float n30, float n31, float n32, float n33) {
+    record(OP_APPLY_MATRIX_3D, n00, n01, n02, n03, n10, n11, n12, n13,
+           n20, n21, n22, n23, n30, n31, n32, n33);
+  }
+
+
+  @Override
+  public void point(float x, float y) {
+    record(OP_POINT, x, y);
+  }
+
+
+  @Override
+  public void point(float x, float y, float z) {
+    record(OP_POINT_3D, x, y, z);
+  }
+
+
+  @Override
+  public void line(float x1, float y1, float x2, float y2) {
+    record(OP_LINE, x1, y1, x2, y2);
+  }
+
+
+  @Override
+  public void line(float x1, float y1, float z1,
+                   float x2, float y2, float z2) {
+    record(OP_LINE_3D, x1, y1, z1, x2, y2, z2);
+  }
+
+
+  @Override
+  public void triangle(float x1, float y1, float x2, float y2,
+                       float x3, float y3) {
+    record(OP_TRIANGLE, x1, y1, x2, y2, x3, y3);
+  }
+
+
+  @Override
+  public void quad(float x1, float y1, float x2, float y2,
+                   float x3, float y3, float x4, float y4) {
+    record(OP_QUAD, x1, y1, x2, y2, x3, y3, x4, y4);
+  }
+
+
+  @Override
+  public void rect(float a, float b, float c, float d) {
+    record(OP_RECT, a, b, c, d);
+  }
+
+
+  @Override
+  public void rect(float a, float b, float c, float d, float r) {
+    record(OP_RECT_ROUNDED, a, b, c, d, r);
+  }
+
+
+  @Override
+  public void rect(float a, float b, float c, float d,
+                   float tl, float tr, float br, float bl) {
+    record(OP_RECT_CORNERS, a, b, c, d, tl, tr, br, bl);
+  }
+
+
+  @Override
+  public void ellipse(float a, float b, float c, float d) {
+    record(OP_ELLIPSE, a, b, c, d);
+  }
+
+
+  @Override
+  public void arc(float a, float b, float c, float d,
+                  float start, float stop) {
+    record(OP_ARC, a, b, c, d, start, stop);
+  }
+
+
+  @Override
+  public void arc(float a, float b, float c, float d,
+                  float start, float stop, int mode) {
+    record(OP_ARC_MODE, a, b, c, d, start, stop, mode);
+  }
+
+
+  @Override
+  public void box(float w, float h, float d) {
+    record(OP_BOX, w, h, d);
+  }
+
+
+  @Override
+  public void sphere(float r) {
+    record(OP_SPHERE, r);
+  }
+
+
+  @Override
+  public void bezier(float x1, float y1, float x2, float y2,
+                     float x3, float y3, float x4, float y4) {
+    record(OP_BEZIER, x1, y1, x2, y2, x3, y3, x4, y4);
+  }
+
+
+  @Override
+  public void bezier(float x1, float y1, float z1,
+                     float x2, float y2, float z2,
+                     float x3, float y3, float z3,
+                     float x4, float y4, float z4) {
+    record(OP_BEZIER_3D, x1, y1, z1, x2, y2, z2, x3, y3, z3, x4, y4, z4);
+  }
+
+
+  @Override
+  public void curve(float x1, float y1, float x2, float y2,
+                    float x3, float y3, float x4, float y4) {
+    record(OP_CURVE, x1, y1, x2, y2, x3, y3, x4, y4);
+  }
+
+
+  @Override
+  public void curve(float x1, float y1, float z1,
+                    float x2, float y2, float z2,
+                    float x3, float y3, float z3,
+                    float x4, float y4, float z4) {
+    record(OP_CURVE_3D, x1, y1, z1, x2, y2, z2, x3, y3, z3, x4, y4, z4);
+  }
+
+
+  @Override
+  public void beginShape(int kind) {
+    shape = kind;
+    record(OP_BEGIN_SHAPE, kind);
+  }
+
+
+  @Override
+  public void endShape(int mode) {
+    shape = 0;
+    record(OP_END_SHAPE, mode);
+  }
+
+
+  @Override
+  public void vertex(float x, float y) {
+    record(OP_VERTEX, x, y);
+  }
+
+
+  @Override
+  public void vertex(float x, float y, float z) {
+    record(OP_VERTEX_3D, x, y, z);
+  }
+
+
+  @Override
+  public void vertex(float x, float y, float u, float v) {
+    record(OP_VERTEX_UV, x, y, u, v);
+  }
+
+
+  @Override
+  public void vertex(float x, float y, float z, float u, float v) {
+    record(OP_VERTEX_3D_UV, x, y, z, u, v);
+  }
+
+
+  @Override
+  public void bezierVertex(float x2, float y2,
+                           float x3, float y3,
+                           float x4, float y4) {
+    record(OP_BEZIER_VERTEX, x2, y2, x3, y3, x4, y4);
+  }
+
+
+  @Override
+  public void bezierVertex(float x2, float y2, float z2,
+                           float x3, float y3, float z3,
+                           float x4, float y4, float z4) {
+    record(OP_BEZIER_VERTEX_3D, x2, y2, z2, x3, y3, z3, x4, y4, z4);
+  }
+
+
+  @Override
+  public void quadraticVertex(float cx, float cy,
+                              float x3, float y3) {
+    record(OP_QUADRATIC_VERTEX, cx, cy, x3, y3);
+  }
+
+
+  @Override
+  public void quadraticVertex(float cx, float cy, float cz,
+                              float x3, float y3, float z3) {
+    record(OP_QUADRATIC_VERTEX_3D, cx, cy, cz, x3, y3, z3);
+  }
+
+
+  @Override
+  public void curveVertex(float x, float y) {
+    record(OP_CURVE_VERTEX, x, y);
+  }
+
+
+  @Override
+  public void curveVertex(float x, float y, float z) {
+    record(OP_CURVE_VERTEX_3D, x, y, z);
+  }
+
+
+  @Override
+  public void beginContour() {
+    record(OP_BEGIN_CONTOUR);
+  }
+
+
+  @Override
+  public void endContour() {
+    record(OP_END_CONTOUR);
+  }
+
+
+  @Override
+  public void normal(float nx, float ny, float nz) {
+    record(OP_NORMAL, nx, ny, nz);
+  }
+
+
+  @Override
+  public void texture(PImage image) {
+    recordObject(OP_TEXTURE, image);
+  }
+
+
+  @Override
+  public void image(PImage img, float a, float b) {
+    recordObject(OP_IMAGE, img, a, b);
+  }
+
+
+  @Override
+  public void image(PImage img, float a, float b, float c, float d,
+                    int u1, int v1, int u2, int v2) {
+    recordObject(OP_IMAGE_SIZED, img, a, b, c, d, u1, v1, u2, v2);
+  }
+
+
+  @Override
+  public void shape(PShape shape) {
+    recordObject(OP_SHAPE, shape);
+  }
+
+
+  @Override
+  public void shape(PShape shape, float x, float y) {
+    recordObject(OP_SHAPE_AT, shape, x, y);
+  }
+
+
+  @Override
+  public void shape(PShape shape, float a, float b, float c, float d) {
+    recordObject(OP_SHAPE_SIZED, shape, a, b, c, d);
+  }
+
+
+  @Override
+  public void text(char c, float x, float y) {
+    recordObject(OP_TEXT, String.valueOf(c), x, y);
+  }
+
+
+  @Override
+  public void text(char c, float x, float y, float z) {
+    recordObject(OP_TEXT_3D, String.valueOf(c), x, y, z);
+  }
+
+
+  @Override
+  public void text(String str, float x, float y) {
+    recordObject(OP_TEXT, str, x, y);
+  }
+
+
+  @Override
+  public void text(char[] chars, int start, int stop, float x, float y) {
+    recordObject(OP_TEXT, new String(chars, start, stop - start), x, y);
+  }
+
+
+  @Override
+  public void text(String str, float x, float y, float z) {
+    recordObject(OP_TEXT_3D, str, x, y, z);
+  }
+
+
+  @Override
+  public void text(char[] chars, int start, int stop,
+                   float x, float y, float z) {
+    recordObject(OP_TEXT_3D, new String(chars, start, stop - start), x, y, z);
+  }
+
+
+  @Override
+  public void text(String str, float x1, float y1, float x2, float y2) {
+    recordObject(OP_TEXT_BOX, str, x1, y1, x2, y2);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // DRAWING
+
+
+  /**
+   * Draw everything that was recorded onto g, which can be any renderer.
+   */
+  public void draw(PGraphics g) {
+    float[] p = params;
+    int i = 0;  // next parameter
+    int o = 0;  // next object
+
+    g.pushStyle();
+    g.pushMatrix();
+    g.colorMode(RGB, 1);
+
+    for (int c = 0; c < commandCount; c++) {
+      switch (commands[c]) {
+        case OP_FILL -> { g.fill(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_NO_FILL -> g.noFill();
+        case OP_STROKE -> { g.stroke(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_NO_STROKE -> g.noStroke();
+        case OP_TINT -> { g.tint(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_NO_TINT -> g.noTint();
+        case OP_STROKE_WEIGHT -> g.strokeWeight(p[i++]);
+        case OP_STROKE_CAP -> g.strokeCap((int) p[i++]);
+        case OP_STROKE_JOIN -> g.strokeJoin((int) p[i++]);
+        case OP_RECT_MODE -> g.rectMode((int) p[i++]);
+        case OP_ELLIPSE_MODE -> g.ellipseMode((int) p[i++]);
+        case OP_IMAGE_MODE -> g.imageMode((int) p[i++]);
+        case OP_SHAPE_MODE -> g.shapeMode((int) p[i++]);
+        case OP_BLEND_MODE -> g.blendMode((int) p[i++]);
+        case OP_TEXT_ALIGN -> { g.textAlign((int) p[i], (int) p[i+1]); i += 2; }
+        case OP_TEXT_LEADING -> g.textLeading(p[i++]);
+        case OP_TEXT_MODE -> g.textMode((int) p[i++]);
+        case OP_TEXT_SIZE -> g.textSize(p[i++]);
+        case OP_TEXT_FONT -> g.textFont((PFont) objects.get(o++));
+        case OP_TEXT_FONT_SIZE -> g.textFont((PFont) objects.get(o++), p[i++]);
+        case OP_TEXTURE_MODE -> g.textureMode((int) p[i++]);
+        case OP_TEXTURE_WRAP -> g.textureWrap((int) p[i++]);
+        case OP_CURVE_DETAIL -> g.curveDetail((int) p[i++]);
+        case OP_BEZIER_DETAIL -> g.bezierDetail((int) p[i++]);
+        case OP_CURVE_TIGHTNESS -> g.curveTightness(p[i++]);
+        case OP_SPHERE_DETAIL -> { g.sphereDetail((int) p[i], (int) p[i+1]); i += 2; }
+        case OP_PUSH_STYLE -> g.pushStyle();
+        case OP_POP_STYLE -> g.popStyle();
+        case OP_CLIP -> { g.clip(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_NO_CLIP -> g.noClip();
+        case OP_BACKGROUND -> { g.background(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_BACKGROUND_IMAGE -> g.background((PImage) objects.get(o++));
+
+        case OP_PUSH_MATRIX -> g.pushMatrix();
+        case OP_POP_MATRIX -> g.popMatrix();
+        case OP_TRANSLATE -> { g.translate(p[i], p[i+1]); i += 2; }
+        case OP_TRANSLATE_3D -> { g.translate(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_ROTATE -> g.rotate(p[i++]);
+        case OP_ROTATE_X -> g.rotateX(p[i++]);
+        case OP_ROTATE_Y -> g.rotateY(p[i++]);
+        case OP_ROTATE_Z -> g.rotateZ(p[i++]);
+        case OP_ROTATE_AXIS -> { g.rotate(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_SCALE_UNIFORM -> g.scale(p[i++]);
+        case OP_SCALE -> { g.scale(p[i], p[i+1]); i += 2; }
+        case OP_SCALE_3D -> { g.scale(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_SHEAR_X -> g.shearX(p[i++]);
+        case OP_SHEAR_Y -> g.shearY(p[i++]);
+        case OP_RESET_MATRIX -> g.resetMatrix();
+        case OP_APPLY_MATRIX -> {
+          g.applyMatrix(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_APPLY_MATRIX_3D -> {
+          g.applyMatrix(p[i], p[i+1], p[i+2], p[i+3],
+                        p[i+4], p[i+5], p[i+6], p[i+7],
+                        p[i+8], p[i+9], p[i+10], p[i+11],
+                        p[i+12], p[i+13], p[i+14], p[i+15]);
+          i += 16;
+        }
+
+        case OP_POINT -> { g.point(p[i], p[i+1]); i += 2; }
+        case OP_POINT_3D -> { g.point(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_LINE -> { g.line(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_LINE_3D -> {
+          g.line(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_TRIANGLE -> {
+          g.triangle(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_QUAD -> {
+          g.quad(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], p[i+6], p[i+7]);
+          i += 8;
+        }
+        case OP_RECT -> { g.rect(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_RECT_ROUNDED -> { g.rect(p[i], p[i+1], p[i+2], p[i+3], p[i+4]); i += 5; }
+        case OP_RECT_CORNERS -> {
+          g.rect(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], p[i+6], p[i+7]);
+          i += 8;
+        }
+        case OP_ELLIPSE -> { g.ellipse(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_ARC -> {
+          g.arc(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_ARC_MODE -> {
+          g.arc(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], (int) p[i+6]);
+          i += 7;
+        }
+        case OP_BOX -> { g.box(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_SPHERE -> g.sphere(p[i++]);
+        case OP_BEZIER -> {
+          g.bezier(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], p[i+6], p[i+7]);
+          i += 8;
+        }
+        case OP_BEZIER_3D -> {
+          g.bezier(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5],
+                   p[i+6], p[i+7], p[i+8], p[i+9], p[i+10], p[i+11]);
+          i += 12;
+        }
+        case OP_CURVE -> {
+          g.curve(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5], p[i+6], p[i+7]);
+          i += 8;
+        }
+        case OP_CURVE_3D -> {
+          g.curve(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5],
+                  p[i+6], p[i+7], p[i+8], p[i+9], p[i+10], p[i+11]);
+          i += 12;
+        }
+        case OP_BEGIN_SHAPE -> g.beginShape((int) p[i++]);
+        case OP_END_SHAPE -> g.endShape((int) p[i++]);
+        case OP_VERTEX -> { g.vertex(p[i], p[i+1]); i += 2; }
+        case OP_VERTEX_3D -> { g.vertex(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_VERTEX_UV -> { g.vertex(p[i], p[i+1], p[i+2], p[i+3]); i += 4; }
+        case OP_VERTEX_3D_UV -> {
+          g.vertex(p[i], p[i+1], p[i+2], p[i+3], p[i+4]);
+          i += 5;
+        }
+        case OP_BEZIER_VERTEX -> {
+          g.bezierVertex(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_BEZIER_VERTEX_3D -> {
+          g.bezierVertex(p[i], p[i+1], p[i+2], p[i+3], p[i+4],
+                         p[i+5], p[i+6], p[i+7], p[i+8]);
+          i += 9;
+        }
+        case OP_QUADRATIC_VERTEX -> {
+          g.quadraticVertex(p[i], p[i+1], p[i+2], p[i+3]);
+          i += 4;
+        }
+        case OP_QUADRATIC_VERTEX_3D -> {
+          g.quadraticVertex(p[i], p[i+1], p[i+2], p[i+3], p[i+4], p[i+5]);
+          i += 6;
+        }
+        case OP_CURVE_VERTEX -> { g.curveVertex(p[i], p[i+1]); i += 2; }
+        case OP_CURVE_VERTEX_3D -> { g.curveVertex(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_BEGIN_CONTOUR -> g.beginContour();
+        case OP_END_CONTOUR -> g.endContour();
+        case OP_NORMAL -> { g.normal(p[i], p[i+1], p[i+2]); i += 3; }
+        case OP_TEXTURE -> g.texture((PImage) objects.get(o++));
+        case OP_IMAGE -> {
+          g.image((PImage) objects.get(o++), p[i], p[i+1]);
+          i += 2;
+        }
+        case OP_IMAGE_SIZED -> {
+          g.image((PImage) objects.get(o++), p[i], p[i+1], p[i+2], p[i+3],
+                  (int) p[i+4], (int) p[i+5], (int) p[i+6], (int) p[i+7]);
+          i += 8;
+        }
+        case OP_SHAPE -> g.shape((PShape) objects.get(o++));
+        case OP_SHAPE_AT -> {
+          g.shape((PShape) objects.get(o++), p[i], p[i+1]);
+          i += 2;
+        }
+        case OP_SHAPE_SIZED -> {
+          g.shape((PShape) objects.get(o++), p[i], p[i+1], p[i+2], p[i+3]);
+          i += 4;
+        }
+        case OP_TEXT -> {
+          g.text((String) objects.get(o++), p[i], p[i+1]);
+          i += 2;
+        }
+        case OP_TEXT_3D -> {
+          g.text((String) objects.get(o++), p[i], p[i+1], p[i+2]);
+          i += 3;
+        }
+        case OP_TEXT_BOX -> {
+          g.text((String) objects.get(o++), p[i], p[i+1], p[i+2], p[i+3]);
+          i += 4;
+        }
+        default -> throw new RuntimeException("Unknown display list command " +
+                                              commands[c]);
+      }
+    }
+
+    g.popMatrix();
+    g.popStyle();
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // SAVING
+
+
+  /**
+   * Save the recorded calls, along with the images, fonts, and text that
+   * they use. Lists that draw a PShape can't be saved. The stream is
+   * not closed.
+   */
+  public void write(OutputStream output) throws IOException {
+    DataOutputStream data = new DataOutputStream(output);
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(commandCount);
+    for (int i = 0; i < commandCount; i++) {
+      data.writeByte(commands[i]);
+    }
+    data.writeInt(paramCount);
+    for (int i = 0; i < paramCount; i++) {
+      data.writeFloat(params[i]);
+    }
+    data.writeInt(objects.size());
+    for (Object object : objects) {
+      if (object instanceof String str) {
+        data.writeByte(OBJECT_STRING);
+        data.writeUTF(str);
+
+      } else if (object instanceof PFont font) {
+        data.writeByte(OBJECT_FONT);
+        // Fonts from createFont() only make their glyphs when they're first
+        // drawn, so make the ones for the recorded text before saving
+        for (Object other : objects) {
+          if (other instanceof String str) {
+            for (int j = 0; j < str.length(); j++) {
+              font.getGlyph(str.charAt(j));
+            }
+          }
+        }
+        // PFont.save() closes its stream, so it gets its own
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        font.save(bytes);
+        data.writeInt(bytes.size());
+        bytes.writeTo(data);
+
+      } else if (object instanceof PImage image) {
+        data.writeByte(OBJECT_IMAGE);
+        image.loadPixels();
+        data.writeInt(image.pixelWidth);
+        data.writeInt(image.pixelHeight);
+        data.writeInt(image.pixelDensity);
+        data.writeInt(image.format);
+        for (int c : image.pixels) {
+          data.writeInt(c);
+        }
+
+      } else {
+        throw new IOException("A display list that draws a " +
+                              object.getClass().getSimpleName() +
+                              " can't be saved");
+      }
+    }
+    data.flush();
+  }
+
+
+  /**
+   * Load a list saved with <b>write()</b>. The stream is not closed.
+   */
+  static public PDisplayList read(InputStream input) throws IOException {
+    DataInputStream data = new DataInputStream(input);
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a saved display list");
+    }
+    int version = data.readInt();
+    if (version != VERSION) {
+      throw new IOException("Can't read version " + version +
+                            " of the display list format");
+    }
+    PDisplayList list = new PDisplayList();
+    list.commandCount = data.readInt();
+    list.commands = new int[Math.max(1, list.commandCount)];
+    for (int i = 0; i < list.commandCount; i++) {
+      list.commands[i] = data.readUnsignedByte();
+    }
+    list.paramCount = data.readInt();
+    list.params = new float[Math.max(1, list.paramCount)];
+    for (int i = 0; i < list.paramCount; i++) {
+      list.params[i] = data.readFloat();
+    }
+    int objectCount = data.readInt();
+    for (int i = 0; i < objectCount; i++) {
+      int kind = data.readUnsignedByte();
+      switch (kind) {
+        case OBJECT_STRING -> list.objects.add(data.readUTF());
+        case OBJECT_FONT -> {
+          byte[] bytes = new byte[data.readInt()];
+          data.readFully(bytes);
+          PFont font = new PFont(new java.io.ByteArrayInputStream(bytes));
+          // draw with the installed font when there is one, the same as
+          // the list that was saved; the glyphs are only a fallback
+          font.findNative();
+          list.objects.add(font);
+        }
+        case OBJECT_IMAGE -> {
+          int w = data.readInt();
+          int h = data.readInt();
+          int density = data.readInt();
+          int format = data.readInt();
+          PImage image = new PImage(w / density, h / density, format, density);
+          for (int j = 0; j < image.pixels.length; j++) {
+            image.pixels[j] = data.readInt();
+          }
+          list.objects.add(image);
+        }
+        default -> throw new IOException("Unknown object in display list");
+      }
+    }
+    return list;
+  }
+}
@@ -45,6 +45,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import processing.opengl.PGL;
 import processing.opengl.PShader;
@@ -211,6 +212,13 @@ public class PGraphics extends PImage implements PConstants {
   protected WeakHashMap<PImage, Object> cacheMap =
     new WeakHashMap<>();
 
+  /**
+   * Bytes copied from the renderer into pixels[], and from pixels[]
+   * (or images) into the renderer, since beginDraw().
+   */
+  protected long pixelBytesLoaded;
+  protected long pixelBytesUpdated;
+
 
   ////////////////////////////////////////////////////////////
 
@@ -597,6 +605,16 @@ public class PGraphics extends PImage implements PConstants {
   protected PMatrix3D bezierBasisInverse;
   protected PMatrix3D curveToBezierMatrix;
 
+  /**
+   * Farthest a curve can be from the lines that are drawn for it, in pixels.
+   * When zero, bezierDetail and curveDetail are used instead.
+   */
+  public float curveTolerance = 0;
+  static final protected int MAX_CURVE_SEGMENTS = 1000;
+  // set by splineDrawMatrix()
+  protected PMatrix3D splineDrawMatrix = new PMatrix3D();
+  protected int splineSegments;
+
   // ........................................................
 
   // spline vertices
@@ -787,6 +805,9 @@ public class PGraphics extends PImage implements PConstants {
   public void dispose() {  // ignore
     if (primaryGraphics && asyncImageSaver != null) {
       asyncImageSaver.dispose();
+      if (parent != null && parent.sketchOffline()) {
+        System.out.println(asyncImageSaver.report());
+      }
       asyncImageSaver = null;
     }
   }
@@ -894,6 +915,29 @@ public class PGraphics extends PImage implements PConstants {
   }
 
 
+  /**
+   * Number of bytes of pixel data this renderer has copied into pixels[]
+   * since beginDraw(), by loadPixels(). Together with
+   * pixelBytesUpdated(), shows how much a sketch's pixel operations cost
+   * each frame.
+   */
+  public long pixelBytesLoaded() {  // ignore
+    return pixelBytesLoaded;
+  }
+
+
+  /**
+   * Number of bytes of pixel data this renderer has copied from pixels[]
+   * (by updatePixels()) or from modified images (when they're drawn)
+   * since beginDraw(). Only the regions marked by updatePixels() are
+   * copied, so this is smaller when fewer pixels change.
+   */
+  public long pixelBytesUpdated() {  // ignore
+    return pixelBytesUpdated;
+  }
+
+
+
   public PGL beginPGL() {
     showMethodWarning("beginGL");
     return null;
@@ -1095,7 +1139,16 @@ public class PGraphics extends PImage implements PConstants {
    * <br/> <br/>
    * <b>hint(ENABLE_DEPTH_SORT)</b> - Enable primitive z-sorting of triangles and
    * lines in P3D and OPENGL. This can slow performance considerably, and the
-   * algorithm is not yet perfect. Restore the default with <b>hint(DISABLE_DEPTH_SORT)</b>.
+   * algorithm is not yet perfect. In large scenes where many triangles
+   * overlap, it stops fixing their order after a set amount of work (about
+   * 16 tests per triangle, and at least a million), and the rest are left
+   * sorted by depth only. Restore the default with <b>hint(DISABLE_DEPTH_SORT)</b>.
+   * <br/> <br/>
+   * <b>hint(ENABLE_EXACT_DEPTH_SORT)</b> - Like ENABLE_DEPTH_SORT, but triangles
+   * that cut through each other or overlap in a cycle are split up so that
+   * everything is drawn in the right order, however long it takes. This is
+   * slower, and is meant for transparent shapes that intersect. Go back to the regular sorting
+   * with <b>hint(DISABLE_EXACT_DEPTH_SORT)</b>.
    * <br/> <br/>
    * <b>hint(DISABLE_OPENGL_ERROR_REPORT)</b> - Speeds up the P3D renderer setting
    * by not checking for errors while running. Undo with <b>hint(ENABLE_OPENGL_ERROR_REPORT)</b>.
@@ -1118,6 +1171,22 @@ public class PGraphics extends PImage implements PConstants {
    * will not use separate threads for saving and will block until the image
    * is written to the drive. This was the default behavior in 3.0b7 and before.
    * To enable, call <b>hint(ENABLE_ASYNC_SAVEFRAME)</b>.
+   * <br/> <br/>
+   * <b>hint(ENABLE_PIXEL_ALIASING)</b> - JAVA2D only - <b>loadPixels()</b> makes
+   * <b>pixels[]</b> the image's own memory instead of copying it, so
+   * <b>loadPixels()</b> and <b>updatePixels()</b> no longer copy the whole
+   * frame. Anything drawn afterwards shows up in <b>pixels[]</b> right away.
+   * Java can no longer keep the image in video memory, so drawing this
+   * <b>PGraphics</b> to the screen may be slower. Undo with
+   * <b>hint(DISABLE_PIXEL_ALIASING)</b>.
+   * <br/> <br/>
+   * <b>hint(ENABLE_PRIMITIVE_BATCHING)</b> - JAVA2D only - ellipse(), line(),
+   * and point() calls in a row that have the same fill or stroke and
+   * transformation are drawn a few dozen at a time, which is faster when
+   * there are thousands of them. This is only done where it can't change
+   * what's drawn: with noSmooth(), the default blendMode(), and shapes that
+   * are either filled or stroked (not both) with an opaque color. Undo with
+   * <b>hint(DISABLE_PRIMITIVE_BATCHING)</b>.
    *
    * @webref rendering
    * @webBrief Set various hints and hacks for the renderer
@@ -2161,12 +2230,16 @@ public class PGraphics extends PImage implements PConstants {
                            float x4, float y4) {
     bezierInitCheck();
     bezierVertexCheck();
-    PMatrix3D draw = bezierDrawMatrix;
 
     float[] prev = vertices[vertexCount-1];
     float x1 = prev[X];
     float y1 = prev[Y];
 
+    PMatrix3D draw =
+      splineDrawMatrix(bezierBasisMatrix, bezierDrawMatrix, bezierDetail, 1,
+                       x1, y1, 0, x2, y2, 0, x3, y3, 0, x4, y4, 0);
+    int segments = splineSegments;
+
     float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
     float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
     float xplot3 = draw.m30*x1 + draw.m31*x2 + draw.m32*x3 + draw.m33*x4;
@@ -2175,7 +2248,7 @@ public class PGraphics extends PImage implements PConstants {
     float yplot2 = draw.m20*y1 + draw.m21*y2 + draw.m22*y3 + draw.m23*y4;
     float yplot3 = draw.m30*y1 + draw.m31*y2 + draw.m32*y3 + draw.m33*y4;
 
-    for (int j = 0; j < bezierDetail; j++) {
+    for (int j = 0; j < segments; j++) {
       x1 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
       y1 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
       vertex(x1, y1);
@@ -2217,13 +2290,17 @@ public class PGraphics extends PImage implements PConstants {
                            float x4, float y4, float z4) {
     bezierInitCheck();
     bezierVertexCheck();
-    PMatrix3D draw = bezierDrawMatrix;
 
     float[] prev = vertices[vertexCount-1];
     float x1 = prev[X];
     float y1 = prev[Y];
     float z1 = prev[Z];
 
+    PMatrix3D draw =
+      splineDrawMatrix(bezierBasisMatrix, bezierDrawMatrix, bezierDetail, 1,
+                       x1, y1, z1, x2, y2, z2, x3, y3, z3, x4, y4, z4);
+    int segments = splineSegments;
+
     float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
     float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
     float xplot3 = draw.m30*x1 + draw.m31*x2 + draw.m32*x3 + draw.m33*x4;
@@ -2236,7 +2313,7 @@ public class PGraphics extends PImage implements PConstants {
     float zplot2 = draw.m20*z1 + draw.m21*z2 + draw.m22*z3 + draw.m23*z4;
     float zplot3 = draw.m30*z1 + draw.m31*z2 + draw.m32*z3 + draw.m33*z4;
 
-    for (int j = 0; j < bezierDetail; j++) {
+    for (int j = 0; j < segments; j++) {
       x1 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
       y1 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
       z1 += zplot1; zplot1 += zplot2; zplot2 += zplot3;
@@ -2410,7 +2487,10 @@ public class PGraphics extends PImage implements PConstants {
     float x0 = x2;
     float y0 = y2;
 
-    PMatrix3D draw = curveDrawMatrix;
+    PMatrix3D draw =
+      splineDrawMatrix(curveBasisMatrix, curveDrawMatrix, curveDetail, 1,
+                       x1, y1, 0, x2, y2, 0, x3, y3, 0, x4, y4, 0);
+    int segments = splineSegments;
 
     float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
     float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
@@ -2424,7 +2504,7 @@ public class PGraphics extends PImage implements PConstants {
     int savedCount = curveVertexCount;
 
     vertex(x0, y0);
-    for (int j = 0; j < curveDetail; j++) {
+    for (int j = 0; j < segments; j++) {
       x0 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
       y0 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
       vertex(x0, y0);
@@ -2445,7 +2525,10 @@ public class PGraphics extends PImage implements PConstants {
     float y0 = y2;
     float z0 = z2;
 
-    PMatrix3D draw = curveDrawMatrix;
+    PMatrix3D draw =
+      splineDrawMatrix(curveBasisMatrix, curveDrawMatrix, curveDetail, 1,
+                       x1, y1, z1, x2, y2, z2, x3, y3, z3, x4, y4, z4);
+    int segments = splineSegments;
 
     float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
     float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
@@ -2463,7 +2546,7 @@ public class PGraphics extends PImage implements PConstants {
     float zplot3 = draw.m30*z1 + draw.m31*z2 + draw.m32*z3 + draw.m33*z4;
 
     vertex(x0, y0, z0);
-    for (int j = 0; j < curveDetail; j++) {
+    for (int j = 0; j < segments; j++) {
       x0 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
       y0 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
       z0 += zplot1; zplot1 += zplot2; zplot2 += zplot3;
@@ -3635,6 +3718,27 @@ public class PGraphics extends PImage implements PConstants {
   }
 
 
+  /**
+   * Draws curves from <b>bezierVertex()</b>, <b>quadraticVertex()</b>,
+   * <b>curveVertex()</b>, <b>bezier()</b>, and <b>curve()</b> with as many
+   * line segments as each one needs to stay within <b>tolerance</b> pixels
+   * of the real curve, at the size it's drawn on screen. Small curves then
+   * use only a few segments, and large ones stay smooth. Arcs and ellipses
+   * in P2D and P3D follow the same tolerance. Use 0 (the default) to go back
+   * to the fixed number of segments set by <b>bezierDetail()</b> and
+   * <b>curveDetail()</b>. Like those, this is only useful with the
+   * <b>P2D</b> and <b>P3D</b> renderers, because JAVA2D already draws
+   * curves this way.
+   *
+   * @param tolerance largest distance from the curve, in pixels
+   * @see PGraphics#bezierDetail(int)
+   * @see PGraphics#curveDetail(int)
+   */
+  public void curveTolerance(float tolerance) {
+    curveTolerance = Math.max(0, tolerance);
+  }
+
+
   protected void curveInitCheck() {
     if (!curveInited) {
       curveInit();
@@ -3786,6 +3890,65 @@ public class PGraphics extends PImage implements PConstants {
   }
 
 
+  /**
+   * Returns the forward-differencing matrix to draw one curve with, and sets
+   * splineSegments to the number of steps to take with it. Without a
+   * curveTolerance, that's the detail and the draw matrix for it that were
+   * passed in.
+   * <p/>
+   * Otherwise the count comes from Wang's formula: split a curve evenly
+   * into n lines, and no point on it is farther than M / (8 n^2) from them,
+   * where M is the largest second derivative. For a cubic a t^3 + b t^2 +
+   * c t + d that's 6a t + 2b, which is largest at t = 0 or t = 1.
+   * @param basis turns the four control points into a, b, c, and d
+   * @param scale pixels on screen per unit of the coordinates, or 1 when
+   *              the renderer doesn't know
+   */
+  protected PMatrix3D splineDrawMatrix(PMatrix3D basis,
+                                       PMatrix3D draw, int detail, float scale,
+                                       float x1, float y1, float z1,
+                                       float x2, float y2, float z2,
+                                       float x3, float y3, float z3,
+                                       float x4, float y4, float z4) {
+    splineSegments = splineSegments(basis, detail, scale,
+                                    x1, y1, z1, x2, y2, z2,
+                                    x3, y3, z3, x4, y4, z4);
+    if (splineSegments == detail) {
+      return draw;
+    }
+    splineForward(splineSegments, splineDrawMatrix);
+    splineDrawMatrix.apply(basis);
+    return splineDrawMatrix;
+  }
+
+
+  /**
+   * Returns the number of steps that splineDrawMatrix() takes to draw one
+   * curve, without touching splineSegments or the scratch matrix.
+   */
+  protected int splineSegments(PMatrix3D basis, int detail, float scale,
+                               float x1, float y1, float z1,
+                               float x2, float y2, float z2,
+                               float x3, float y3, float z3,
+                               float x4, float y4, float z4) {
+    if (curveTolerance <= 0) {
+      return detail;
+    }
+    float ax = basis.m00*x1 + basis.m01*x2 + basis.m02*x3 + basis.m03*x4;
+    float ay = basis.m00*y1 + basis.m01*y2 + basis.m02*y3 + basis.m03*y4;
+    float az = basis.m00*z1 + basis.m01*z2 + basis.m02*z3 + basis.m03*z4;
+    float bx = basis.m10*x1 + basis.m11*x2 + basis.m12*x3 + basis.m13*x4;
+    float by = basis.m10*y1 + basis.m11*y2 + basis.m12*y3 + basis.m13*y4;
+    float bz = basis.m10*z1 + basis.m11*z2 + basis.m12*z3 + basis.m13*z4;
+
+    float start = 2 * PApplet.mag(bx, by, bz);
+    float stop = PApplet.mag(6*ax + 2*bx, 6*ay + 2*by, 6*az + 2*bz);
+    float most = Math.max(start, stop) * scale;
+    int segments = (int) Math.ceil(Math.sqrt(most / (8 * curveTolerance)));
+    return PApplet.constrain(segments, 1, MAX_CURVE_SEGMENTS);
+  }
+
+
 
   //////////////////////////////////////////////////////////////
 
@@ -3908,16 +4071,16 @@ public class PGraphics extends PImage implements PConstants {
     if (img.width == -1 || img.height == -1) return;
 
     if (imageMode == CORNER || imageMode == CORNERS) {
-      imageImpl(img,
-                a, b, a+img.width, b+img.height,
-                0, 0, img.width, img.height);
+      imageTiled(img,
+                 a, b, a+img.width, b+img.height,
+                 0, 0, img.width, img.height);
 
     } else if (imageMode == CENTER) {
       float x1 = a - (img.width >> 1);
       float y1 = b - (img.height >> 1);
-      imageImpl(img,
-                x1, y1, x1+img.width, y1+img.height,
-                0, 0, img.width, img.height);
+      imageTiled(img,
+                 x1, y1, x1+img.width, y1+img.height,
+                 0, 0, img.width, img.height);
     }
   }
 
@@ -3952,9 +4115,9 @@ public class PGraphics extends PImage implements PConstants {
         b += d; d = -d;
       }
 
-      imageImpl(img,
-                a, b, a + c, b + d,
-                u1, v1, u2, v2);
+      imageTiled(img,
+                 a, b, a + c, b + d,
+                 u1, v1, u2, v2);
 
     } else if (imageMode == CORNERS) {
       if (c < a) {  // reverse because x2 < x1
@@ -3964,9 +4127,9 @@ public class PGraphics extends PImage implements PConstants {
         float temp = b; b = d; d = temp;
       }
 
-      imageImpl(img,
-                a, b, c, d,
-                u1, v1, u2, v2);
+      imageTiled(img,
+                 a, b, c, d,
+                 u1, v1, u2, v2);
 
     } else if (imageMode == CENTER) {
       // c and d are width/height
@@ -3975,9 +4138,24 @@ public class PGraphics extends PImage implements PConstants {
       float x1 = a - c/2;
       float y1 = b - d/2;
 
-      imageImpl(img,
-                x1, y1, x1 + c, y1 + d,
-                u1, v1, u2, v2);
+      imageTiled(img,
+                 x1, y1, x1 + c, y1 + d,
+                 u1, v1, u2, v2);
+    }
+  }
+
+
+  /**
+   * A PTiledImage draws itself one tile at a time, everything else goes
+   * straight to imageImpl().
+   */
+  private void imageTiled(PImage img,
+                          float x1, float y1, float x2, float y2,
+                          int u1, int v1, int u2, int v2) {
+    if (img instanceof PTiledImage tiled) {
+      tiled.draw(this, x1, y1, x2, y2, u1, v1, u2, v2);
+    } else {
+      imageImpl(img, x1, y1, x2, y2, u1, v1, u2, v2);
     }
   }
 
@@ -8407,7 +8585,10 @@ public class PGraphics extends PImage implements PConstants {
 
   @Override
   public boolean save(String filename) { // ignore
-    if (hints[DISABLE_ASYNC_SAVEFRAME]) {
+    // Offline rendering always saves on separate threads,
+    // because the sketch is limited by encoding speed otherwise.
+    boolean offline = primaryGraphics && parent.sketchOffline();
+    if (hints[DISABLE_ASYNC_SAVEFRAME] && !offline) {
       return super.save(filename);
     }
 
@@ -8420,8 +8601,10 @@ public class PGraphics extends PImage implements PConstants {
     PImage target =
       asyncImageSaver.getAvailableTarget(pixelWidth, pixelHeight, format);
     if (target != null) {
+      long copyStart = System.nanoTime();
       int count = PApplet.min(pixels.length, target.pixels.length);
       System.arraycopy(pixels, 0, target.pixels, 0, count);
+      asyncImageSaver.copyNanos.addAndGet(System.nanoTime() - copyStart);
       asyncImageSaver.saveTargetAsync(this, target, parent.sketchFile(filename));
       return true;
     }
@@ -8464,6 +8647,17 @@ public class PGraphics extends PImage implements PConstants {
     long lastTime = 0;
     int lastFrameCount = 0;
 
+    // Throughput counters for each stage of the pipeline: copying pixels
+    // on the animation thread, waiting for a free target (back pressure),
+    // and processing plus encoding on the save threads.
+    final AtomicLong framesQueued = new AtomicLong();
+    final AtomicLong framesSaved = new AtomicLong();
+    final AtomicLong copyNanos = new AtomicLong();
+    final AtomicLong waitNanos = new AtomicLong();
+    final AtomicLong processNanos = new AtomicLong();
+    final AtomicLong encodeNanos = new AtomicLong();
+    final long startNanos = System.nanoTime();
+
 
     public AsyncImageSaver() { } // ignore
 
@@ -8494,7 +8688,9 @@ public class PGraphics extends PImage implements PConstants {
           target = new PImage(requestedWidth, requestedHeight);
           targetsCreated++;
         } else {
+          long waitStart = System.nanoTime();
           target = targetPool.take();
+          waitNanos.addAndGet(System.nanoTime() - waitStart);
           if (target.pixelWidth != requestedWidth ||
               target.pixelHeight != requestedHeight) {
             // TODO: this kills performance when saving different sizes
@@ -8519,7 +8715,9 @@ public class PGraphics extends PImage implements PConstants {
       target.parent = renderer.parent;
 
       // if running every frame, smooth the frame rate
-      if (target.parent.frameCount - 1 == lastFrameCount && TARGET_COUNT > 1) {
+      // (unless offline, where the target pool alone throttles the sketch)
+      if (target.parent.frameCount - 1 == lastFrameCount && TARGET_COUNT > 1 &&
+          !target.parent.sketchOffline()) {
 
         // count with one less thread to reduce jitter
         // 2 cores - 1 save thread - no wait
@@ -8535,6 +8733,7 @@ public class PGraphics extends PImage implements PConstants {
 
       lastFrameCount = target.parent.frameCount;
       lastTime = System.nanoTime();
+      framesQueued.incrementAndGet();
 
       awaitAsyncSaveCompletion(file);
 
@@ -8546,8 +8745,12 @@ public class PGraphics extends PImage implements PConstants {
             try {
               long startTime = System.nanoTime();
               renderer.processImageBeforeAsyncSave(target);
+              long encodeStart = System.nanoTime();
               target.save(file.getAbsolutePath());
               long saveNanos = System.nanoTime() - startTime;
+              processNanos.addAndGet(encodeStart - startTime);
+              encodeNanos.addAndGet(saveNanos - (encodeStart - startTime));
+              framesSaved.incrementAndGet();
               synchronized (AsyncImageSaver.this) {
                 if (avgNanos == 0) {
                   avgNanos = saveNanos;
@@ -8586,6 +8789,23 @@ public class PGraphics extends PImage implements PConstants {
       }
     }
 
+
+    /**
+     * Summary of the counters above, with the average time per frame spent
+     * in each stage and the overall number of frames saved per second.
+     */
+    public String report() { // ignore
+      long saved = framesSaved.get();
+      long n = Math.max(1, saved);
+      double seconds = (System.nanoTime() - startNanos) / 1e9;
+      return String.format("Saved %d of %d frames with %d threads, " +
+                           "%.1f frames/sec. Per frame: copy %.2f ms, " +
+                           "waiting %.2f ms, processing %.2f ms, encoding %.2f ms",
+                           saved, framesQueued.get(), TARGET_COUNT,
+                           saved / Math.max(seconds, 1e-9),
+                           copyNanos.get() / 1e6 / n, waitNanos.get() / 1e6 / n,
+                           processNanos.get() / 1e6 / n, encodeNanos.get() / 1e6 / n);
+    }
   }
 
 }
@@ -31,7 +31,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import processing.awt.ShimAWT;
 
@@ -132,15 +137,26 @@ public class PImage implements PConstants, Cloneable {
   protected boolean modified;
   protected int mx1, my1, mx2, my2;
 
+  /**
+   * The separate regions inside mx1..my2 that were actually modified,
+   * as x1, y1, x2, y2 for each, so that a few scattered changes don't
+   * mean updating everything in between. Empty when modified is set
+   * without going through updatePixels(), see getModifiedRects().
+   */
+  protected int[] modifiedRects = new int[MAX_MODIFIED_RECTS * 4];
+  protected int modifiedRectCount;
+
+  /** Past this many regions, the closest ones are combined. */
+  static final int MAX_MODIFIED_RECTS = 8;
+
   /** Loaded pixels flag */
   public boolean loaded = false;
 
-  // . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . .
+  /** Pixels in OpenGL order outside the Java heap, see directPixels() */
+  protected IntBuffer directBuffer;
 
+  // . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . . .
 
-  private int ifV, sX, v1, v2, iw, iw1, ih1;
-  private int srcXOffset, srcYOffset;
-  private int[] srcBuffer;
 
   // fixed point precision is limited to 15 bits
   static final int PRECISIONB = 15;
@@ -155,6 +171,19 @@ public class PImage implements PConstants, Cloneable {
   private int[] blurKernel;
   private int[][] blurMult;
 
+  // scratch space for filter(), kept only when asked for with filterBuffer()
+  private boolean keepFilterBuffer;
+  private int[] filterBuffer;
+
+  /** Images with fewer pixels than this are filtered on a single thread. */
+  static final int PARALLEL_PIXELS = 1 << 16;
+
+  /**
+   * Kernel radius (in pixels) from which filter(BLUR) switches to boxBlur(),
+   * whose cost doesn't grow with the radius.
+   */
+  static final int BOX_BLUR_RADIUS = 24;
+
   // colour component bitmasks (moved from PConstants in 2.0b7)
   public static final int ALPHA_MASK = 0xff000000;
   public static final int RED_MASK   = 0x00ff0000;
@@ -358,11 +387,13 @@ public class PImage implements PConstants, Cloneable {
     my1 = 0;
     mx2 = pixelWidth;
     my2 = pixelHeight;
+    modifiedRectCount = 0;
   }
 
 
   public void setModified(boolean m) {  // ignore
     modified = m;
+    modifiedRectCount = 0;
   }
 
 
@@ -386,6 +417,34 @@ public class PImage implements PConstants, Cloneable {
   }
 
 
+  /**
+   * Number of separate regions returned by getModifiedRects(),
+   * or 0 if the image hasn't been modified.
+   */
+  public int getModifiedRectCount() {  // ignore
+    if (!modified) return 0;
+    return Math.max(1, modifiedRectCount);
+  }
+
+
+  /**
+   * The modified regions as x1, y1, x2, y2 for each, in pixel coordinates.
+   * The regions don't overlap, and all fall inside getModifiedX1() through
+   * getModifiedY2(). When only the overall bounds are known, that's the
+   * one region returned. The array belongs to the image, and is only
+   * good until the image is modified again.
+   */
+  public int[] getModifiedRects() {  // ignore
+    if (modified && modifiedRectCount == 0) {
+      modifiedRects[0] = mx1;
+      modifiedRects[1] = my1;
+      modifiedRects[2] = mx2;
+      modifiedRects[3] = my2;
+    }
+    return modifiedRects;
+  }
+
+
   /**
    * Loads the pixel data of the current display window into the <b>pixels[]</b>
    * array. This function must always be called before reading from or writing to
@@ -444,8 +503,15 @@ public class PImage implements PConstants, Cloneable {
       my1 = PApplet.max(0, y);
       my2 = PApplet.min(pixelHeight, y2);
       modified = true;
+      modifiedRectCount = 0;
+      addModifiedRect(mx1, my1, mx2, my2);
 
     } else {
+      if (modifiedRectCount != 0) {
+        addModifiedRect(PApplet.max(0, x), PApplet.max(0, y),
+                        PApplet.min(pixelWidth, x2),
+                        PApplet.min(pixelHeight, y2));
+      }
       if (x < mx1) mx1 = PApplet.max(0, x);
       if (x > mx2) mx2 = PApplet.min(pixelWidth, x);
       if (y < my1) my1 = PApplet.max(0, y);
@@ -459,6 +525,218 @@ public class PImage implements PConstants, Cloneable {
   }
 
 
+  /**
+   * Add a region to modifiedRects, combining it with any it overlaps.
+   * When there are too many, the two that add the least area when
+   * combined are merged.
+   */
+  private void addModifiedRect(int x1, int y1, int x2, int y2) {
+    if (x2 <= x1 || y2 <= y1) return;
+    int[] rects = modifiedRects;
+
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+      for (int i = 0; i < modifiedRectCount; i++) {
+        int r = i * 4;
+        if (x1 < rects[r+2] && rects[r] < x2 && y1 < rects[r+3] && rects[r+1] < y2) {
+          // overlaps, take it out and grow this one to cover it
+          x1 = Math.min(x1, rects[r]);
+          y1 = Math.min(y1, rects[r+1]);
+          x2 = Math.max(x2, rects[r+2]);
+          y2 = Math.max(y2, rects[r+3]);
+          removeModifiedRect(i);
+          merged = true;
+          break;
+        }
+      }
+    }
+    int r = modifiedRectCount * 4;
+    rects[r] = x1;
+    rects[r+1] = y1;
+    rects[r+2] = x2;
+    rects[r+3] = y2;
+    modifiedRectCount++;
+
+    if (modifiedRectCount == MAX_MODIFIED_RECTS) {
+      int bestA = 0, bestB = 1;
+      long bestCost = Long.MAX_VALUE;
+      for (int a = 0; a < modifiedRectCount; a++) {
+        for (int b = a + 1; b < modifiedRectCount; b++) {
+          long cost = mergeCost(rects, a * 4, b * 4);
+          if (cost < bestCost) {
+            bestCost = cost;
+            bestA = a;
+            bestB = b;
+          }
+        }
+      }
+      int a = bestA * 4;
+      int b = bestB * 4;
+      x1 = Math.min(rects[a], rects[b]);
+      y1 = Math.min(rects[a+1], rects[b+1]);
+      x2 = Math.max(rects[a+2], rects[b+2]);
+      y2 = Math.max(rects[a+3], rects[b+3]);
+      removeModifiedRect(bestB);
+      removeModifiedRect(bestA);
+      // the combined region may now overlap others
+      addModifiedRect(x1, y1, x2, y2);
+    }
+  }
+
+
+  private void removeModifiedRect(int index) {
+    modifiedRectCount--;
+    System.arraycopy(modifiedRects, modifiedRectCount * 4,
+                     modifiedRects, index * 4, 4);
+  }
+
+
+  /** Area added by covering regions a and b with a single one. */
+  static private long mergeCost(int[] rects, int a, int b) {
+    long w = Math.max(rects[a+2], rects[b+2]) - Math.min(rects[a], rects[b]);
+    long h = Math.max(rects[a+3], rects[b+3]) - Math.min(rects[a+1], rects[b+1]);
+    return w * h -
+      (long) (rects[a+2] - rects[a]) * (rects[a+3] - rects[a+1]) -
+      (long) (rects[b+2] - rects[b]) * (rects[b+3] - rects[b+1]);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // DIRECT PIXELS
+
+
+  static final boolean BIG_ENDIAN =
+    ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+
+  /**
+   * Returns a copy of the pixels that lives outside the Java heap, in the
+   * byte order that OpenGL uses for textures: red, green, blue, then alpha
+   * (the "RGBA" format of most video decoders). When an image has one,
+   * the P2D and P3D renderers upload it to the graphics card as-is,
+   * instead of converting the pixels[] array into a new buffer each time
+   * the image changes. Write new frames into the buffer and call
+   * <b>updatePixels()</b> to have them drawn.
+   * <p>
+   * The buffer is created (from the contents of pixels[], if loaded) the
+   * first time this is called. After that, pixels[] and the buffer are
+   * kept apart: use <b>pixelsFromDirect()</b> before reading pixels[]
+   * (or drawing with the default renderer), and <b>pixelsToDirect()</b>
+   * after changing pixels[].
+   */
+  public IntBuffer directPixels() {
+    int count = pixelWidth * pixelHeight;
+    if (directBuffer == null || directBuffer.capacity() != count) {
+      directBuffer = ByteBuffer.allocateDirect(count * 4)
+        .order(ByteOrder.nativeOrder()).asIntBuffer();
+      if (pixels != null && pixels.length == count) {
+        pixelsToDirect();
+      }
+    }
+    return directBuffer;
+  }
+
+
+  /**
+   * True if this image has a buffer from <b>directPixels()</b>
+   * that matches its current size.
+   */
+  public boolean hasDirectPixels() {
+    return directBuffer != null &&
+      directBuffer.capacity() == pixelWidth * pixelHeight;
+  }
+
+
+  /**
+   * Stop using the buffer from <b>directPixels()</b>, and go back to
+   * pixels[] (which is not updated, see <b>pixelsFromDirect()</b>).
+   */
+  public void noDirectPixels() {
+    directBuffer = null;
+    setModified();
+  }
+
+
+  /**
+   * Copy the buffer from <b>directPixels()</b> into pixels[], converting
+   * back to the usual ARGB colors.
+   */
+  public void pixelsFromDirect() {
+    if (!hasDirectPixels()) return;
+    loadPixels();
+    final IntBuffer buffer = directBuffer;
+    final int[] pixels = this.pixels;
+    final int format = this.format;
+    final int w = pixelWidth;
+    rows(pixelHeight, w, (start, stop) -> {
+      buffer.get(start * w, pixels, start * w, (stop - start) * w);
+      for (int i = start * w; i < stop * w; i++) {
+        pixels[i] = fromDirect(pixels[i], format);
+      }
+    });
+  }
+
+
+  /**
+   * Copy pixels[] into the buffer from <b>directPixels()</b>,
+   * and mark the image as modified.
+   */
+  public void pixelsToDirect() {
+    if (!hasDirectPixels() || pixels == null) return;
+    final IntBuffer buffer = directBuffer;
+    final int[] pixels = this.pixels;
+    final int format = this.format;
+    final int w = pixelWidth;
+    rows(pixelHeight, w, (start, stop) -> {
+      int[] row = new int[w];
+      for (int y = start; y < stop; y++) {
+        int offset = y * w;
+        for (int x = 0; x < w; x++) {
+          row[x] = toDirect(pixels[offset + x], format);
+        }
+        buffer.put(offset, row, 0, w);
+      }
+    });
+    setModified();
+  }
+
+
+  /** ARGB color to an int that holds R, G, B, A in memory order. */
+  static int toDirect(int c, int format) {
+    if (BIG_ENDIAN) {
+      return switch (format) {
+        case ALPHA -> 0xffffff00 | c;
+        case RGB -> (c << 8) | 0xff;
+        default -> (c << 8) | (c >>> 24);
+      };
+    }
+    return switch (format) {
+      case ALPHA -> (c << 24) | 0xffffff;
+      case RGB -> 0xff000000 | (c & 0xff00) | (c & 0xff) << 16 | (c >> 16) & 0xff;
+      default -> (c & 0xff00ff00) | (c & 0xff) << 16 | (c >> 16) & 0xff;
+    };
+  }
+
+
+  /** The reverse of toDirect(). */
+  static int fromDirect(int c, int format) {
+    if (BIG_ENDIAN) {
+      return switch (format) {
+        case ALPHA -> c & 0xff;
+        case RGB -> 0xff000000 | (c >>> 8);
+        default -> (c >>> 8) | (c << 24);
+      };
+    }
+    return switch (format) {
+      case ALPHA -> c >>> 24;
+      case RGB -> 0xff000000 | (c & 0xff00) | (c & 0xff) << 16 | (c >> 16) & 0xff;
+      default -> (c & 0xff00ff00) | (c & 0xff) << 16 | (c >> 16) & 0xff;
+    };
+  }
+
+
   //////////////////////////////////////////////////////////////
 
   // COPYING IMAGE DATA
@@ -500,8 +778,46 @@ public class PImage implements PConstants, Cloneable {
    * @see PImage#get(int, int, int, int)
    */
   public void resize(int w, int h) {  // ignore
-    //throw new RuntimeException("resize() not implemented for this PImage type");
-    ShimAWT.resizeImage(this, w, h);
+    resize(w, h, BILINEAR);
+  }
+
+
+  /**
+   * Resize using a specific filter. BILINEAR (the default) is smooth and
+   * fast. AREA averages all the source pixels that land on each new pixel,
+   * which is best for making thumbnails. LANCZOS is the sharpest, but takes
+   * longer, and can add slight halos around hard edges.
+   *
+   * @param filter either BILINEAR, AREA, or LANCZOS
+   */
+  public void resize(int w, int h, int filter) {  // ignore
+    if (w <= 0 && h <= 0) {
+      throw new IllegalArgumentException("width or height must be > 0 for resize");
+    }
+    if (filter != BILINEAR && filter != AREA && filter != LANCZOS) {
+      throw new IllegalArgumentException("Use BILINEAR, AREA, or LANCZOS with resize()");
+    }
+
+    if (w == 0) {  // Use height to determine relative size
+      float diff = (float) h / (float) height;
+      w = (int) (width * diff);
+    } else if (h == 0) {  // Use the width to determine relative size
+      float diff = (float) w / (float) width;
+      h = (int) (height * diff);
+    }
+
+    loadPixels();
+    int targetWidth = w * pixelDensity;
+    int targetHeight = h * pixelDensity;
+    pixels = PImageResampler.resample(this, targetWidth, targetHeight, filter);
+    pixelWidth = targetWidth;
+    pixelHeight = targetHeight;
+
+    width = pixelWidth / pixelDensity;
+    height = pixelHeight / pixelDensity;
+
+    // Mark the pixels array as altered
+    updatePixels();
   }
 
 
@@ -852,6 +1168,7 @@ public class PImage implements PConstants, Cloneable {
 
   public void filter(int kind) {
     loadPixels();
+    final int[] pixels = this.pixels;
 
     switch (kind) {
       case BLUR:
@@ -864,33 +1181,38 @@ public class PImage implements PConstants, Cloneable {
       case GRAY:
         if (format == ALPHA) {
           // for an alpha image, convert it to an opaque grayscale
-          for (int i = 0; i < pixels.length; i++) {
-            int col = 255 - pixels[i];
-            pixels[i] = 0xff000000 | (col << 16) | (col << 8) | col;
-          }
+          rows(pixels.length, 1, (start, stop) -> {
+            for (int i = start; i < stop; i++) {
+              int col = 255 - pixels[i];
+              pixels[i] = 0xff000000 | (col << 16) | (col << 8) | col;
+            }
+          });
           format = RGB;
 
         } else {
           // Converts RGB image data into grayscale using
           // weighted RGB components, and keeps alpha channel intact.
           // [toxi 040115]
-          for (int i = 0; i < pixels.length; i++) {
-            int col = pixels[i];
-            // luminance = 0.3*red + 0.59*green + 0.11*blue
-            // 0.30 * 256 =  77
-            // 0.59 * 256 = 151
-            // 0.11 * 256 =  28
-            int lum = (77*(col>>16&0xff) + 151*(col>>8&0xff) + 28*(col&0xff))>>8;
-            pixels[i] = (col & ALPHA_MASK) | lum<<16 | lum<<8 | lum;
-          }
+          rows(pixels.length, 1, (start, stop) -> {
+            for (int i = start; i < stop; i++) {
+              int col = pixels[i];
+              // luminance = 0.3*red + 0.59*green + 0.11*blue
+              // 0.30 * 256 =  77
+              // 0.59 * 256 = 151
+              // 0.11 * 256 =  28
+              int lum = (77*(col>>16&0xff) + 151*(col>>8&0xff) + 28*(col&0xff))>>8;
+              pixels[i] = (col & ALPHA_MASK) | lum<<16 | lum<<8 | lum;
+            }
+          });
         }
         break;
 
       case INVERT:
-        for (int i = 0; i < pixels.length; i++) {
-          //pixels[i] = 0xff000000 |
-          pixels[i] ^= 0xffffff;
-        }
+        rows(pixels.length, 1, (start, stop) -> {
+          for (int i = start; i < stop; i++) {
+            pixels[i] ^= 0xffffff;
+          }
+        });
         break;
 
       case POSTERIZE:
@@ -898,9 +1220,11 @@ public class PImage implements PConstants, Cloneable {
         "instead of filter(POSTERIZE)");
 
       case OPAQUE:
-        for (int i = 0; i < pixels.length; i++) {
-          pixels[i] |= 0xff000000;
-        }
+        rows(pixels.length, 1, (start, stop) -> {
+          for (int i = start; i < stop; i++) {
+            pixels[i] |= 0xff000000;
+          }
+        });
         format = RGB;
         break;
 
@@ -948,7 +1272,9 @@ public class PImage implements PConstants, Cloneable {
    * BLUR<br />
    * Executes a Gaussian blur with the level parameter specifying the extent of
    * the blurring. If no parameter is used, the blur is equivalent to Gaussian
-   * blur of radius 1. Larger values increase the blur.<br />
+   * blur of radius 1. Larger values increase the blur. From a level of about
+   * 7, a faster approximation is used, which takes the same time no matter
+   * how large the level.<br />
    * <br />
    * ERODE<br />
    * Reduces the light areas. No parameter is used.<br />
@@ -982,10 +1308,13 @@ public class PImage implements PConstants, Cloneable {
    */
   public void filter(int kind, float param) {
     loadPixels();
+    final int[] pixels = this.pixels;
 
     switch (kind) {
       case BLUR:
-        if (format == ALPHA)
+        if (param * 3.5f >= BOX_BLUR_RADIUS)
+          boxBlur(param);
+        else if (format == ALPHA)
           blurAlpha(param);
         else if (format == ARGB)
           blurARGB(param);
@@ -1012,29 +1341,33 @@ public class PImage implements PConstants, Cloneable {
                                      "filter(POSTERIZE, levels)");
         }
         int levels1 = levels - 1;
-        for (int i = 0; i < pixels.length; i++) {
-          int rlevel = (pixels[i] >> 16) & 0xff;
-          int glevel = (pixels[i] >> 8) & 0xff;
-          int blevel = pixels[i] & 0xff;
-          rlevel = (((rlevel * levels) >> 8) * 255) / levels1;
-          glevel = (((glevel * levels) >> 8) * 255) / levels1;
-          blevel = (((blevel * levels) >> 8) * 255) / levels1;
-          pixels[i] = ((0xff000000 & pixels[i]) |
-                       (rlevel << 16) |
-                       (glevel << 8) |
-                       blevel);
-        }
+        rows(pixels.length, 1, (start, stop) -> {
+          for (int i = start; i < stop; i++) {
+            int rlevel = (pixels[i] >> 16) & 0xff;
+            int glevel = (pixels[i] >> 8) & 0xff;
+            int blevel = pixels[i] & 0xff;
+            rlevel = (((rlevel * levels) >> 8) * 255) / levels1;
+            glevel = (((glevel * levels) >> 8) * 255) / levels1;
+            blevel = (((blevel * levels) >> 8) * 255) / levels1;
+            pixels[i] = ((0xff000000 & pixels[i]) |
+                         (rlevel << 16) |
+                         (glevel << 8) |
+                         blevel);
+          }
+        });
         break;
 
       case THRESHOLD:  // greater than or equal to the threshold
         int thresh = (int) (param * 255);
-        for (int i = 0; i < pixels.length; i++) {
-          int max = Math.max((pixels[i] & RED_MASK) >> 16,
-                             Math.max((pixels[i] & GREEN_MASK) >> 8,
-                                      (pixels[i] & BLUE_MASK)));
-          pixels[i] = (pixels[i] & ALPHA_MASK) |
-            ((max < thresh) ? 0x000000 : 0xffffff);
-        }
+        rows(pixels.length, 1, (start, stop) -> {
+          for (int i = start; i < stop; i++) {
+            int max = Math.max((pixels[i] & RED_MASK) >> 16,
+                               Math.max((pixels[i] & GREEN_MASK) >> 8,
+                                        (pixels[i] & BLUE_MASK)));
+            pixels[i] = (pixels[i] & ALPHA_MASK) |
+              ((max < thresh) ? 0x000000 : 0xffffff);
+          }
+        });
         break;
 
         // [toxi20050728] added new filters
@@ -1085,241 +1418,225 @@ public class PImage implements PConstants, Cloneable {
 
 
   protected void blurAlpha(float r) {
-    int sum, cb;
-    int read, ri, ym, ymi, bk0;
-    int[] b2 = new int[pixels.length];
-    int yi = 0;
+    blur(r);
+  }
 
-    buildBlurKernel(r);
 
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        //cb = cg = cr = sum = 0;
-        cb = sum = 0;
-        read = x - blurRadius;
-        if (read<0) {
-          bk0=-read;
-          read=0;
-        } else {
-          if (read >= pixelWidth)
-            break;
-          bk0=0;
-        }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (read >= pixelWidth)
-            break;
-          int c = pixels[read + yi];
-          int[] bm = blurMult[i];
-          cb += bm[c & BLUE_MASK];
-          sum += blurKernel[i];
-          read++;
-        }
-        ri = yi + x;
-        b2[ri] = cb / sum;
-      }
-      yi += pixelWidth;
-    }
+  protected void blurRGB(float r) {
+    blur(r);
+  }
 
-    yi = 0;
-    ym = -blurRadius;
-    ymi = ym * pixelWidth;
 
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        cb = sum = 0;
-        if (ym < 0) {
-          bk0 = ri = -ym;
-          read = x;
-        } else {
-          if (ym >= pixelHeight)
-            break;
-          bk0 = 0;
-          ri = ym;
-          read = x + ymi;
-        }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (ri >= pixelHeight)
-            break;
-          int[] bm = blurMult[i];
-          cb += bm[b2[read]];
-          sum += blurKernel[i];
-          ri++;
-          read += pixelWidth;
-        }
-        pixels[x+yi] = (cb/sum);
-      }
-      yi += pixelWidth;
-      ymi += pixelWidth;
-      ym++;
-    }
+  protected void blurARGB(float r) {
+    blur(r);
   }
 
 
-  protected void blurRGB(float r) {
-    int sum, cr, cg, cb;
-    int read, ri, ym, ymi, bk0;
-    int[] r2 = new int[pixels.length];
-    int[] g2 = new int[pixels.length];
-    int[] b2 = new int[pixels.length];
-    int yi = 0;
+  /**
+   * The blur with the kernel from buildBlurKernel(), split into stripes of
+   * rows that run in parallel. The horizontal pass stores all four channels
+   * packed into one int, since each is 0..255 after dividing by the sum.
+   */
+  private void blur(float r) {
+    final int[] pixels = this.pixels;
+    final int[] buffer = filterBuffer();
+    final int w = pixelWidth;
+    final int h = pixelHeight;
+    final int format = this.format;
 
     buildBlurKernel(r);
-
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        cb = cg = cr = sum = 0;
-        read = x - blurRadius;
-        if (read < 0) {
-          bk0 = -read;
-          read = 0;
-        } else {
-          if (read >= pixelWidth) {
-            break;
+    final int radius = blurRadius;
+    final int kernelSize = blurKernelSize;
+    final int[] kernel = blurKernel;
+    final int[][] mult = blurMult;
+
+    rows(h, w, (start, stop) -> {
+      for (int y = start; y < stop; y++) {
+        int yi = y * w;
+        for (int x = 0; x < w; x++) {
+          int ca = 0, cr = 0, cg = 0, cb = 0, sum = 0;
+          int read = x - radius;
+          int bk0 = 0;
+          if (read < 0) {
+            bk0 = -read;
+            read = 0;
           }
-          bk0 = 0;
-        }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (read >= pixelWidth) {
-            break;
+          for (int i = bk0; i < kernelSize; i++) {
+            if (read >= w) {
+              break;
+            }
+            int c = pixels[read + yi];
+            int[] bm = mult[i];
+            ca += bm[(c & ALPHA_MASK) >>> 24];
+            cr += bm[(c & RED_MASK) >> 16];
+            cg += bm[(c & GREEN_MASK) >> 8];
+            cb += bm[c & BLUE_MASK];
+            sum += kernel[i];
+            read++;
           }
-          int c = pixels[read + yi];
-          int[] bm = blurMult[i];
-          cr += bm[(c & RED_MASK) >> 16];
-          cg += bm[(c & GREEN_MASK) >> 8];
-          cb += bm[c & BLUE_MASK];
-          sum += blurKernel[i];
-          read++;
+          buffer[yi + x] = (ca/sum)<<24 | (cr/sum)<<16 | (cg/sum)<<8 | (cb/sum);
         }
-        ri = yi + x;
-        r2[ri] = cr / sum;
-        g2[ri] = cg / sum;
-        b2[ri] = cb / sum;
       }
-      yi += pixelWidth;
-    }
-
-    yi = 0;
-    ym = -blurRadius;
-    ymi = ym * pixelWidth;
-
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        cb = cg = cr = sum = 0;
-        if (ym < 0) {
-          bk0 = ri = -ym;
-          read = x;
-        } else {
-          if (ym >= pixelHeight) {
-            break;
+    });
+
+    rows(h, w, (start, stop) -> {
+      for (int y = start; y < stop; y++) {
+        int yi = y * w;
+        int ym = y - radius;
+        for (int x = 0; x < w; x++) {
+          int ca = 0, cr = 0, cg = 0, cb = 0, sum = 0;
+          int bk0, ri, read;
+          if (ym < 0) {
+            bk0 = ri = -ym;
+            read = x;
+          } else {
+            bk0 = 0;
+            ri = ym;
+            read = x + ym * w;
           }
-          bk0 = 0;
-          ri = ym;
-          read = x + ymi;
-        }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (ri >= pixelHeight) {
-            break;
+          for (int i = bk0; i < kernelSize; i++) {
+            if (ri >= h) {
+              break;
+            }
+            int c = buffer[read];
+            int[] bm = mult[i];
+            ca += bm[c >>> 24];
+            cr += bm[(c >> 16) & 0xff];
+            cg += bm[(c >> 8) & 0xff];
+            cb += bm[c & 0xff];
+            sum += kernel[i];
+            ri++;
+            read += w;
+          }
+          if (format == ALPHA) {
+            pixels[x+yi] = cb/sum;
+          } else if (format == ARGB) {
+            pixels[x+yi] = (ca/sum)<<24 | (cr/sum)<<16 | (cg/sum)<<8 | (cb/sum);
+          } else {
+            pixels[x+yi] = 0xff000000 | (cr/sum)<<16 | (cg/sum)<<8 | (cb/sum);
           }
-          int[] bm = blurMult[i];
-          cr += bm[r2[read]];
-          cg += bm[g2[read]];
-          cb += bm[b2[read]];
-          sum += blurKernel[i];
-          ri++;
-          read += pixelWidth;
         }
-        pixels[x+yi] = 0xff000000 | (cr/sum)<<16 | (cg/sum)<<8 | (cb/sum);
       }
-      yi += pixelWidth;
-      ymi += pixelWidth;
-      ym++;
-    }
+    });
+    releaseFilterBuffer(buffer);
   }
 
 
-  protected void blurARGB(float r) {
-    int sum, cr, cg, cb, ca;
-    int /*pixel,*/ read, ri, /*roff,*/ ym, ymi, /*riw,*/ bk0;
-    int wh = pixels.length;
-    int[] r2 = new int[wh];
-    int[] g2 = new int[wh];
-    int[] b2 = new int[wh];
-    int[] a2 = new int[wh];
-    int yi = 0;
-
-    buildBlurKernel(r);
+  /**
+   * Blur with three passes of a box filter in each direction, which comes
+   * very close to a Gaussian, and uses running sums so that the cost per
+   * pixel is the same for any radius. Used for large radii, where the
+   * regular kernel becomes slow.
+   */
+  protected void boxBlur(float r) {
+    // Match the spread of the buildBlurKernel() kernel, whose weights fall
+    // off as (radius - d)^2, giving a variance of radius^2 / 10.
+    float radius = Math.max(1, r * 3.5f);
+    int[] boxes = boxSizes(radius * radius / 10, 3);
+
+    final int[] pixels = this.pixels;
+    final int[] buffer = filterBuffer();
+    final int w = pixelWidth;
+    final int h = pixelHeight;
+
+    // pixels -> buffer -> pixels -> buffer for the rows,
+    // then buffer -> pixels -> buffer -> pixels for the columns
+    rows(h, w, (start, stop) -> {
+      for (int y = start; y < stop; y++) {
+        int offset = y * w;
+        boxPass(pixels, buffer, offset, 1, w, boxes[0]);
+        boxPass(buffer, pixels, offset, 1, w, boxes[1]);
+        boxPass(pixels, buffer, offset, 1, w, boxes[2]);
+      }
+    });
+    rows(w, h, (start, stop) -> {
+      for (int x = start; x < stop; x++) {
+        boxPass(buffer, pixels, x, w, h, boxes[0]);
+        boxPass(pixels, buffer, x, w, h, boxes[1]);
+        boxPass(buffer, pixels, x, w, h, boxes[2]);
+      }
+    });
+    releaseFilterBuffer(buffer);
 
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        cb = cg = cr = ca = sum = 0;
-        read = x - blurRadius;
-        if (read < 0) {
-          bk0 = -read;
-          read = 0;
-        } else {
-          if (read >= pixelWidth) {
-            break;
-          }
-          bk0=0;
+    if (format == ALPHA) {
+      rows(pixels.length, 1, (start, stop) -> {
+        for (int i = start; i < stop; i++) {
+          pixels[i] &= BLUE_MASK;
         }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (read >= pixelWidth) {
-            break;
-          }
-          int c = pixels[read + yi];
-          int[] bm=blurMult[i];
-          ca += bm[(c & ALPHA_MASK) >>> 24];
-          cr += bm[(c & RED_MASK) >> 16];
-          cg += bm[(c & GREEN_MASK) >> 8];
-          cb += bm[c & BLUE_MASK];
-          sum += blurKernel[i];
-          read++;
+      });
+    } else if (format == RGB) {
+      rows(pixels.length, 1, (start, stop) -> {
+        for (int i = start; i < stop; i++) {
+          pixels[i] |= ALPHA_MASK;
         }
-        ri = yi + x;
-        a2[ri] = ca / sum;
-        r2[ri] = cr / sum;
-        g2[ri] = cg / sum;
-        b2[ri] = cb / sum;
-      }
-      yi += pixelWidth;
+      });
     }
+  }
 
-    yi = 0;
-    ym = -blurRadius;
-    ymi = ym * pixelWidth;
 
-    for (int y = 0; y < pixelHeight; y++) {
-      for (int x = 0; x < pixelWidth; x++) {
-        cb = cg = cr = ca = sum = 0;
-        if (ym < 0) {
-          bk0 = ri = -ym;
-          read = x;
-        } else {
-          if (ym >= pixelHeight) {
-            break;
-          }
-          bk0 = 0;
-          ri = ym;
-          read = x + ymi;
-        }
-        for (int i = bk0; i < blurKernelSize; i++) {
-          if (ri >= pixelHeight) {
-            break;
-          }
-          int[] bm=blurMult[i];
-          ca += bm[a2[read]];
-          cr += bm[r2[read]];
-          cg += bm[g2[read]];
-          cb += bm[b2[read]];
-          sum += blurKernel[i];
-          ri++;
-          read += pixelWidth;
-        }
-        pixels[x+yi] = (ca/sum)<<24 | (cr/sum)<<16 | (cg/sum)<<8 | (cb/sum);
+  /**
+   * Radius of each of the box filters that together approximate a
+   * Gaussian with this variance. Based on "Fastest Gaussian Blur"
+   * by Ivan Kutskir, after Wells (1986).
+   */
+  static private int[] boxSizes(float variance, int count) {
+    // ideal width of all boxes, rounded down to the nearest odd number
+    int wl = (int) Math.sqrt(12 * variance / count + 1);
+    if (wl % 2 == 0) wl--;
+    int wu = wl + 2;
+    // how many of the boxes use the smaller width
+    int m = Math.round((12 * variance - count*wl*wl - 4*count*wl - 3*count) /
+                       (-4f*wl - 4));
+    int[] radii = new int[count];
+    for (int i = 0; i < count; i++) {
+      radii[i] = ((i < m) ? wl : wu) / 2;
+    }
+    return radii;
+  }
+
+
+  /**
+   * One box filter over a row (stride 1) or column (stride = width),
+   * reading from src and writing to dst. Pixels past the edge are left out,
+   * rather than clamped, the same as blur().
+   */
+  static private void boxPass(int[] src, int[] dst, int offset, int stride,
+                              int count, int radius) {
+    int sa = 0, sr = 0, sg = 0, sb = 0;
+    int last = Math.min(radius, count - 1);
+    for (int i = 0; i <= last; i++) {
+      int c = src[offset + i*stride];
+      sa += c >>> 24;
+      sr += (c >> 16) & 0xff;
+      sg += (c >> 8) & 0xff;
+      sb += c & 0xff;
+    }
+    float full = 1f / (2*radius + 1);
+    int index = offset;
+    for (int i = 0; i < count; i++) {
+      int lo = i - radius;
+      int hi = i + radius;
+      float inv = (lo >= 0 && hi < count) ? full :
+        1f / (Math.min(hi, count - 1) - Math.max(lo, 0) + 1);
+      dst[index] = ((int) (sa*inv + 0.5f)) << 24 |
+                   ((int) (sr*inv + 0.5f)) << 16 |
+                   ((int) (sg*inv + 0.5f)) << 8 |
+                   ((int) (sb*inv + 0.5f));
+      if (hi + 1 < count) {
+        int c = src[offset + (hi + 1)*stride];
+        sa += c >>> 24;
+        sr += (c >> 16) & 0xff;
+        sg += (c >> 8) & 0xff;
+        sb += c & 0xff;
       }
-      yi += pixelWidth;
-      ymi += pixelWidth;
-      ym++;
+      if (lo >= 0) {
+        int c = src[offset + lo*stride];
+        sa -= c >>> 24;
+        sr -= (c >> 16) & 0xff;
+        sg -= (c >> 8) & 0xff;
+        sb -= c & 0xff;
+      }
+      index += stride;
     }
   }
 
@@ -1329,140 +1646,141 @@ public class PImage implements PConstants, Cloneable {
    * as decision factor. [toxi 050728]
    */
   protected void dilate() {  // formerly dilate(false)
-    int index = 0;
-    int maxIndex = pixels.length;
-    int[] outgoing = new int[maxIndex];
-
     // erosion (grow light areas)
-    while (index < maxIndex) {
-      int curRowIndex = index;
-      int maxRowIndex = index + pixelWidth;
-      while (index < maxRowIndex) {
-        int orig = pixels[index];
-        int result = orig;
-        int idxLeft = index - 1;
-        int idxRight = index + 1;
-        int idxUp = index - pixelWidth;
-        int idxDown = index + pixelWidth;
-        if (idxLeft < curRowIndex) {
-          idxLeft = index;
-        }
-        if (idxRight >= maxRowIndex) {
-          idxRight = index;
-        }
-        if (idxUp < 0) {
-          idxUp = index;
-        }
-        if (idxDown >= maxIndex) {
-          idxDown = index;
-        }
+    morph(true);
+  }
 
-        int colUp = pixels[idxUp];
-        int colLeft = pixels[idxLeft];
-        int colDown = pixels[idxDown];
-        int colRight = pixels[idxRight];
-
-        // compute luminance
-        int currLum =
-          77*(orig>>16&0xff) + 151*(orig>>8&0xff) + 28*(orig&0xff);
-        int lumLeft =
-          77*(colLeft>>16&0xff) + 151*(colLeft>>8&0xff) + 28*(colLeft&0xff);
-        int lumRight =
-          77*(colRight>>16&0xff) + 151*(colRight>>8&0xff) + 28*(colRight&0xff);
-        int lumUp =
-          77*(colUp>>16&0xff) + 151*(colUp>>8&0xff) + 28*(colUp&0xff);
-        int lumDown =
-          77*(colDown>>16&0xff) + 151*(colDown>>8&0xff) + 28*(colDown&0xff);
-
-        if (lumLeft > currLum) {
-          result = colLeft;
-          currLum = lumLeft;
-        }
-        if (lumRight > currLum) {
-          result = colRight;
-          currLum = lumRight;
-        }
-        if (lumUp > currLum) {
-          result = colUp;
-          currLum = lumUp;
-        }
-        if (lumDown > currLum) {
-          result = colDown;
-//          currLum = lumDown;  // removed, unused assignment
+
+  protected void erode() {  // formerly dilate(true)
+    // dilate (grow dark areas)
+    morph(false);
+  }
+
+
+  private void morph(boolean lighter) {
+    final int[] pixels = this.pixels;
+    final int[] outgoing = filterBuffer();
+    final int w = pixelWidth;
+    final int maxIndex = pixels.length;
+
+    rows(maxIndex / w, w, (start, stop) -> {
+      int index = start * w;
+      int maxStripeIndex = stop * w;
+      while (index < maxStripeIndex) {
+        int curRowIndex = index;
+        int maxRowIndex = index + w;
+        while (index < maxRowIndex) {
+          int orig = pixels[index];
+          int result = orig;
+          int idxLeft = index - 1;
+          int idxRight = index + 1;
+          int idxUp = index - w;
+          int idxDown = index + w;
+          if (idxLeft < curRowIndex) {
+            idxLeft = index;
+          }
+          if (idxRight >= maxRowIndex) {
+            idxRight = index;
+          }
+          if (idxUp < 0) {
+            idxUp = index;
+          }
+          if (idxDown >= maxIndex) {
+            idxDown = index;
+          }
+
+          int colUp = pixels[idxUp];
+          int colLeft = pixels[idxLeft];
+          int colDown = pixels[idxDown];
+          int colRight = pixels[idxRight];
+
+          // compute luminance
+          int currLum =
+            77*(orig>>16&0xff) + 151*(orig>>8&0xff) + 28*(orig&0xff);
+          int lumLeft =
+            77*(colLeft>>16&0xff) + 151*(colLeft>>8&0xff) + 28*(colLeft&0xff);
+          int lumRight =
+            77*(colRight>>16&0xff) + 151*(colRight>>8&0xff) + 28*(colRight&0xff);
+          int lumUp =
+            77*(colUp>>16&0xff) + 151*(colUp>>8&0xff) + 28*(colUp&0xff);
+          int lumDown =
+            77*(colDown>>16&0xff) + 151*(colDown>>8&0xff) + 28*(colDown&0xff);
+
+          if (lighter ? lumLeft > currLum : lumLeft < currLum) {
+            result = colLeft;
+            currLum = lumLeft;
+          }
+          if (lighter ? lumRight > currLum : lumRight < currLum) {
+            result = colRight;
+            currLum = lumRight;
+          }
+          if (lighter ? lumUp > currLum : lumUp < currLum) {
+            result = colUp;
+            currLum = lumUp;
+          }
+          if (lighter ? lumDown > currLum : lumDown < currLum) {
+            result = colDown;
+          }
+          outgoing[index++] = result;
         }
-        outgoing[index++] = result;
       }
-    }
+    });
     System.arraycopy(outgoing, 0, pixels, 0, maxIndex);
+    releaseFilterBuffer(outgoing);
   }
 
 
-  protected void erode() {  // formerly dilate(true)
-    int index = 0;
-    int maxIndex = pixels.length;
-    int[] outgoing = new int[maxIndex];
+  /**
+   * Keep the scratch memory used by filter(BLUR), filter(ERODE), and
+   * filter(DILATE) between calls, instead of allocating it each time.
+   * Use this for an image that's filtered on every frame, so that filtering
+   * doesn't create garbage. The memory is the size of the pixels array.
+   */
+  public void filterBuffer(boolean keep) {
+    keepFilterBuffer = keep;
+    if (!keep) {
+      filterBuffer = null;
+    }
+  }
 
-    // dilate (grow dark areas)
-    while (index < maxIndex) {
-      int curRowIndex = index;
-      int maxRowIndex = index + pixelWidth;
-      while (index < maxRowIndex) {
-        int orig = pixels[index];
-        int result = orig;
-        int idxLeft = index - 1;
-        int idxRight = index + 1;
-        int idxUp = index - pixelWidth;
-        int idxDown = index + pixelWidth;
-        if (idxLeft < curRowIndex) {
-          idxLeft = index;
-        }
-        if (idxRight >= maxRowIndex) {
-          idxRight = index;
-        }
-        if (idxUp < 0) {
-          idxUp = index;
-        }
-        if (idxDown >= maxIndex) {
-          idxDown = index;
-        }
 
-        int colUp = pixels[idxUp];
-        int colLeft = pixels[idxLeft];
-        int colDown = pixels[idxDown];
-        int colRight = pixels[idxRight];
-
-        // compute luminance
-        int currLum =
-          77*(orig>>16&0xff) + 151*(orig>>8&0xff) + 28*(orig&0xff);
-        int lumLeft =
-          77*(colLeft>>16&0xff) + 151*(colLeft>>8&0xff) + 28*(colLeft&0xff);
-        int lumRight =
-          77*(colRight>>16&0xff) + 151*(colRight>>8&0xff) + 28*(colRight&0xff);
-        int lumUp =
-          77*(colUp>>16&0xff) + 151*(colUp>>8&0xff) + 28*(colUp&0xff);
-        int lumDown =
-          77*(colDown>>16&0xff) + 151*(colDown>>8&0xff) + 28*(colDown&0xff);
-
-        if (lumLeft < currLum) {
-          result = colLeft;
-          currLum = lumLeft;
-        }
-        if (lumRight < currLum) {
-          result = colRight;
-          currLum = lumRight;
-        }
-        if (lumUp < currLum) {
-          result = colUp;
-          currLum = lumUp;
-        }
-        if (lumDown < currLum) {
-          result = colDown;
-//          currLum = lumDown;  // removed, unused assignment
-        }
-        outgoing[index++] = result;
-      }
+  private int[] filterBuffer() {
+    int[] buffer = filterBuffer;
+    if (buffer == null || buffer.length < pixels.length) {
+      buffer = new int[pixels.length];
+    }
+    return buffer;
+  }
+
+
+  private void releaseFilterBuffer(int[] buffer) {
+    if (keepFilterBuffer) {
+      filterBuffer = buffer;
+    }
+  }
+
+
+  interface RowTask {
+    void run(int start, int stop);
+  }
+
+
+  /**
+   * Run the task on rows (or columns, or pixels) from 0 to count,
+   * split into stripes on the common fork/join pool when there's enough
+   * work to be worth it.
+   */
+  static void rows(int count, int length, RowTask task) {
+    int threads = ForkJoinPool.getCommonPoolParallelism();
+    if ((long) count * length < PARALLEL_PIXELS || count < 2 || threads < 2) {
+      task.run(0, count);
+    } else {
+      // a few stripes per thread, so that one slow stripe doesn't hold up the rest
+      int stripes = Math.min(count, threads * 4);
+      IntStream.range(0, stripes).parallel().forEach(stripe ->
+        task.run((int) ((long) stripe * count / stripes),
+                 (int) ((long) (stripe + 1) * count / stripes)));
     }
-    System.arraycopy(outgoing, 0, pixels, 0, maxIndex);
   }
 
 
@@ -1692,6 +2010,15 @@ public class PImage implements PConstants, Cloneable {
   public void blend(PImage src,
                     int sx, int sy, int sw, int sh,
                     int dx, int dy, int dw, int dh, int mode) {
+    if (src instanceof PTiledImage tiled) {
+      // only read the tiles that are needed, from a smaller level of the
+      // pyramid when the region is shrunk
+      src = tiled.getScaled(sx, sy, sw, sh, dw, dh);
+      sx = 0;
+      sy = 0;
+      sw = src.pixelWidth;
+      sh = src.pixelHeight;
+    }
     int sx2 = sx + sw;
     int sy2 = sy + sh;
     int dx2 = dx + dw;
@@ -1761,6 +2088,13 @@ public class PImage implements PConstants, Cloneable {
    * Internal blitter/resizer/copier from toxi.
    * Uses bilinear filtering if smooth() has been enabled
    * 'mode' determines the blending mode used in the process.
+   * <P>
+   * Each row of the destination is sampled into a scanline, then blended
+   * with blendRow(), so the choice of mode is made once per row rather than
+   * once per pixel. Rows don't depend on one another, so large regions are
+   * split into stripes that run in parallel. When the source isn't scaled,
+   * rows are blended straight from the source pixels, and REPLACE is a
+   * plain array copy.
    */
   private void blitResize(PImage img,
                           int srcX1, int srcY1, int srcX2, int srcY2,
@@ -1789,11 +2123,11 @@ public class PImage implements PConstants, Cloneable {
       return;
     }
 
-    int dx = (int) (srcW / (float) destW * PRECISIONF);
-    int dy = (int) (srcH / (float) destH * PRECISIONF);
+    final int dx = (int) (srcW / (float) destW * PRECISIONF);
+    final int dy = (int) (srcH / (float) destH * PRECISIONF);
 
-    srcXOffset = destX1 < 0 ? -destX1 * dx : srcX1 * PRECISIONF;
-    srcYOffset = destY1 < 0 ? -destY1 * dy : srcY1 * PRECISIONF;
+    final int srcXOffset = destX1 < 0 ? -destX1 * dx : srcX1 * PRECISIONF;
+    final int srcYOffset = destY1 < 0 ? -destY1 * dy : srcY1 * PRECISIONF;
 
     if (destX1 < 0) {
       destW += destX1;
@@ -1804,515 +2138,189 @@ public class PImage implements PConstants, Cloneable {
       destY1 = 0;
     }
 
-    destW = min(destW, screenW - destX1);
-    destH = min(destH, screenH - destY1);
+    final int width = min(destW, screenW - destX1);
+    final int destOffset = destY1 * screenW + destX1;
+    final int[] srcBuffer = img.pixels;
+    final int iw = img.pixelWidth;
+    final int ih = img.pixelHeight;
+
+    final int height = min(destH, screenH - destY1);
+
+    if (dx == PRECISIONF && dy == PRECISIONF &&
+        (srcXOffset >> PRECISIONB) + width <= iw &&
+        (srcYOffset >> PRECISIONB) + height <= ih) {
+      // Not scaled, so both samplers would return the source pixels as-is
+      final int srcOffset = (srcYOffset >> PRECISIONB) * iw +
+        (srcXOffset >> PRECISIONB);
+      rows(height, width, (start, stop) -> {
+        for (int y = start; y < stop; y++) {
+          blendRow(srcBuffer, srcOffset + y * iw,
+                   destPixels, destOffset + y * screenW, width, mode);
+        }
+      });
+      return;
+    }
 
-    int destOffset = destY1 * screenW + destX1;
-    srcBuffer = img.pixels;
+    rows(height, width, (start, stop) -> {
+      // REPLACE samples straight into the destination
+      int[] scanline = (mode == REPLACE) ? destPixels : new int[width];
+      for (int y = start; y < stop; y++) {
+        int offset = destOffset + y * screenW;
+        int lineOffset = (mode == REPLACE) ? offset : 0;
+        int sy = srcYOffset + y * dy;
+        if (smooth) {
+          sampleBilinear(srcBuffer, iw, ih, srcXOffset, dx, sy,
+                         scanline, lineOffset, width);
+        } else {
+          sampleNearest(srcBuffer, iw, srcXOffset, dx, sy,
+                        scanline, lineOffset, width);
+        }
+        if (mode != REPLACE) {
+          blendRow(scanline, 0, destPixels, offset, width, mode);
+        }
+      }
+    });
+  }
 
-    if (smooth) {
-      blitResizeBilinear(img, destPixels, destOffset, screenW, destW, destH, dx, dy, mode);
-    } else {
-      blitResizeNearest(img, destPixels, destOffset, screenW, destW, destH, dx, dy, mode);
+
+  // nearest neighbour scaling (++fast!)
+  static private void sampleNearest(int[] srcBuffer, int iw,
+                                    int srcXOffset, int dx, int srcYOffset,
+                                    int[] target, int offset, int count) {
+    int sX = srcXOffset;
+    int sY = (srcYOffset >> PRECISIONB) * iw;
+    for (int x = 0; x < count; x++) {
+      target[offset + x] = srcBuffer[sY + (sX >> PRECISIONB)];
+      sX += dx;
+    }
+  }
+
+
+  static private void sampleBilinear(int[] srcBuffer, int iw, int ih,
+                                     int srcXOffset, int dx, int srcYOffset,
+                                     int[] target, int offset, int count) {
+    int iw1 = iw - 1;
+    int ih1 = ih - 1;
+
+    int sX = srcXOffset;
+    int fracV = srcYOffset & PREC_MAXVAL;
+    int ifV = PREC_MAXVAL - fracV + 1;
+    int v1 = (srcYOffset >> PRECISIONB) * iw;
+    int v2 = min((srcYOffset >> PRECISIONB) + 1, ih1) * iw;
+
+    for (int x = 0; x < count; x++) {
+      int fracU = sX & PREC_MAXVAL;
+      int ifU = PREC_MAXVAL - fracU + 1;
+      int ul = (ifU * ifV) >> PRECISIONB;
+      int ll = ifU - ul;
+      int ur = ifV - ul;
+      int lr = PREC_MAXVAL + 1 - ul - ll - ur;
+      int u1 = (sX >> PRECISIONB);
+      int u2 = min(u1 + 1, iw1);
+
+      // get color values of the 4 neighbouring texels
+      int cUL = srcBuffer[v1 + u1];
+      int cUR = srcBuffer[v1 + u2];
+      int cLL = srcBuffer[v2 + u1];
+      int cLR = srcBuffer[v2 + u2];
+
+      int r = ((ul*((cUL&RED_MASK)>>16) + ll*((cLL&RED_MASK)>>16) +
+                ur*((cUR&RED_MASK)>>16) + lr*((cLR&RED_MASK)>>16))
+               << PREC_RED_SHIFT) & RED_MASK;
+
+      int g = ((ul*(cUL&GREEN_MASK) + ll*(cLL&GREEN_MASK) +
+                ur*(cUR&GREEN_MASK) + lr*(cLR&GREEN_MASK))
+               >>> PRECISIONB) & GREEN_MASK;
+
+      int b = (ul*(cUL&BLUE_MASK) + ll*(cLL&BLUE_MASK) +
+               ur*(cUR&BLUE_MASK) + lr*(cLR&BLUE_MASK))
+                 >>> PRECISIONB;
+
+      int a = ((ul*((cUL&ALPHA_MASK)>>>24) + ll*((cLL&ALPHA_MASK)>>>24) +
+                ur*((cUR&ALPHA_MASK)>>>24) + lr*((cLR&ALPHA_MASK)>>>24))
+               << PREC_ALPHA_SHIFT) & ALPHA_MASK;
+
+      target[offset + x] = a | r | g | b;
+      sX += dx;
     }
   }
 
-  private void blitResizeBilinear(PImage img,
-                                  int[] destPixels, int destOffset, int screenW,
-                                  int destW, int destH,
-                                  int dx, int dy,
-                                  int mode) {
-    // use bilinear filtering
-    iw = img.pixelWidth;
-    iw1 = img.pixelWidth - 1;
-    ih1 = img.pixelHeight - 1;
 
+  /**
+   * Blend count pixels from src into dst. There's one loop per mode,
+   * so that each one is a simple loop over two arrays that the JIT can
+   * compile (and inline the blend function) on its own.
+   */
+  static private void blendRow(int[] src, int srcOffset,
+                               int[] dst, int dstOffset,
+                               int count, int mode) {
+    int end = dstOffset + count;
+    int s = srcOffset;
     switch (mode) {
+      case REPLACE:
+        System.arraycopy(src, srcOffset, dst, dstOffset, count);
+        break;
 
       case BLEND:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            // davbol  - renamed old blend_multiply to blend_blend
-            destPixels[destOffset + x] =
-                    blend_blend(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        // davbol  - renamed old blend_multiply to blend_blend
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_blend(dst[d], src[s++]);
         break;
 
       case ADD:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_add_pin(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_add_pin(dst[d], src[s++]);
         break;
 
       case SUBTRACT:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_sub_pin(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_sub_pin(dst[d], src[s++]);
         break;
 
       case LIGHTEST:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_lightest(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_lightest(dst[d], src[s++]);
         break;
 
       case DARKEST:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_darkest(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
-        break;
-
-      case REPLACE:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] = filter_bilinear();
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_darkest(dst[d], src[s++]);
         break;
 
       case DIFFERENCE:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_difference(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_difference(dst[d], src[s++]);
         break;
 
       case EXCLUSION:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_exclusion(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_exclusion(dst[d], src[s++]);
         break;
 
       case MULTIPLY:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_multiply(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_multiply(dst[d], src[s++]);
         break;
 
       case SCREEN:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_screen(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_screen(dst[d], src[s++]);
         break;
 
       case OVERLAY:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_overlay(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_overlay(dst[d], src[s++]);
         break;
 
       case HARD_LIGHT:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_hard_light(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_hard_light(dst[d], src[s++]);
         break;
 
       case SOFT_LIGHT:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_soft_light(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_soft_light(dst[d], src[s++]);
         break;
 
       // davbol - proposed 2007-01-09
       case DODGE:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_dodge(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_dodge(dst[d], src[s++]);
         break;
 
       case BURN:
-        for (int y = 0; y < destH; y++) {
-          filter_new_scanline();
-          for (int x = 0; x < destW; x++) {
-            destPixels[destOffset + x] =
-                    blend_burn(destPixels[destOffset + x], filter_bilinear());
-            sX += dx;
-          }
-          destOffset += screenW;
-          srcYOffset += dy;
-        }
+        for (int d = dstOffset; d < end; d++) dst[d] = blend_burn(dst[d], src[s++]);
         break;
-
     }
   }
 
-  private void blitResizeNearest(PImage img,
-                                 int[] destPixels, int destOffset, int screenW,
-                                 int destW, int destH,
-                                 int dx, int dy,
-                                 int mode) {
-    // nearest neighbour scaling (++fast!)
-    int sY;
-    switch (mode) {
-
-    case BLEND:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          // davbol - renamed old blend_multiply to blend_blend
-          destPixels[destOffset + x] =
-            blend_blend(destPixels[destOffset + x],
-                        srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case ADD:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_add_pin(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case SUBTRACT:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_sub_pin(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case LIGHTEST:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_lightest(destPixels[destOffset + x],
-                           srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case DARKEST:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_darkest(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case REPLACE:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] = srcBuffer[sY + (sX >> PRECISIONB)];
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case DIFFERENCE:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_difference(destPixels[destOffset + x],
-                             srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case EXCLUSION:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_exclusion(destPixels[destOffset + x],
-                            srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case MULTIPLY:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_multiply(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case SCREEN:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_screen(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case OVERLAY:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_overlay(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case HARD_LIGHT:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_hard_light(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case SOFT_LIGHT:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_soft_light(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    // davbol - proposed 2007-01-09
-    case DODGE:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_dodge(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-
-    case BURN:
-      for (int y = 0; y < destH; y++) {
-        sX = srcXOffset;
-        sY = (srcYOffset >> PRECISIONB) * img.pixelWidth;
-        for (int x = 0; x < destW; x++) {
-          destPixels[destOffset + x] =
-            blend_burn(destPixels[destOffset + x],
-                          srcBuffer[sY + (sX >> PRECISIONB)]);
-          sX += dx;
-        }
-        destOffset += screenW;
-        srcYOffset += dy;
-      }
-      break;
-    }
-  }
-
-
-  private void filter_new_scanline() {
-    sX = srcXOffset;
-    int fracV = srcYOffset & PREC_MAXVAL;
-    ifV = PREC_MAXVAL - fracV + 1;
-    v1 = (srcYOffset >> PRECISIONB) * iw;
-    v2 = min((srcYOffset >> PRECISIONB) + 1, ih1) * iw;
-  }
-
-
-  private int filter_bilinear() {
-    int cUL, cLL, cUR, cLR;
-    int r, g, b, a;
-
-    // private fields
-    int fracU = sX & PREC_MAXVAL;
-    int ifU = PREC_MAXVAL - fracU + 1;
-    int ul = (ifU * ifV) >> PRECISIONB;
-    int ll = ifU - ul;
-    int ur = ifV - ul;
-    int lr = PREC_MAXVAL + 1 - ul - ll - ur;
-    int u1 = (sX >> PRECISIONB);
-    int u2 = min(u1 + 1, iw1);
-
-    // get color values of the 4 neighbouring texels
-    cUL = srcBuffer[v1 + u1];
-    cUR = srcBuffer[v1 + u2];
-    cLL = srcBuffer[v2 + u1];
-    cLR = srcBuffer[v2 + u2];
-
-    r = ((ul*((cUL&RED_MASK)>>16) + ll*((cLL&RED_MASK)>>16) +
-          ur*((cUR&RED_MASK)>>16) + lr*((cLR&RED_MASK)>>16))
-         << PREC_RED_SHIFT) & RED_MASK;
-
-    g = ((ul*(cUL&GREEN_MASK) + ll*(cLL&GREEN_MASK) +
-          ur*(cUR&GREEN_MASK) + lr*(cLR&GREEN_MASK))
-         >>> PRECISIONB) & GREEN_MASK;
-
-    b = (ul*(cUL&BLUE_MASK) + ll*(cLL&BLUE_MASK) +
-         ur*(cUR&BLUE_MASK) + lr*(cLR&BLUE_MASK))
-           >>> PRECISIONB;
-
-    a = ((ul*((cUL&ALPHA_MASK)>>>24) + ll*((cLL&ALPHA_MASK)>>>24) +
-          ur*((cUR&ALPHA_MASK)>>>24) + lr*((cLR&ALPHA_MASK)>>>24))
-         << PREC_ALPHA_SHIFT) & ALPHA_MASK;
-
-    return a | r | g | b;
-  }
-
 
 
   //////////////////////////////////////////////////////////////
@@ -0,0 +1,248 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Memory-bounded cache of decoded images, used by loadImage() and
+ * requestImage() so that an image file that's loaded again (for instance
+ * when a sketch switches back to a previous scene) skips reading and
+ * decoding. Only local files are cached, keyed by their full path,
+ * modification time, size and extension, so a file that changes on disk
+ * is loaded fresh. Images from URLs or inside the jar are never cached.
+ * <p>
+ * The cache is shared by all sketches in the VM, and is off until a
+ * capacity is set with setCapacity(), for instance from setup():
+ * <pre>PImageCache.setCapacity(256 * 1024 * 1024);</pre>
+ * The least recently used images are dropped once the pixels held by
+ * the cache exceed that many bytes. Each PImage handed out is a copy,
+ * so sketches are free to modify their pixels.
+ */
+public class PImageCache {
+  static private final Map<Key, Entry> entries =
+    new LinkedHashMap<>(64, 0.75f, true);  // access order, for LRU
+
+  static private long capacity;
+  static private long size;
+
+  static private long hits;
+  static private long misses;
+  static private long evictions;
+
+
+  private PImageCache() { }
+
+
+  /**
+   * Set the maximum number of bytes of pixel data held by the cache.
+   * Use 0 to turn the cache off, which also empties it.
+   */
+  static public synchronized void setCapacity(long bytes) {
+    capacity = Math.max(0, bytes);
+    trim();
+  }
+
+
+  static public synchronized long capacity() {
+    return capacity;
+  }
+
+
+  static public synchronized boolean isEnabled() {
+    return capacity > 0;
+  }
+
+
+  /** Number of bytes of pixel data currently held by the cache. */
+  static public synchronized long size() {
+    return size;
+  }
+
+
+  /** Number of images currently held by the cache. */
+  static public synchronized int count() {
+    return entries.size();
+  }
+
+
+  static public synchronized long hits() {
+    return hits;
+  }
+
+
+  static public synchronized long misses() {
+    return misses;
+  }
+
+
+  static public synchronized long evictions() {
+    return evictions;
+  }
+
+
+  /** Remove all images, but keep the capacity and statistics. */
+  static public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+
+  /** Reset the hit, miss, and eviction counts. */
+  static public synchronized void resetStatistics() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+
+  static public synchronized String statistics() {
+    long lookups = hits + misses;
+    return String.format("%d images, %.1f of %.1f MB, %d hits, %d misses " +
+                         "(%.1f%% hit rate), %d evictions",
+                         entries.size(), size / 1048576.0, capacity / 1048576.0,
+                         hits, misses,
+                         lookups == 0 ? 0 : 100.0 * hits / lookups, evictions);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+
+  /**
+   * Returns a copy of the cached image for this file,
+   * or null if it's not cached (or the cache is off).
+   */
+  static PImage get(File file, String extension, PApplet parent) {
+    Key key = Key.of(file, extension);
+    if (key == null) return null;
+
+    Entry entry;
+    synchronized (PImageCache.class) {
+      if (capacity == 0) return null;
+      entry = entries.get(key);
+      if (entry == null) {
+        misses++;
+        return null;
+      }
+      hits++;
+    }
+    // pixels are never modified once cached, so copy outside the lock
+    return new PImage(entry.width, entry.height, entry.pixels.clone(),
+                      false, parent, entry.format, 1);
+  }
+
+
+  /** Store a copy of a freshly loaded image. */
+  static void put(File file, String extension, PImage image) {
+    if (image == null || image.pixels == null ||
+        image.width <= 0 || image.height <= 0) {
+      return;
+    }
+    Key key = Key.of(file, extension);
+    if (key == null) return;
+
+    long bytes = 4L * image.pixels.length;
+    synchronized (PImageCache.class) {
+      if (bytes > capacity) return;  // also covers the cache being off
+    }
+    Entry entry = new Entry(image.width, image.height, image.format,
+                            image.pixels.clone());
+    synchronized (PImageCache.class) {
+      Entry previous = entries.put(key, entry);
+      if (previous != null) {
+        size -= 4L * previous.pixels.length;
+      }
+      size += bytes;
+      trim();
+    }
+  }
+
+
+  static private void trim() {
+    Iterator<Entry> it = entries.values().iterator();
+    while (size > capacity && it.hasNext()) {
+      Entry eldest = it.next();
+      size -= 4L * eldest.pixels.length;
+      it.remove();
+      evictions++;
+    }
+  }
+
+
+  static private class Key {
+    final String path;
+    final long modified;
+    final long length;
+    final String extension;
+
+    Key(String path, long modified, long length, String extension) {
+      this.path = path;
+      this.modified = modified;
+      this.length = length;
+      this.extension = extension;
+    }
+
+    static Key of(File file, String extension) {
+      try {
+        return new Key(file.getCanonicalPath(), file.lastModified(),
+                       file.length(), extension);
+      } catch (IOException | SecurityException e) {
+        return null;  // not worth complaining about, just don't cache
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key key)) return false;
+      return modified == key.modified && length == key.length &&
+        path.equals(key.path) && Objects.equals(extension, key.extension);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, modified, length, extension);
+    }
+  }
+
+
+  static private class Entry {
+    final int width;
+    final int height;
+    final int format;
+    final int[] pixels;
+
+    Entry(int width, int height, int format, int[] pixels) {
+      this.width = width;
+      this.height = height;
+      this.format = format;
+      this.pixels = pixels;
+    }
+  }
+}
@@ -0,0 +1,373 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.util.Arrays;
+
+
+/**
+ * Resamples the pixels[] of a PImage to a new size for resize(), without
+ * going through AWT. The image is resized in two passes, first across
+ * (into an image with the new width and the old height) then down.
+ * The weights for each pass are computed once up front, and the rows
+ * of each pass are split across cores with PImage.rows().
+ * <p>
+ * When shrinking, the filters are stretched to cover all the source
+ * pixels that land on each output pixel, so nothing is skipped and
+ * thumbnails don't alias. ARGB images are resampled with premultiplied
+ * alpha, so transparent pixels don't bleed dark fringes into their
+ * neighbors.
+ */
+class PImageResampler implements PConstants {
+  /** Precision of the fixed point weights used for opaque images */
+  static final int FIXED_BITS = 14;
+
+  private PImageResampler() { }
+
+
+  /**
+   * Returns the pixels of the image, resized to targetWidth x targetHeight.
+   * The image itself is not modified.
+   */
+  static int[] resample(PImage img, int targetWidth, int targetHeight,
+                        int filter) {
+    int srcW = img.pixelWidth;
+    int srcH = img.pixelHeight;
+    int format = img.format;
+
+    Weights across = new Weights(srcW, targetWidth, filter);
+    Weights down = new Weights(srcH, targetHeight, filter);
+
+    final int[] src = img.pixels;
+    final int[] target = new int[targetWidth * targetHeight];
+
+    if (format == ARGB) {
+      // Premultiplied colors stay as floats between the passes, because
+      // rounding them to 8 bits would shift the colors of translucent pixels
+      final float[] temp = new float[targetWidth * srcH * 4];
+      PImage.rows(srcH, targetWidth * across.count, (start, stop) -> {
+        for (int y = start; y < stop; y++) {
+          resampleRow(src, y * srcW, temp, y * targetWidth * 4, across);
+        }
+      });
+      PImage.rows(targetHeight, targetWidth * down.count, (start, stop) -> {
+        float[] sums = new float[targetWidth * 4];
+        for (int y = start; y < stop; y++) {
+          resampleColumns(temp, targetWidth, down, y, sums,
+                          target, y * targetWidth);
+        }
+      });
+
+    } else {
+      final int[] temp = new int[targetWidth * srcH];
+      PImage.rows(srcH, targetWidth * across.count, (start, stop) -> {
+        for (int y = start; y < stop; y++) {
+          resampleRow(src, y * srcW, temp, y * targetWidth, across);
+        }
+      });
+      PImage.rows(targetHeight, targetWidth * down.count, (start, stop) -> {
+        float[] sums = new float[targetWidth * 3];
+        for (int y = start; y < stop; y++) {
+          resampleColumns(temp, targetWidth, down, y, sums,
+                          target, y * targetWidth, format);
+        }
+      });
+    }
+    return target;
+  }
+
+
+  /**
+   * Resample one row of ARGB pixels across. The pixels are premultiplied
+   * on the way in, and stored in temp as four floats each (alpha, red,
+   * green, blue) until the second pass.
+   */
+  static private void resampleRow(int[] src, int srcOffset,
+                                  float[] target, int targetOffset,
+                                  Weights weights) {
+    float[] w = weights.weights;
+    int count = weights.count;
+    for (int x = 0, t = targetOffset; x < weights.length; x++, t += 4) {
+      int index = srcOffset + weights.first[x];
+      int n = weights.lengths[x];
+      int wi = x * count;
+      float a = 0, r = 0, g = 0, b = 0;
+      for (int k = 0; k < n; k++) {
+        int c = src[index + k];
+        float ca = (c >>> 24) * w[wi + k];
+        float cp = ca * (1 / 255f);
+        a += ca;
+        r += ((c >> 16) & 0xff) * cp;
+        g += ((c >> 8) & 0xff) * cp;
+        b += (c & 0xff) * cp;
+      }
+      target[t] = a;
+      target[t + 1] = r;
+      target[t + 2] = g;
+      target[t + 3] = b;
+    }
+  }
+
+
+  /**
+   * Resample one row of RGB or ALPHA pixels across. Fixed point is
+   * quicker, and alpha can be skipped.
+   */
+  static private void resampleRow(int[] src, int srcOffset,
+                                  int[] target, int targetOffset,
+                                  Weights weights) {
+    int[] fw = weights.fixed;
+    int count = weights.count;
+    for (int x = 0; x < weights.length; x++) {
+      int index = srcOffset + weights.first[x];
+      int n = weights.lengths[x];
+      int wi = x * count;
+      int ir = 0, ig = 0, ib = 0;
+      for (int k = 0; k < n; k++) {
+        int c = src[index + k];
+        int weight = fw[wi + k];
+        ir += ((c >> 16) & 0xff) * weight;
+        ig += ((c >> 8) & 0xff) * weight;
+        ib += (c & 0xff) * weight;
+      }
+      target[targetOffset + x] =
+        0xff000000 | clampFixed(ir) << 16 | clampFixed(ig) << 8 | clampFixed(ib);
+    }
+  }
+
+
+  /**
+   * Resample one output row of an ARGB image from the rows of temp that
+   * contribute to it, going a whole row at a time so that temp is read
+   * in order, then un-premultiply.
+   */
+  static private void resampleColumns(float[] temp, int width,
+                                      Weights weights, int y, float[] sums,
+                                      int[] target, int targetOffset) {
+    Arrays.fill(sums, 0);
+    int first = weights.first[y];
+    int n = weights.lengths[y];
+    int wi = y * weights.count;
+    for (int k = 0; k < n; k++) {
+      float weight = weights.weights[wi + k];
+      int index = (first + k) * width * 4;
+      for (int s = 0; s < sums.length; s++) {
+        sums[s] += temp[index + s] * weight;
+      }
+    }
+    for (int x = 0, s = 0; x < width; x++, s += 4) {
+      int a = clamp(sums[s]);
+      if (a == 0) {
+        target[targetOffset + x] = 0;
+      } else {
+        float scale = 255f / sums[s];
+        target[targetOffset + x] = a << 24 | clamp(sums[s + 1] * scale) << 16 |
+          clamp(sums[s + 2] * scale) << 8 | clamp(sums[s + 3] * scale);
+      }
+    }
+  }
+
+
+  /**
+   * Resample one output row of an RGB or ALPHA image from the rows of
+   * temp that contribute to it, going a whole row at a time so that temp
+   * is read in order.
+   */
+  static private void resampleColumns(int[] temp, int width,
+                                      Weights weights, int y, float[] sums,
+                                      int[] target, int targetOffset,
+                                      int format) {
+    Arrays.fill(sums, 0);
+    int first = weights.first[y];
+    int n = weights.lengths[y];
+    int wi = y * weights.count;
+    for (int k = 0; k < n; k++) {
+      float weight = weights.weights[wi + k];
+      int index = (first + k) * width;
+      for (int x = 0, s = 0; x < width; x++, s += 3) {
+        int c = temp[index + x];
+        sums[s] += ((c >> 16) & 0xff) * weight;
+        sums[s + 1] += ((c >> 8) & 0xff) * weight;
+        sums[s + 2] += (c & 0xff) * weight;
+      }
+    }
+    for (int x = 0, s = 0; x < width; x++, s += 3) {
+      int b = clamp(sums[s + 2]);
+      if (format == ALPHA) {
+        target[targetOffset + x] = b;
+      } else {
+        target[targetOffset + x] = 0xff000000 |
+          clamp(sums[s]) << 16 | clamp(sums[s + 1]) << 8 | b;
+      }
+    }
+  }
+
+
+  static private int clampFixed(int value) {
+    int v = (value + (1 << (FIXED_BITS - 1))) >> FIXED_BITS;
+    return v < 0 ? 0 : (v > 255 ? 255 : v);
+  }
+
+
+  static private int clamp(float value) {
+    int v = (int) (value + 0.5f);
+    return v < 0 ? 0 : (v > 255 ? 255 : v);
+  }
+
+
+  /**
+   * The source pixels and their weights for each pixel along one axis.
+   */
+  static class Weights {
+    final int length;
+    /** Most source pixels used by any one output pixel */
+    final int count;
+    final int[] first;
+    final int[] lengths;
+    /** count weights per output pixel, unused ones left at zero */
+    final float[] weights;
+    /** the same, as fixed point with FIXED_BITS of precision */
+    final int[] fixed;
+
+
+    Weights(int srcLength, int length, int filter) {
+      this.length = length;
+      double scale = (double) length / srcLength;
+      // stretch the filter when shrinking, so that every source pixel counts
+      double stretch = Math.max(1, 1 / scale);
+      double support = radius(filter) * stretch;
+      if (filter == AREA) {
+        // the source span covered by one output pixel, plus the partial
+        // pixels at either end
+        support = 0.5 / scale + 1;
+      }
+
+      count = (int) Math.ceil(support) * 2 + 1;
+      first = new int[length];
+      lengths = new int[length];
+      weights = new float[length * count];
+      fixed = new int[length * count];
+      double[] w = new double[count];
+
+      for (int i = 0; i < length; i++) {
+        double center = (i + 0.5) / scale;
+        int lo = Math.max(0, (int) Math.floor(center - support));
+        int hi = Math.min(srcLength, (int) Math.ceil(center + support));
+        hi = Math.min(hi, lo + count);
+
+        double total = 0;
+        for (int j = lo; j < hi; j++) {
+          double value;
+          if (filter == AREA) {
+            // how much of source pixel j is covered by output pixel i
+            double a = i / scale;
+            double b = (i + 1) / scale;
+            value = Math.max(0, Math.min(j + 1, b) - Math.max(j, a));
+          } else {
+            value = kernel(filter, (j + 0.5 - center) / stretch);
+          }
+          w[j - lo] = value;
+          total += value;
+        }
+        if (total == 0) {
+          // can't happen with these filters, but don't divide by zero
+          int nearest = Math.min(srcLength - 1, (int) center);
+          lo = nearest;
+          hi = nearest + 1;
+          w[0] = total = 1;
+        }
+        // skip pixels with no weight at either end
+        while (hi > lo + 1 && w[hi - 1 - lo] == 0) hi--;
+        int skip = 0;
+        while (lo + skip < hi - 1 && w[skip] == 0) skip++;
+
+        first[i] = lo + skip;
+        lengths[i] = hi - lo - skip;
+        int sum = 0;
+        for (int j = 0; j < lengths[i]; j++) {
+          // normalize, so that pixels at the edges aren't darkened
+          double weight = w[skip + j] / total;
+          weights[i * count + j] = (float) weight;
+          fixed[i * count + j] = (int) Math.floor(weight * (1 << FIXED_BITS));
+          sum += fixed[i * count + j];
+        }
+        spreadResidual(w, skip, total, i * count, lengths[i],
+                       (1 << FIXED_BITS) - sum);
+      }
+    }
+
+
+    /**
+     * The fixed weights are rounded down, so they add up to a little less
+     * than one. With hundreds of them when shrinking a lot, that darkens
+     * the image, so hand out what's missing to the weights that lost the
+     * most to the rounding, one step each.
+     */
+    private void spreadResidual(double[] w, int skip, double total,
+                                int offset, int n, int residual) {
+      if (residual == 0) return;
+      double[] lost = new double[n];
+      for (int j = 0; j < n; j++) {
+        lost[j] = w[skip + j] / total * (1 << FIXED_BITS) - fixed[offset + j];
+      }
+      // each weight lost less than one step, so residual < n
+      double[] sorted = lost.clone();
+      Arrays.sort(sorted);
+      double threshold = sorted[n - residual];
+      for (int j = 0; j < n && residual > 0; j++) {
+        if (lost[j] > threshold) {
+          fixed[offset + j]++;
+          residual--;
+        }
+      }
+      for (int j = 0; j < n && residual > 0; j++) {
+        if (lost[j] == threshold) {
+          fixed[offset + j]++;
+          residual--;
+        }
+      }
+    }
+
+
+    static private double radius(int filter) {
+      return switch (filter) {
+        case LANCZOS -> 3;
+        case BILINEAR -> 1;
+        default -> 0.5;
+      };
+    }
+
+
+    static private double kernel(int filter, double x) {
+      x = Math.abs(x);
+      if (filter == LANCZOS) {
+        if (x < 1e-8) return 1;
+        if (x >= 3) return 0;
+        double px = Math.PI * x;
+        return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+      }
+      // BILINEAR
+      return x < 1 ? 1 - x : 0;
+    }
+  }
+}
@@ -402,6 +402,35 @@ public class PMatrix2D implements PMatrix {
   }
 
 
+  /**
+   * Multiply many points by this matrix at once. The points are packed into
+   * source as x, y, x, y, and so on, and the results are written to target
+   * the same way. Use source as the target to transform the points in
+   * place, or pass null for target to get a new array. Large arrays are
+   * split across the available cores.
+   */
+  public float[] multPoints(float[] source, float[] target) {
+    if (target == null) {
+      target = new float[source.length];
+    } else if (target.length < source.length) {
+      throw new RuntimeException("The target array used with " +
+                                 "PMatrix2D.multPoints() is too short.");
+    }
+    final float[] src = source;
+    final float[] dst = target;
+    final float n00 = m00, n01 = m01, n02 = m02;
+    final float n10 = m10, n11 = m11, n12 = m12;
+    PImage.rows(source.length / 2, 1, (start, stop) -> {
+      for (int i = start * 2; i < stop * 2; i += 2) {
+        float x = src[i], y = src[i+1];
+        dst[i] = n00*x + n01*y + n02;
+        dst[i+1] = n10*x + n11*y + n12;
+      }
+    });
+    return target;
+  }
+
+
   /**
    * Returns the x-coordinate of the result of multiplying the point (x, y)
    * by this matrix.
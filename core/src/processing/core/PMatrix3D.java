@@ -526,6 +526,38 @@ public final class PMatrix3D implements PMatrix /*, PConstants*/ {
   }
 
 
+  /**
+   * Multiply many points by this matrix at once. The points are packed into
+   * source as x, y, z, x, y, z, and so on, and the results are written to
+   * target the same way. Use source as the target to transform the points
+   * in place, or pass null for target to get a new array. This is much
+   * quicker than calling mult() for each point, and large arrays are
+   * split across the available cores.
+   */
+  public float[] multPoints(float[] source, float[] target) {
+    if (target == null) {
+      target = new float[source.length];
+    } else if (target.length < source.length) {
+      throw new RuntimeException("The target array used with " +
+                                 "PMatrix3D.multPoints() is too short.");
+    }
+    final float[] src = source;
+    final float[] dst = target;
+    final float n00 = m00, n01 = m01, n02 = m02, n03 = m03;
+    final float n10 = m10, n11 = m11, n12 = m12, n13 = m13;
+    final float n20 = m20, n21 = m21, n22 = m22, n23 = m23;
+    PImage.rows(source.length / 3, 1, (start, stop) -> {
+      for (int i = start * 3; i < stop * 3; i += 3) {
+        float x = src[i], y = src[i+1], z = src[i+2];
+        dst[i] = n00*x + n01*y + n02*z + n03;
+        dst[i+1] = n10*x + n11*y + n12*z + n13;
+        dst[i+2] = n20*x + n21*y + n22*z + n23;
+      }
+    });
+    return target;
+  }
+
+
   /**
    * Returns the x-coordinate of the result of multiplying the point (x, y)
    * by this matrix.
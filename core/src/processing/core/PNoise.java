@@ -0,0 +1,377 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+
+/**
+ * A Perlin noise generator with its own seed and level of detail. This is
+ * the same "classic Perlin noise" used by <b>noise()</b>, and for the same
+ * seed and detail settings, it returns exactly the same values. Unlike
+ * <b>noise()</b>, separate generators don't share any state, and a
+ * generator can be used from several threads at once (as long as its seed
+ * and detail aren't changed at the same time).
+ * <p>
+ * The fill() functions compute a whole grid of values in one go, for
+ * textures or terrain. Large grids are split across the available cores.
+ *
+ * @see PApplet#noise(float, float, float)
+ */
+public class PNoise {
+  // [toxi 040903]
+  // octaves and amplitude amount per octave are now user controlled
+  // via the noiseDetail() function.
+
+  // [toxi 030902]
+  // cleaned up code and now using bagel's cosine table to speed up
+
+  // [toxi 030901]
+  // implementation by the german demo group farbrausch
+  // as used in their demo "art": http://www.farb-rausch.de/fr010src.zip
+
+  static final int PERLIN_YWRAPB = 4;
+  static final int PERLIN_YWRAP = 1<<PERLIN_YWRAPB;
+  static final int PERLIN_ZWRAPB = 8;
+  static final int PERLIN_ZWRAP = 1<<PERLIN_ZWRAPB;
+  static final int PERLIN_SIZE = 4095;
+
+  // [toxi 031112]
+  // new vars needed due to recent change of cos table in PGraphics
+  static final float[] perlin_cosTable = PGraphics.cosLUT;
+  static final int perlin_TWOPI = PGraphics.SINCOS_LENGTH;
+  static final int perlin_PI = PGraphics.SINCOS_LENGTH >> 1;
+
+  /** Grids with more samples than this are split across cores. */
+  static final int PARALLEL_THRESHOLD = 1 << 15;
+  static final int CHUNK_LENGTH = 4096;
+
+  int octaves = 4; // default to medium smooth
+  float falloff = 0.5f; // 50% reduction/octave
+
+  /** Replaced, never modified, when the seed changes. */
+  volatile float[] perlin;
+
+
+  /** Create a generator with a random seed. */
+  public PNoise() {
+    perlin = createTable(new Random());
+  }
+
+
+  public PNoise(long seed) {
+    perlin = createTable(new Random(seed));
+  }
+
+
+  static private float[] createTable(Random random) {
+    float[] table = new float[PERLIN_SIZE + 1];
+    for (int i = 0; i < PERLIN_SIZE + 1; i++) {
+      table[i] = random.nextFloat();
+    }
+    return table;
+  }
+
+
+  /** Same as <b>noiseSeed()</b>, but only for this generator. */
+  public void noiseSeed(long seed) {
+    perlin = createTable(new Random(seed));
+  }
+
+
+  /** Same as <b>noiseDetail()</b>, but only for this generator. */
+  public void noiseDetail(int lod) {
+    if (lod>0) octaves=lod;
+  }
+
+
+  /** Same as <b>noiseDetail()</b>, but only for this generator. */
+  public void noiseDetail(int lod, float falloff) {
+    if (lod>0) octaves=lod;
+    if (falloff>0) this.falloff=falloff;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // SINGLE VALUES
+
+
+  public float noise(float x) {
+    return noise1(perlin, octaves, falloff, x);
+  }
+
+
+  public float noise(float x, float y) {
+    return noise2(perlin, octaves, falloff, x, y);
+  }
+
+
+  public float noise(float x, float y, float z) {
+    return noise3(perlin, octaves, falloff, x, y, z);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // GRIDS
+
+
+  /**
+   * Fill an array with 1D noise, sampled at x, x + dx, x + 2*dx, and so on.
+   */
+  public void fill(float[] target, float x, float dx) {
+    final float[] perlin = this.perlin;
+    final int octaves = this.octaves;
+    final float falloff = this.falloff;
+    // split into chunks, so that long arrays can be filled in parallel
+    final int count = target.length;
+    rows((count + CHUNK_LENGTH - 1) / CHUNK_LENGTH, CHUNK_LENGTH, (chunk) -> {
+      int stop = Math.min(count, (chunk + 1) * CHUNK_LENGTH);
+      for (int i = chunk * CHUNK_LENGTH; i < stop; i++) {
+        target[i] = noise1(perlin, octaves, falloff, x + i*dx);
+      }
+    });
+  }
+
+
+  /**
+   * Fill an array with a grid of 2D noise, one row after another. The value
+   * at index (row * cols + col) is the noise at (x + col*dx, y + row*dy).
+   */
+  public void fill(float[] target, int cols, int rows,
+                   float x, float y, float dx, float dy) {
+    checkLength(target, cols * rows);
+    final float[] perlin = this.perlin;
+    final int octaves = this.octaves;
+    final float falloff = this.falloff;
+    rows(rows, cols, (row) -> {
+      float ny = y + row*dy;
+      int index = row * cols;
+      for (int col = 0; col < cols; col++) {
+        target[index++] = noise2(perlin, octaves, falloff, x + col*dx, ny);
+      }
+    });
+  }
+
+
+  /**
+   * Fill an array with a grid of 3D noise, one slice after another, each
+   * with one row after another. The value at index
+   * ((slice * rows + row) * cols + col) is the noise at
+   * (x + col*dx, y + row*dy, z + slice*dz).
+   */
+  public void fill(float[] target, int cols, int rows, int slices,
+                   float x, float y, float z,
+                   float dx, float dy, float dz) {
+    checkLength(target, cols * rows * slices);
+    final float[] perlin = this.perlin;
+    final int octaves = this.octaves;
+    final float falloff = this.falloff;
+    rows(rows * slices, cols, (line) -> {
+      int slice = line / rows;
+      float ny = y + (line % rows)*dy;
+      float nz = z + slice*dz;
+      int index = line * cols;
+      for (int col = 0; col < cols; col++) {
+        target[index++] = noise3(perlin, octaves, falloff, x + col*dx, ny, nz);
+      }
+    });
+  }
+
+
+  /**
+   * Fill the pixels of an image with grayscale noise. The pixel at (col, row)
+   * gets the noise at (x + col*dx, y + row*dy, z), scaled to 0..255.
+   */
+  public void fill(PImage image, float x, float y, float z, float dx, float dy) {
+    image.loadPixels();
+    final int[] pixels = image.pixels;
+    final int cols = image.pixelWidth;
+    final float[] perlin = this.perlin;
+    final int octaves = this.octaves;
+    final float falloff = this.falloff;
+    rows(image.pixelHeight, cols, (row) -> {
+      float ny = y + row*dy;
+      int index = row * cols;
+      for (int col = 0; col < cols; col++) {
+        float n = noise3(perlin, octaves, falloff, x + col*dx, ny, z);
+        int gray = Math.max(0, Math.min(255, (int) (n * 255)));
+        pixels[index++] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+      }
+    });
+    image.updatePixels();
+  }
+
+
+  static private void checkLength(float[] target, int count) {
+    if (target.length < count) {
+      throw new IllegalArgumentException("The array has room for " +
+                                         target.length + " values, " +
+                                         "but " + count + " are needed");
+    }
+  }
+
+
+  interface RowTask {
+    void run(int row);
+  }
+
+
+  static private void rows(int rows, int cols, RowTask task) {
+    if ((long) rows * cols >= PARALLEL_THRESHOLD && rows > 1) {
+      IntStream.range(0, rows).parallel().forEach(task::run);
+    } else {
+      for (int row = 0; row < rows; row++) {
+        task.run(row);
+      }
+    }
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // KERNELS
+
+  // noise1() and noise2() are noise3() with the unused coordinates left out.
+  // With y (or z) at zero, the interpolation weight for that axis is zero,
+  // so skipping it returns exactly the same value.
+
+
+  static float noise1(float[] perlin, int octaves, float falloff, float x) {
+    if (x<0) x=-x;
+
+    int xi=(int)x;
+    float xf = x - xi;
+    float r=0;
+    float ampl=0.5f;
+
+    for (int i=0; i<octaves; i++) {
+      float rxf=noise_fsc(xf);
+      float n1 = perlin[xi&PERLIN_SIZE];
+      n1 += rxf*(perlin[(xi+1)&PERLIN_SIZE]-n1);
+
+      r += n1*ampl;
+      ampl *= falloff;
+      xi<<=1; xf*=2;
+      if (xf>=1.0f) { xi++; xf--; }
+    }
+    return r;
+  }
+
+
+  static float noise2(float[] perlin, int octaves, float falloff,
+                      float x, float y) {
+    if (x<0) x=-x;
+    if (y<0) y=-y;
+
+    int xi=(int)x, yi=(int)y;
+    float xf = x - xi;
+    float yf = y - yi;
+    float r=0;
+    float ampl=0.5f;
+
+    for (int i=0; i<octaves; i++) {
+      int of=xi+(yi<<PERLIN_YWRAPB);
+
+      float rxf=noise_fsc(xf);
+      float ryf=noise_fsc(yf);
+
+      float n1  = perlin[of&PERLIN_SIZE];
+      n1 += rxf*(perlin[(of+1)&PERLIN_SIZE]-n1);
+      float n2  = perlin[(of+PERLIN_YWRAP)&PERLIN_SIZE];
+      n2 += rxf*(perlin[(of+PERLIN_YWRAP+1)&PERLIN_SIZE]-n2);
+      n1 += ryf*(n2-n1);
+
+      r += n1*ampl;
+      ampl *= falloff;
+      xi<<=1; xf*=2;
+      yi<<=1; yf*=2;
+      if (xf>=1.0f) { xi++; xf--; }
+      if (yf>=1.0f) { yi++; yf--; }
+    }
+    return r;
+  }
+
+
+  static float noise3(float[] perlin, int octaves, float falloff,
+                      float x, float y, float z) {
+    if (x<0) x=-x;
+    if (y<0) y=-y;
+    if (z<0) z=-z;
+
+    int xi=(int)x, yi=(int)y, zi=(int)z;
+    float xf = x - xi;
+    float yf = y - yi;
+    float zf = z - zi;
+    float rxf, ryf;
+
+    float r=0;
+    float ampl=0.5f;
+
+    float n1,n2,n3;
+
+    for (int i=0; i<octaves; i++) {
+      int of=xi+(yi<<PERLIN_YWRAPB)+(zi<<PERLIN_ZWRAPB);
+
+      rxf=noise_fsc(xf);
+      ryf=noise_fsc(yf);
+
+      n1  = perlin[of&PERLIN_SIZE];
+      n1 += rxf*(perlin[(of+1)&PERLIN_SIZE]-n1);
+      n2  = perlin[(of+PERLIN_YWRAP)&PERLIN_SIZE];
+      n2 += rxf*(perlin[(of+PERLIN_YWRAP+1)&PERLIN_SIZE]-n2);
+      n1 += ryf*(n2-n1);
+
+      of += PERLIN_ZWRAP;
+      n2  = perlin[of&PERLIN_SIZE];
+      n2 += rxf*(perlin[(of+1)&PERLIN_SIZE]-n2);
+      n3  = perlin[(of+PERLIN_YWRAP)&PERLIN_SIZE];
+      n3 += rxf*(perlin[(of+PERLIN_YWRAP+1)&PERLIN_SIZE]-n3);
+      n2 += ryf*(n3-n2);
+
+      n1 += noise_fsc(zf)*(n2-n1);
+
+      r += n1*ampl;
+      ampl *= falloff;
+      xi<<=1; xf*=2;
+      yi<<=1; yf*=2;
+      zi<<=1; zf*=2;
+
+      if (xf>=1.0f) { xi++; xf--; }
+      if (yf>=1.0f) { yi++; yf--; }
+      if (zf>=1.0f) { zi++; zf--; }
+    }
+    return r;
+  }
+
+
+  // [toxi 031112]
+  // now adjusts to the size of the cosLUT used via
+  // the new variables, defined above
+  static private float noise_fsc(float i) {
+    // using bagel's cosine table instead
+    return 0.5f*(1.0f-perlin_cosTable[(int)(i*perlin_PI)%perlin_TWOPI]);
+  }
+}
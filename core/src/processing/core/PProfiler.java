@@ -0,0 +1,319 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Records how long each phase of PApplet.handleDraw() takes, for the most
+ * recent frames. Started with PApplet.startProfiler(), after which timings
+ * are kept in fixed-size ring buffers, so that nothing is allocated while
+ * frames are being recorded. Only the reporting functions (percentile(),
+ * report() and friends) do any real work.
+ * <p>
+ * The profiler is updated from the animation thread, and its results should
+ * be read from there as well, e.g. from inside draw().
+ */
+public class PProfiler {
+  /** g.beginDraw(), along with the recorder if there is one */
+  static public final int BEGIN_DRAW = 0;
+  /** Window events and the "pre" methods registered by libraries */
+  static public final int PRE = 1;
+  /** The sketch's draw() method */
+  static public final int DRAW = 2;
+  /** Mouse and key events queued since the last frame */
+  static public final int EVENTS = 3;
+  /** The "draw" methods registered by libraries */
+  static public final int DRAW_METHODS = 4;
+  /** g.endDraw(), along with the recorder if there is one */
+  static public final int END_DRAW = 5;
+  /** The "post" methods registered by libraries */
+  static public final int POST = 6;
+  /** The entire frame, from beginDraw() through the "post" methods */
+  static public final int FRAME = 7;
+
+  static final String[] PHASE_NAMES = {
+    "beginDraw", "pre", "draw", "events", "draw methods", "endDraw", "post", "frame"
+  };
+  static final int PHASE_COUNT = PHASE_NAMES.length;
+
+  static public final int DEFAULT_CAPACITY = 600;
+
+  final int capacity;
+  final long[][] phaseNanos;
+  final long[] scratch;
+
+  /** Frames recorded so far, including those since overwritten */
+  int frameCount;
+  /** Slot that the frame in progress will be written to */
+  int index;
+
+  long frameStart;
+  long phaseStart;
+
+  // GC time is only available in milliseconds, and per collector
+  final GarbageCollectorMXBean[] collectors;
+  long gcMillisStart;
+  long gcCountStart;
+  final long[] gcMillis;
+  int gcFrames;
+  long gcTotalMillis;
+
+  /**
+   * Time spent inside registered methods, by target object and then by
+   * method name. The long[] holds calls, total nanos, and max nanos.
+   */
+  final Map<Object, Map<String, long[]>> methodNanos = new IdentityHashMap<>();
+
+  int reportInterval;
+
+
+  public PProfiler() {
+    this(DEFAULT_CAPACITY);
+  }
+
+
+  /**
+   * @param capacity number of recent frames to keep timings for
+   */
+  public PProfiler(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The profiler needs room for at least one frame");
+    }
+    this.capacity = capacity;
+    phaseNanos = new long[PHASE_COUNT][capacity];
+    scratch = new long[capacity];
+    gcMillis = new long[capacity];
+
+    List<GarbageCollectorMXBean> beans =
+      ManagementFactory.getGarbageCollectorMXBeans();
+    collectors = beans.toArray(new GarbageCollectorMXBean[0]);
+  }
+
+
+  /** Clear all timings, but keep the current settings. */
+  public void reset() {
+    frameCount = 0;
+    index = 0;
+    gcFrames = 0;
+    gcTotalMillis = 0;
+    methodNanos.clear();
+  }
+
+
+  /**
+   * Print a report to the console every so many frames.
+   * Use 0 (the default) to turn periodic reports off.
+   */
+  public void reportEvery(int frames) {
+    reportInterval = frames;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // RECORDING, called by PApplet.handleDraw()
+
+
+  void beginFrame() {
+    long gcTime = 0;
+    long gcCount = 0;
+    for (GarbageCollectorMXBean bean : collectors) {
+      gcTime += Math.max(0, bean.getCollectionTime());
+      gcCount += Math.max(0, bean.getCollectionCount());
+    }
+    gcMillisStart = gcTime;
+    gcCountStart = gcCount;
+
+    frameStart = System.nanoTime();
+    phaseStart = frameStart;
+  }
+
+
+  /** End the current phase, and start timing the next one. */
+  void mark(int phase) {
+    long now = System.nanoTime();
+    phaseNanos[phase][index] = now - phaseStart;
+    phaseStart = now;
+  }
+
+
+  void endFrame() {
+    phaseNanos[FRAME][index] = phaseStart - frameStart;
+
+    long gcTime = 0;
+    long gcCount = 0;
+    for (GarbageCollectorMXBean bean : collectors) {
+      gcTime += Math.max(0, bean.getCollectionTime());
+      gcCount += Math.max(0, bean.getCollectionCount());
+    }
+    long millis = gcTime - gcMillisStart;
+    gcMillis[index] = millis;
+    if (gcCount != gcCountStart) {
+      gcFrames++;
+      gcTotalMillis += millis;
+    }
+
+    frameCount++;
+    index = (index + 1) % capacity;
+
+    if (reportInterval > 0 && frameCount % reportInterval == 0) {
+      System.out.println(report());
+    }
+  }
+
+
+  void addMethodTime(String name, Object target, long nanos) {
+    Map<String, long[]> byName = methodNanos.get(target);
+    if (byName == null) {
+      byName = new LinkedHashMap<>();
+      methodNanos.put(target, byName);
+    }
+    long[] stats = byName.get(name);
+    if (stats == null) {
+      stats = new long[3];
+      byName.put(name, stats);
+    }
+    stats[0]++;
+    stats[1] += nanos;
+    if (nanos > stats[2]) {
+      stats[2] = nanos;
+    }
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // RESULTS
+
+
+  /** Number of frames recorded since the profiler was started or reset. */
+  public int frameCount() {
+    return frameCount;
+  }
+
+
+  /** Number of recent frames with timings available, at most the capacity. */
+  public int sampleCount() {
+    return Math.min(frameCount, capacity);
+  }
+
+
+  /**
+   * Time in nanoseconds for a phase of the most recent frame.
+   * @param phase one of BEGIN_DRAW, PRE, DRAW, EVENTS, DRAW_METHODS,
+   *              END_DRAW, POST, or FRAME
+   */
+  public long last(int phase) {
+    if (frameCount == 0) return 0;
+    return phaseNanos[phase][(index + capacity - 1) % capacity];
+  }
+
+
+  /**
+   * Percentile of the time in nanoseconds for a phase,
+   * over the recent frames that are still available.
+   * @param phase one of BEGIN_DRAW, PRE, DRAW, EVENTS, DRAW_METHODS,
+   *              END_DRAW, POST, or FRAME
+   * @param percent between 0 and 100, i.e. 50 for the median
+   */
+  public long percentile(int phase, float percent) {
+    int count = sampleCount();
+    if (count == 0) return 0;
+    System.arraycopy(phaseNanos[phase], 0, scratch, 0, count);
+    Arrays.sort(scratch, 0, count);
+    int rank = (int) Math.ceil(percent / 100f * count) - 1;
+    return scratch[PApplet.constrain(rank, 0, count - 1)];
+  }
+
+
+  /** Longest time in nanoseconds for a phase over the recent frames. */
+  public long max(int phase) {
+    int count = sampleCount();
+    long outgoing = 0;
+    for (int i = 0; i < count; i++) {
+      outgoing = Math.max(outgoing, phaseNanos[phase][i]);
+    }
+    return outgoing;
+  }
+
+
+  /** Number of recorded frames during which the garbage collector ran. */
+  public int gcFrameCount() {
+    return gcFrames;
+  }
+
+
+  /** Total milliseconds of garbage collection during recorded frames. */
+  public long gcMillis() {
+    return gcTotalMillis;
+  }
+
+
+  /** Garbage collection time in milliseconds during the most recent frame. */
+  public long lastGcMillis() {
+    if (frameCount == 0) return 0;
+    return gcMillis[(index + capacity - 1) % capacity];
+  }
+
+
+  /**
+   * Summary of the recent frames: p50/p95/p99 and max for each phase, time
+   * spent in garbage collection, and time spent in each registered method.
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("Frame profile (%d of %d frames, times in ms)%n",
+                            sampleCount(), frameCount));
+    sb.append(String.format("  %-14s %8s %8s %8s %8s%n",
+                            "", "p50", "p95", "p99", "max"));
+    for (int phase = 0; phase < PHASE_COUNT; phase++) {
+      sb.append(String.format("  %-14s %8.3f %8.3f %8.3f %8.3f%n",
+                              PHASE_NAMES[phase],
+                              percentile(phase, 50) / 1e6,
+                              percentile(phase, 95) / 1e6,
+                              percentile(phase, 99) / 1e6,
+                              max(phase) / 1e6));
+    }
+    sb.append(String.format("  gc ran during %d frames, %d ms total%n",
+                            gcFrames, gcTotalMillis));
+    for (Map.Entry<Object, Map<String, long[]>> entry : methodNanos.entrySet()) {
+      String className = entry.getKey().getClass().getName();
+      for (Map.Entry<String, long[]> method : entry.getValue().entrySet()) {
+        long[] stats = method.getValue();
+        sb.append(String.format("  %s.%s(): %d calls, %.3f avg, %.3f max%n",
+                                className, method.getKey(), stats[0],
+                                stats[1] / 1e6 / Math.max(1, stats[0]),
+                                stats[2] / 1e6));
+      }
+    }
+    return sb.toString();
+  }
+}
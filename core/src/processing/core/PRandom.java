@@ -0,0 +1,179 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+
+/**
+ * A fast random number generator for sketches that work with more than one
+ * thread. The <b>random()</b> functions in PApplet share a single generator,
+ * which slows things down when several threads use it at once (they all
+ * compete to update its seed), and makes the results depend on which
+ * thread gets there first.
+ * <p>
+ * Instead, create a PRandom with a seed, then <b>split()</b> off one
+ * generator for each thread or task. Each split gets its own stream of
+ * numbers, and with the same seed, the same splits always return the same
+ * numbers, no matter how the threads are scheduled:
+ * <pre>
+ * PRandom random = new PRandom(42);
+ * for (int i = 0; i &lt; workers; i++) {
+ *   PRandom mine = random.split();
+ *   thread(() -&gt; { ... mine.random(width) ... });
+ * }
+ * </pre>
+ * A single PRandom is not meant to be used by several threads at once.
+ * It uses the SplitMix algorithm from java.util.SplittableRandom, so its
+ * numbers are not the same as those from <b>random()</b> with the same seed.
+ *
+ * @see PApplet#random(float, float)
+ */
+public class PRandom {
+  SplittableRandom generator;
+
+
+  /** Create a generator with a random seed. */
+  public PRandom() {
+    generator = new SplittableRandom();
+  }
+
+
+  public PRandom(long seed) {
+    generator = new SplittableRandom(seed);
+  }
+
+
+  private PRandom(SplittableRandom generator) {
+    this.generator = generator;
+  }
+
+
+  /**
+   * Returns a new generator with its own stream of numbers, for use by
+   * another thread. This also advances this generator.
+   */
+  public PRandom split() {
+    return new PRandom(generator.split());
+  }
+
+
+  /** Start over with a new seed. */
+  public void randomSeed(long seed) {
+    generator = new SplittableRandom(seed);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // SINGLE VALUES
+
+
+  /** Same as <b>random(high)</b> in PApplet. */
+  public float random(float high) {
+    // avoid an infinite loop when 0 or NaN are passed in
+    if (high == 0 || high != high) {
+      return 0;
+    }
+    float value;
+    do {
+      value = generator.nextFloat() * high;
+    } while (value == high);
+    return value;
+  }
+
+
+  /** Same as <b>random(low, high)</b> in PApplet. */
+  public float random(float low, float high) {
+    if (low >= high) return low;
+    float diff = high - low;
+    float value;
+    do {
+      value = random(diff) + low;
+    } while (value == high);
+    return value;
+  }
+
+
+  /** Returns an int from 0 up to (but not including) high. */
+  public int randomInt(int high) {
+    return (high <= 0) ? 0 : generator.nextInt(high);
+  }
+
+
+  /** Returns an int from low up to (but not including) high. */
+  public int randomInt(int low, int high) {
+    return (low >= high) ? low : generator.nextInt(low, high);
+  }
+
+
+  /** Same as <b>randomGaussian()</b> in PApplet. */
+  public float randomGaussian() {
+    return (float) generator.nextGaussian();
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // BULK
+
+
+  /** Fill an array with values from 0 up to (but not including) 1. */
+  public void fill(float[] target) {
+    SplittableRandom generator = this.generator;
+    for (int i = 0; i < target.length; i++) {
+      target[i] = generator.nextFloat();
+    }
+  }
+
+
+  /** Fill an array with values from low up to (but not including) high. */
+  public void fill(float[] target, float low, float high) {
+    for (int i = 0; i < target.length; i++) {
+      target[i] = random(low, high);
+    }
+  }
+
+
+  /** Fill an array with ints from low up to (but not including) high. */
+  public void fill(int[] target, int low, int high) {
+    if (low >= high) {
+      Arrays.fill(target, low);
+    } else {
+      SplittableRandom generator = this.generator;
+      for (int i = 0; i < target.length; i++) {
+        target[i] = generator.nextInt(low, high);
+      }
+    }
+  }
+
+
+  /** Fill an array with values from <b>randomGaussian()</b>. */
+  public void fillGaussian(float[] target) {
+    SplittableRandom generator = this.generator;
+    for (int i = 0; i < target.length; i++) {
+      target[i] = (float) generator.nextGaussian();
+    }
+  }
+}
@@ -334,6 +334,10 @@ public class PSurfaceNone implements PSurface {
       }
       */
 
+      // In offline mode, draw() runs back to back without any pacing,
+      // and saveFrame() provides the back pressure when encoding falls behind.
+      final boolean offline = sketch.sketchOffline();
+
       // un-pause the sketch and get rolling
       sketch.start();
 
@@ -371,6 +375,15 @@ public class PSurfaceNone implements PSurface {
 //          ite.getTargetException().printStackTrace();
 //        }
 
+        if (offline) {
+          if (sketch.isLooping()) {
+            beforeTime = System.nanoTime();
+            continue;
+          }
+          // After noLoop(), wait out a frame like a sketch with a window,
+          // so that redraw() and loop() are still seen without spinning.
+        }
+
         // wait for update & paint to happen before drawing next frame
         // this is necessary since the drawing is sometimes in a
         // separate thread, meaning that the next frame will start
@@ -0,0 +1,529 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * An image too large to hold in memory all at once, such as a gigapixel
+ * scan or a huge map. The image is split into square tiles, which are
+ * read from disk only when they're needed, and only a limited number of
+ * tiles are kept in memory (the least recently used are dropped first).
+ * <p>
+ * Use <b>loadTiledImage()</b> to open an image file, or pass a Source to
+ * the constructor to read tiles from somewhere else. A PTiledImage can be
+ * drawn with <b>image()</b>, and read with <b>get()</b> or <b>copy()</b>,
+ * just like a PImage. It can't be modified, and it has no pixels[] array.
+ * <p>
+ * When drawn smaller than its full size (including with <b>scale()</b>),
+ * the image is drawn from a pyramid of half-size, quarter-size (and so on)
+ * versions of itself, so a zoomed-out view only reads a handful of small
+ * tiles. Only the tiles that land inside the sketch window are drawn.
+ *
+ * @see PApplet#loadTiledImage(String)
+ */
+public class PTiledImage extends PImage {
+
+  /**
+   * Reads regions of the full-size image.
+   */
+  public interface Source {
+    /**
+     * Return the w x h region of the image at (x, y), using every step-th
+     * pixel across and down (step is always a power of two), so the result
+     * is ceil(w / step) x ceil(h / step) pixels. Return null when step is
+     * more than 1 and the source can't skip pixels; the smaller versions
+     * of the image will be made by averaging the larger tiles instead.
+     */
+    PImage read(int x, int y, int w, int h, int step);
+  }
+
+
+  static public final int DEFAULT_TILE_SIZE = 512;
+  static public final long DEFAULT_CACHE_SIZE = 256L * 1024 * 1024;
+
+  final Source source;
+  final int tileSize;
+  /** Number of levels in the pyramid, level 0 is full size */
+  final int levels;
+
+  final Map<Long, PImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+  long cacheCapacity = DEFAULT_CACHE_SIZE;
+  long cacheSize;
+  long tileReads;
+
+
+  public PTiledImage(int width, int height, int format, Source source) {
+    this(width, height, format, DEFAULT_TILE_SIZE, source);
+  }
+
+
+  public PTiledImage(int width, int height, int format,
+                     int tileSize, Source source) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("A PTiledImage needs a width and height");
+    }
+    if (tileSize < 16) {
+      throw new IllegalArgumentException("Tiles must be at least 16 pixels");
+    }
+    this.width = this.pixelWidth = width;
+    this.height = this.pixelHeight = height;
+    this.format = format;
+    this.pixelDensity = 1;
+    this.tileSize = tileSize;
+    this.source = source;
+
+    int count = 1;
+    while (levelSize(width, count - 1) > tileSize ||
+           levelSize(height, count - 1) > tileSize) {
+      count++;
+    }
+    levels = count;
+  }
+
+
+  /**
+   * Set the maximum number of bytes of decoded tiles to keep in memory.
+   */
+  public synchronized void tileCache(long bytes) {
+    cacheCapacity = Math.max(0, bytes);
+    trim();
+  }
+
+
+  /** Bytes of decoded tiles currently held in memory. */
+  public synchronized long tileCacheSize() {
+    return cacheSize;
+  }
+
+
+  /** Number of tiles read from the Source (or averaged) so far. */
+  public synchronized long tileReads() {
+    return tileReads;
+  }
+
+
+  public int tileSize() {
+    return tileSize;
+  }
+
+
+  /** Number of versions of the image, from full size down to one tile. */
+  public int levelCount() {
+    return levels;
+  }
+
+
+  static private int levelSize(int size, int level) {
+    return (int) (((long) size + (1L << level) - 1) >> level);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // TILES
+
+
+  /**
+   * Returns the tile at column col and row row of a level, loading it if
+   * it's not already in memory. Tiles at the right and bottom edges may be
+   * smaller than tileSize.
+   */
+  public PImage getTile(int level, int col, int row) {
+    Long key = ((long) level << 56) | ((long) row << 28) | col;
+    synchronized (this) {
+      PImage tile = tiles.get(key);
+      if (tile != null) {
+        return tile;
+      }
+    }
+    // Load outside the lock, so get() from another thread isn't held up.
+    // Two threads may occasionally load the same tile, which is harmless.
+    PImage tile = loadTile(level, col, row);
+    synchronized (this) {
+      tileReads++;
+      PImage previous = tiles.put(key, tile);
+      if (previous != null) {
+        cacheSize -= 4L * previous.pixels.length;
+      }
+      cacheSize += 4L * tile.pixels.length;
+      trim();
+    }
+    return tile;
+  }
+
+
+  private void trim() {
+    Iterator<PImage> it = tiles.values().iterator();
+    // always keep at least one, otherwise a tiny cache can't even draw
+    while (cacheSize > cacheCapacity && tiles.size() > 1 && it.hasNext()) {
+      PImage eldest = it.next();
+      cacheSize -= 4L * eldest.pixels.length;
+      it.remove();
+    }
+  }
+
+
+  private PImage loadTile(int level, int col, int row) {
+    int step = 1 << level;
+    int levelWidth = levelSize(pixelWidth, level);
+    int levelHeight = levelSize(pixelHeight, level);
+    int tw = Math.min(tileSize, levelWidth - col * tileSize);
+    int th = Math.min(tileSize, levelHeight - row * tileSize);
+
+    long x = (long) col * tileSize * step;
+    long y = (long) row * tileSize * step;
+    PImage tile = source.read((int) x, (int) y,
+                              (int) Math.min((long) tw * step, pixelWidth - x),
+                              (int) Math.min((long) th * step, pixelHeight - y),
+                              step);
+    if (tile == null) {
+      if (level == 0) {
+        throw new RuntimeException("Could not read the tile at " + x + ", " + y);
+      }
+      tile = averageTile(level, col, row, tw, th);
+    }
+    tile.loadPixels();
+    if (tile.pixelWidth != tw || tile.pixelHeight != th) {
+      // the source gave back something else, make it fit
+      tile.resize(tw, th);
+    }
+    return tile;
+  }
+
+
+  /**
+   * Make a tile by averaging each 2x2 block of the level above.
+   */
+  private PImage averageTile(int level, int col, int row, int tw, int th) {
+    int upperWidth = levelSize(pixelWidth, level - 1);
+    int upperHeight = levelSize(pixelHeight, level - 1);
+    // the (up to) 2x2 tiles of the level above, copied into one array
+    int sw = Math.min(tileSize * 2, upperWidth - col * tileSize * 2);
+    int sh = Math.min(tileSize * 2, upperHeight - row * tileSize * 2);
+    int[] upper = new int[sw * sh];
+    for (int j = 0; j < 2; j++) {
+      for (int i = 0; i < 2; i++) {
+        int x = i * tileSize;
+        int y = j * tileSize;
+        if (x < sw && y < sh) {
+          PImage tile = getTile(level - 1, col * 2 + i, row * 2 + j);
+          for (int ty = 0; ty < tile.pixelHeight; ty++) {
+            System.arraycopy(tile.pixels, ty * tile.pixelWidth,
+                             upper, (y + ty) * sw + x, tile.pixelWidth);
+          }
+        }
+      }
+    }
+
+    PImage outgoing = new PImage(tw, th, format);
+    int[] pixels = outgoing.pixels;
+    for (int y = 0; y < th; y++) {
+      int y0 = y * 2;
+      int y1 = Math.min(y0 + 1, sh - 1);
+      for (int x = 0; x < tw; x++) {
+        int x0 = x * 2;
+        int x1 = Math.min(x0 + 1, sw - 1);
+        int c00 = upper[y0 * sw + x0];
+        int c01 = upper[y0 * sw + x1];
+        int c10 = upper[y1 * sw + x0];
+        int c11 = upper[y1 * sw + x1];
+        // two channels at a time, each has room for the sum of four
+        int rb = ((c00 & 0xff00ff) + (c01 & 0xff00ff) +
+                  (c10 & 0xff00ff) + (c11 & 0xff00ff) + 0x20002) >> 2;
+        int g = ((c00 & 0xff00) + (c01 & 0xff00) +
+                 (c10 & 0xff00) + (c11 & 0xff00) + 0x200) >> 2;
+        int a = ((c00 >>> 24) + (c01 >>> 24) +
+                 (c10 >>> 24) + (c11 >>> 24) + 2) >> 2;
+        pixels[y * tw + x] = a << 24 | (rb & 0xff00ff) | (g & 0xff00);
+      }
+    }
+    return outgoing;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // DRAWING
+
+
+  /**
+   * The smallest level of the pyramid that still has enough detail when
+   * each full-size pixel is shown at density screen pixels.
+   */
+  int level(float density) {
+    int level = 0;
+    while (level < levels - 1 && density * (2 << level) <= 1) {
+      level++;
+    }
+    return level;
+  }
+
+
+  /**
+   * Draw the part of the image from (u1, v1) to (u2, v2) into the
+   * rectangle from (x1, y1) to (x2, y2), one tile at a time, using the
+   * smallest level of the pyramid that still has enough detail.
+   * Called by image(), in place of imageImpl().
+   */
+  protected void draw(PGraphics g,
+                      float x1, float y1, float x2, float y2,
+                      int u1, int v1, int u2, int v2) {
+    if (u2 <= u1 || v2 <= v1) return;
+
+    float scaleX = (x2 - x1) / (u2 - u1);
+    float scaleY = (y2 - y1) / (v2 - v1);
+
+    // image pixels per screen pixel, taking the transformation into account
+    PMatrix matrix = g.getMatrix();
+    float zoom = g.pixelDensity;
+    if (matrix instanceof PMatrix2D m) {
+      zoom *= (float) Math.sqrt(Math.abs(m.m00 * m.m11 - m.m01 * m.m10));
+    } else if (matrix instanceof PMatrix3D m) {
+      zoom *= (float) Math.sqrt(Math.abs(m.m00 * m.m11 - m.m01 * m.m10));
+    }
+    int level = level(Math.min(Math.abs(scaleX), Math.abs(scaleY)) * zoom);
+
+    // only draw tiles that are inside the window
+    int visibleU1 = u1, visibleV1 = v1, visibleU2 = u2, visibleV2 = v2;
+    if (matrix instanceof PMatrix2D m && m.invert()) {
+      float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+      float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+      for (int corner = 0; corner < 4; corner++) {
+        float sx = (corner & 1) == 0 ? 0 : g.width;
+        float sy = (corner & 2) == 0 ? 0 : g.height;
+        float px = m.multX(sx, sy);
+        float py = m.multY(sx, sy);
+        minX = Math.min(minX, px); maxX = Math.max(maxX, px);
+        minY = Math.min(minY, py); maxY = Math.max(maxY, py);
+      }
+      float ua = u1 + (minX - x1) / scaleX;
+      float ub = u1 + (maxX - x1) / scaleX;
+      float va = v1 + (minY - y1) / scaleY;
+      float vb = v1 + (maxY - y1) / scaleY;
+      visibleU1 = Math.max(u1, (int) Math.floor(Math.min(ua, ub)) - 1);
+      visibleU2 = Math.min(u2, (int) Math.ceil(Math.max(ua, ub)) + 1);
+      visibleV1 = Math.max(v1, (int) Math.floor(Math.min(va, vb)) - 1);
+      visibleV2 = Math.min(v2, (int) Math.ceil(Math.max(va, vb)) + 1);
+      if (visibleU2 <= visibleU1 || visibleV2 <= visibleV1) return;
+    }
+
+    int step = 1 << level;
+    long span = (long) tileSize * step;  // full-size pixels per tile
+    int col1 = (int) (Math.max(0, visibleU1) / span);
+    int col2 = (int) ((Math.min(pixelWidth, visibleU2) - 1) / span);
+    int row1 = (int) (Math.max(0, visibleV1) / span);
+    int row2 = (int) ((Math.min(pixelHeight, visibleV2) - 1) / span);
+
+    for (int row = row1; row <= row2; row++) {
+      for (int col = col1; col <= col2; col++) {
+        PImage tile = getTile(level, col, row);
+        long tileU = col * span;
+        long tileV = row * span;
+        // the part of this tile that's needed, in tile pixels
+        int tu1 = (int) (Math.max(0, u1 - tileU) / step);
+        int tv1 = (int) (Math.max(0, v1 - tileV) / step);
+        int tu2 = (int) Math.min(tile.pixelWidth, (u2 - tileU + step - 1) / step);
+        int tv2 = (int) Math.min(tile.pixelHeight, (v2 - tileV + step - 1) / step);
+        if (tu2 <= tu1 || tv2 <= tv1) continue;
+
+        // back to full-size pixels, then to the screen
+        long fu1 = tileU + (long) tu1 * step;
+        long fv1 = tileV + (long) tv1 * step;
+        long fu2 = Math.min(pixelWidth, tileU + (long) tu2 * step);
+        long fv2 = Math.min(pixelHeight, tileV + (long) tv2 * step);
+        g.imageImpl(tile,
+                    x1 + (fu1 - u1) * scaleX, y1 + (fv1 - v1) * scaleY,
+                    x1 + (fu2 - u1) * scaleX, y1 + (fv2 - v1) * scaleY,
+                    tu1, tv1, tu2, tv2);
+      }
+    }
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // READING PIXELS
+
+
+  @Override
+  public int get(int x, int y) {
+    if ((x < 0) || (y < 0) || (x >= pixelWidth) || (y >= pixelHeight)) return 0;
+    PImage tile = getTile(0, x / tileSize, y / tileSize);
+    int c = tile.pixels[(y % tileSize) * tile.pixelWidth + (x % tileSize)];
+    return (format == RGB) ? (c | 0xff000000) : c;
+  }
+
+
+  /**
+   * Returns a regular PImage with a copy of part of this image.
+   * Anything outside the image is left transparent.
+   */
+  @Override
+  public PImage get(int x, int y, int w, int h) {
+    return get(0, x, y, w, h);
+  }
+
+
+  /**
+   * Read the sw x sh region at (sx, sy) for copy() or blend(), which will
+   * scale it to dw x dh. When it's made smaller, the region is read from
+   * the smallest level of the pyramid that has enough detail, so only a
+   * few small tiles are touched. The region returned starts at (0, 0),
+   * and its pixelWidth and pixelHeight take the place of sw and sh.
+   */
+  public PImage getScaled(int sx, int sy, int sw, int sh, int dw, int dh) {
+    int level = 0;
+    if (sw > 0 && sh > 0 && dw > 0 && dh > 0) {
+      level = level(Math.min((float) dw / sw, (float) dh / sh));
+    }
+    if (level == 0) {
+      return get(0, sx, sy, sw, sh);
+    }
+    // round outward to whole pixels of that level
+    int step = 1 << level;
+    int x1 = Math.floorDiv(sx, step);
+    int y1 = Math.floorDiv(sy, step);
+    int x2 = -Math.floorDiv(-(sx + sw), step);
+    int y2 = -Math.floorDiv(-(sy + sh), step);
+    return get(level, x1, y1, x2 - x1, y2 - y1);
+  }
+
+
+  /**
+   * Part of one level of the pyramid, in the pixels of that level.
+   */
+  private PImage get(int level, int x, int y, int w, int h) {
+    if (w < 0) { x += w; w = -w; }
+    if (h < 0) { y += h; h = -h; }
+    if ((long) w * h > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(w + " x " + h +
+                                         " is too large for a PImage");
+    }
+    int left = Math.max(x, 0);
+    int top = Math.max(y, 0);
+    int right = Math.min(x + w, levelSize(pixelWidth, level));
+    int bottom = Math.min(y + h, levelSize(pixelHeight, level));
+    // same as PImage, the parts outside need to be transparent
+    boolean cropped = left != x || top != y ||
+      right != x + w || bottom != y + h;
+    PImage outgoing = new PImage(w, h, (cropped && format == RGB) ? ARGB : format);
+    outgoing.parent = parent;
+    for (int row = top / tileSize; row * tileSize < bottom; row++) {
+      for (int col = left / tileSize; col * tileSize < right; col++) {
+        PImage tile = getTile(level, col, row);
+        int tx = col * tileSize;
+        int ty = row * tileSize;
+        int cx1 = Math.max(left, tx);
+        int cx2 = Math.min(right, tx + tile.pixelWidth);
+        int cy1 = Math.max(top, ty);
+        int cy2 = Math.min(bottom, ty + tile.pixelHeight);
+        for (int cy = cy1; cy < cy2; cy++) {
+          System.arraycopy(tile.pixels, (cy - ty) * tile.pixelWidth + (cx1 - tx),
+                           outgoing.pixels, (cy - y) * w + (cx1 - x),
+                           cx2 - cx1);
+        }
+      }
+    }
+    return outgoing;
+  }
+
+
+  /**
+   * The whole image, only if it's small enough to fit in a regular PImage.
+   */
+  @Override
+  public PImage get() {
+    return get(0, 0, pixelWidth, pixelHeight);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // NOT AVAILABLE
+
+
+  @Override
+  public void loadPixels() {
+    throw new RuntimeException("A PTiledImage has no pixels[] array, " +
+                               "use get() to read part of it instead");
+  }
+
+
+  @Override
+  public void updatePixels(int x, int y, int w, int h) {
+    readOnly("updatePixels()");
+  }
+
+
+  @Override
+  public void set(int x, int y, int c) {
+    readOnly("set()");
+  }
+
+
+  @Override
+  public void set(int x, int y, PImage img) {
+    readOnly("set()");
+  }
+
+
+  @Override
+  public void resize(int w, int h, int filter) {
+    readOnly("resize()");
+  }
+
+
+  @Override
+  public void filter(int kind) {
+    readOnly("filter()");
+  }
+
+
+  @Override
+  public void filter(int kind, float param) {
+    readOnly("filter()");
+  }
+
+
+  @Override
+  public void mask(int[] maskArray) {
+    readOnly("mask()");
+  }
+
+
+  @Override
+  public void blend(PImage src,
+                    int sx, int sy, int sw, int sh,
+                    int dx, int dy, int dw, int dh, int mode) {
+    readOnly("copy() and blend()");
+  }
+
+
+  private void readOnly(String what) {
+    throw new RuntimeException(what + " can't be used to change a PTiledImage");
+  }
+}
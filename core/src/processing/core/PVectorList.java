@@ -0,0 +1,408 @@
+/* -*- mode: java; c-basic-offset: 2; indent-tabs-mode: nil -*- */
+
+/*
+  Part of the Processing project - http://processing.org
+
+  Copyright (c) 2026 The Processing Foundation
+
+  This library is free software; you can redistribute it and/or
+  modify it under the terms of the GNU Lesser General Public
+  License version 2.1 as published by the Free Software Foundation.
+
+  This library is distributed in the hope that it will be useful,
+  but WITHOUT ANY WARRANTY; without even the implied warranty of
+  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General
+  Public License along with this library; if not, write to the
+  Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+  Boston, MA  02111-1307  USA
+*/
+
+package processing.core;
+
+import java.util.Arrays;
+
+
+/**
+ * A list of vectors, for things like the positions and velocities of
+ * thousands of particles. Instead of one PVector object per entry, the
+ * x, y, and z values are kept in three float arrays, which takes a
+ * fraction of the memory of an ArrayList&lt;PVector&gt; and is much quicker
+ * to go through. The methods that change every vector at once (add, mult,
+ * normalize, limit, and so on) split large lists across the available
+ * cores, and <b>draw()</b> sends the vectors straight to a renderer.
+ * <pre>
+ * PVectorList position = new PVectorList();
+ * PVectorList velocity = new PVectorList();
+ * ...
+ * void draw() {
+ *   velocity.add(0, 0.1, 0);  // gravity
+ *   velocity.limit(5);
+ *   position.add(velocity);
+ *   position.draw(g, POINTS);
+ * }
+ * </pre>
+ * Entries are numbered like a FloatList, and 2D sketches can ignore z,
+ * which stays 0 unless it's set.
+ */
+public class PVectorList {
+  int count;
+  float[] x;
+  float[] y;
+  float[] z;
+
+
+  public PVectorList() {
+    this(10);
+  }
+
+
+  /**
+   * @nowebref
+   */
+  public PVectorList(int length) {
+    x = new float[length];
+    y = new float[length];
+    z = new float[length];
+  }
+
+
+  /**
+   * Get the length of the list.
+   */
+  public int size() {
+    return count;
+  }
+
+
+  /**
+   * Remove all entries from the list.
+   */
+  public void clear() {
+    count = 0;
+  }
+
+
+  protected void ensureCapacity(int length) {
+    if (length > x.length) {
+      int capacity = Math.max(length, x.length << 1);
+      x = Arrays.copyOf(x, capacity);
+      y = Arrays.copyOf(y, capacity);
+      z = Arrays.copyOf(z, capacity);
+    }
+  }
+
+
+  protected void checkIndex(int index) {
+    if (index < 0 || index >= count) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+  }
+
+
+  protected void checkSize(PVectorList other) {
+    if (other.count != count) {
+      throw new IllegalArgumentException("The PVectorList has " + other.count +
+                                         " entries instead of " + count);
+    }
+  }
+
+
+  public void append(float x, float y) {
+    append(x, y, 0);
+  }
+
+
+  public void append(float x, float y, float z) {
+    ensureCapacity(count + 1);
+    this.x[count] = x;
+    this.y[count] = y;
+    this.z[count] = z;
+    count++;
+  }
+
+
+  public void append(PVector v) {
+    append(v.x, v.y, v.z);
+  }
+
+
+  /**
+   * Get an entry as a new PVector.
+   */
+  public PVector get(int index) {
+    return get(index, null);
+  }
+
+
+  /**
+   * Get an entry, copied into target (or a new PVector if target is null).
+   */
+  public PVector get(int index, PVector target) {
+    checkIndex(index);
+    if (target == null) {
+      return new PVector(x[index], y[index], z[index]);
+    }
+    return target.set(x[index], y[index], z[index]);
+  }
+
+
+  public float getX(int index) {
+    checkIndex(index);
+    return x[index];
+  }
+
+
+  public float getY(int index) {
+    checkIndex(index);
+    return y[index];
+  }
+
+
+  public float getZ(int index) {
+    checkIndex(index);
+    return z[index];
+  }
+
+
+  public void set(int index, float x, float y) {
+    set(index, x, y, 0);
+  }
+
+
+  public void set(int index, float x, float y, float z) {
+    checkIndex(index);
+    this.x[index] = x;
+    this.y[index] = y;
+    this.z[index] = z;
+  }
+
+
+  public void set(int index, PVector v) {
+    set(index, v.x, v.y, v.z);
+  }
+
+
+  /**
+   * Remove an entry, moving the last entry into its place. This doesn't keep
+   * the list in order, but doesn't have to shift everything after the entry
+   * either, which is what a list of particles usually wants.
+   */
+  public void remove(int index) {
+    checkIndex(index);
+    count--;
+    x[index] = x[count];
+    y[index] = y[count];
+    z[index] = z[count];
+  }
+
+
+  public PVectorList copy() {
+    PVectorList outgoing = new PVectorList(Math.max(count, 1));
+    System.arraycopy(x, 0, outgoing.x, 0, count);
+    System.arraycopy(y, 0, outgoing.y, 0, count);
+    System.arraycopy(z, 0, outgoing.z, 0, count);
+    outgoing.count = count;
+    return outgoing;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // MATH
+
+
+  /**
+   * Add (x, y, z) to every vector in the list.
+   */
+  public void add(float dx, float dy, float dz) {
+    final float[] x = this.x, y = this.y, z = this.z;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        x[i] += dx;
+        y[i] += dy;
+        z[i] += dz;
+      }
+    });
+  }
+
+
+  /**
+   * Add each vector in other to the vector at the same index in this list.
+   */
+  public void add(PVectorList other) {
+    integrate(other, 1);
+  }
+
+
+  /**
+   * Add each vector in rate, multiplied by dt, to the vector at the same
+   * index in this list. With positions and velocities, for instance,
+   * <b>position.integrate(velocity, dt)</b> moves everything ahead by dt.
+   */
+  public void integrate(PVectorList rate, float dt) {
+    checkSize(rate);
+    final float[] x = this.x, y = this.y, z = this.z;
+    final float[] rx = rate.x, ry = rate.y, rz = rate.z;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        x[i] += rx[i] * dt;
+        y[i] += ry[i] * dt;
+        z[i] += rz[i] * dt;
+      }
+    });
+  }
+
+
+  /**
+   * Subtract each vector in other from the vector at the same index.
+   */
+  public void sub(PVectorList other) {
+    integrate(other, -1);
+  }
+
+
+  /**
+   * Multiply every vector in the list by a scalar.
+   */
+  public void mult(float amount) {
+    final float[] x = this.x, y = this.y, z = this.z;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        x[i] *= amount;
+        y[i] *= amount;
+        z[i] *= amount;
+      }
+    });
+  }
+
+
+  /**
+   * Make every vector in the list one unit long. Vectors of length 0 are
+   * left alone, the same as PVector.normalize().
+   */
+  public void normalize() {
+    final float[] x = this.x, y = this.y, z = this.z;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        float m = (float) Math.sqrt(x[i]*x[i] + y[i]*y[i] + z[i]*z[i]);
+        if (m != 0 && m != 1) {
+          x[i] /= m;
+          y[i] /= m;
+          z[i] /= m;
+        }
+      }
+    });
+  }
+
+
+  /**
+   * Shorten any vector in the list that's longer than max, the same as
+   * PVector.limit().
+   */
+  public void limit(float max) {
+    final float[] x = this.x, y = this.y, z = this.z;
+    final float maxSq = max * max;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        float magSq = x[i]*x[i] + y[i]*y[i] + z[i]*z[i];
+        if (magSq > maxSq) {
+          float scale = max / (float) Math.sqrt(magSq);
+          x[i] *= scale;
+          y[i] *= scale;
+          z[i] *= scale;
+        }
+      }
+    });
+  }
+
+
+  /**
+   * Get the length of every vector in the list.
+   * @param target array for the results, or null to make a new one
+   */
+  public float[] mag(float[] target) {
+    return dist(0, 0, 0, target);
+  }
+
+
+  /**
+   * Get the distance from every vector in the list to the point (px, py, pz).
+   * @param target array for the results, or null to make a new one
+   */
+  public float[] dist(float px, float py, float pz, float[] target) {
+    if (target == null || target.length < count) {
+      target = new float[count];
+    }
+    final float[] x = this.x, y = this.y, z = this.z;
+    final float[] outgoing = target;
+    PImage.rows(count, 1, (start, stop) -> {
+      for (int i = start; i < stop; i++) {
+        float dx = x[i] - px;
+        float dy = y[i] - py;
+        float dz = z[i] - pz;
+        outgoing[i] = (float) Math.sqrt(dx*dx + dy*dy + dz*dz);
+      }
+    });
+    return target;
+  }
+
+
+  /**
+   * Get the distance from every vector in the list to a point.
+   * @param target array for the results, or null to make a new one
+   */
+  public float[] dist(PVector v, float[] target) {
+    return dist(v.x, v.y, v.z, target);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // DRAWING
+
+
+  /**
+   * Draw the vectors as vertices of a shape on g, using the current stroke
+   * and fill. The kind is passed to <b>beginShape()</b>: POINTS draws a
+   * point for each entry, LINES a line for each pair of entries, and so on.
+   * The z values are only used with 3D renderers.
+   */
+  public void draw(PGraphics g, int kind) {
+    g.beginShape(kind);
+    if (g.is3D()) {
+      for (int i = 0; i < count; i++) {
+        g.vertex(x[i], y[i], z[i]);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        g.vertex(x[i], y[i]);
+      }
+    }
+    g.endShape();
+  }
+
+
+  /**
+   * Draw a line from each vector in the list to the vector at the same
+   * index in other, like the trails of particles from where they were to
+   * where they are now.
+   */
+  public void drawLines(PGraphics g, PVectorList other) {
+    checkSize(other);
+    g.beginShape(PConstants.LINES);
+    boolean is3D = g.is3D();
+    for (int i = 0; i < count; i++) {
+      if (is3D) {
+        g.vertex(x[i], y[i], z[i]);
+        g.vertex(other.x[i], other.y[i], other.z[i]);
+      } else {
+        g.vertex(x[i], y[i]);
+        g.vertex(other.x[i], other.y[i]);
+      }
+    }
+    g.endShape();
+  }
+}
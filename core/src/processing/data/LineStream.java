@@ -0,0 +1,197 @@
+package processing.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Reads the lines of a file one at a time, for files that are too large
+ * to load all at once with <b>loadStrings()</b>. Only a small buffer is held
+ * in memory, no matter how large the file. Lines are split on \n, \r\n,
+ * or \r (the same as <b>loadStrings()</b>), and decoded as UTF-8.
+ * <p>
+ * Use <b>streamStrings()</b> to create one, then walk through it with a
+ * for loop. The file is closed automatically after the last line; call
+ * <b>close()</b> when stopping early.
+ * <pre>
+ * for (String line : streamStrings("huge.log.gz")) {
+ *   ...
+ * }
+ * </pre>
+ * A LineStream can only be iterated once.
+ *
+ * @see processing.core.PApplet#streamStrings(String)
+ * @see RecordStream
+ */
+public class LineStream implements Iterable<String>, Closeable {
+  static final int BUFFER_SIZE = 1 << 20;
+
+  ReadableByteChannel channel;
+  ByteBuffer buffer;
+  boolean eof;
+
+  /** Skip a \n at the start of the next line, because the last ended with \r */
+  boolean skipNewline;
+  boolean started;
+  long lineCount;
+
+
+  public LineStream(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    buffer.flip();  // empty until the first read
+  }
+
+
+  public LineStream(InputStream input) {
+    this(Channels.newChannel(input));
+  }
+
+
+  /**
+   * Returns the next line, or null when the end of the file is reached.
+   */
+  public String readLine() {
+    if (channel == null) {
+      return null;
+    }
+    try {
+      String line = nextLine();
+      if (line == null) {
+        close();
+      } else {
+        lineCount++;
+      }
+      return line;
+
+    } catch (IOException e) {
+      close();
+      // Re-wrap rather than forcing novices to learn about exceptions
+      throw new RuntimeException(e);
+    }
+  }
+
+
+  /** Number of lines read so far. */
+  public long lineCount() {
+    return lineCount;
+  }
+
+
+  private String nextLine() throws IOException {
+    if (!started) {
+      started = true;
+      skipByteOrderMark();
+    }
+    int scanned = buffer.position();  // no need to re-scan after a refill
+    while (true) {
+      byte[] array = buffer.array();
+      int start = buffer.position();
+      int limit = buffer.limit();
+
+      if (skipNewline && start < limit) {
+        skipNewline = false;
+        if (array[start] == '\n') {
+          buffer.position(++start);
+          scanned = Math.max(scanned, start);
+        }
+      }
+
+      // '\n' and '\r' never appear inside multibyte UTF-8 sequences,
+      // so it's safe to look for them before decoding anything.
+      for (int i = scanned; i < limit; i++) {
+        byte b = array[i];
+        if (b == '\n' || b == '\r') {
+          buffer.position(i + 1);
+          skipNewline = (b == '\r');
+          return new String(array, start, i - start, StandardCharsets.UTF_8);
+        }
+      }
+
+      if (eof) {
+        if (start == limit) {
+          return null;
+        }
+        buffer.position(limit);
+        return new String(array, start, limit - start, StandardCharsets.UTF_8);
+      }
+
+      // Line continues past the end of the buffer, so make room and refill
+      scanned = limit - start;
+      buffer.compact();
+      if (!buffer.hasRemaining()) {
+        ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+      }
+      if (channel.read(buffer) == -1) {
+        eof = true;
+      }
+      buffer.flip();
+    }
+  }
+
+
+  private void skipByteOrderMark() throws IOException {
+    while (buffer.remaining() < 3 && !eof) {
+      buffer.compact();
+      if (channel.read(buffer) == -1) {
+        eof = true;
+      }
+      buffer.flip();
+    }
+    byte[] array = buffer.array();
+    int pos = buffer.position();
+    if (buffer.remaining() >= 3 &&
+        array[pos] == (byte) 0xEF &&
+        array[pos + 1] == (byte) 0xBB &&
+        array[pos + 2] == (byte) 0xBF) {
+      buffer.position(pos + 3);
+    }
+  }
+
+
+  @Override
+  public void close() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+    }
+  }
+
+
+  @Override
+  public Iterator<String> iterator() {
+    if (started) {
+      throw new IllegalStateException("A LineStream can only be read once");
+    }
+    return new Iterator<>() {
+      String next = readLine();
+
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      public String next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        String outgoing = next;
+        next = readLine();
+        return outgoing;
+      }
+    };
+  }
+}
@@ -0,0 +1,168 @@
+package processing.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Reads a file as a series of fixed-size binary records, for files too
+ * large to load all at once with <b>loadBytes()</b>, such as sensor dumps.
+ * Only a small buffer is held in memory, no matter how large the file.
+ * <p>
+ * Each record is handed out as a <b>ByteBuffer</b>, positioned at the start
+ * of the record, so values can be read with getInt(), getFloat() and the
+ * like. The same ByteBuffer is reused for every record, so copy anything
+ * that needs to be kept. Records are big endian by default, use
+ * <b>order()</b> to change that.
+ * <pre>
+ * RecordStream records = streamBytes("samples.bin", 12);
+ * records.order(ByteOrder.LITTLE_ENDIAN);
+ * for (ByteBuffer record : records) {
+ *   float x = record.getFloat();
+ *   ...
+ * }
+ * </pre>
+ * The file is closed automatically after the last record; call
+ * <b>close()</b> when stopping early. Any bytes at the end of the file that
+ * don't make up a whole record are skipped, with a warning.
+ * A RecordStream can only be iterated once.
+ *
+ * @see processing.core.PApplet#streamBytes(String, int)
+ * @see LineStream
+ */
+public class RecordStream implements Iterable<ByteBuffer>, Closeable {
+  ReadableByteChannel channel;
+  ByteBuffer buffer;
+  boolean eof;
+  boolean started;
+
+  final int recordLength;
+  final ByteBuffer record;
+  long recordCount;
+
+
+  public RecordStream(ReadableByteChannel channel, int recordLength) {
+    if (recordLength < 1) {
+      throw new IllegalArgumentException("Records must be at least one byte long");
+    }
+    this.channel = channel;
+    this.recordLength = recordLength;
+
+    // a whole number of records, and at least 1 MB
+    int count = Math.max(1, LineStream.BUFFER_SIZE / recordLength);
+    buffer = ByteBuffer.allocate(count * recordLength);
+    buffer.flip();  // empty until the first read
+
+    record = ByteBuffer.allocate(recordLength);
+  }
+
+
+  public RecordStream(InputStream input, int recordLength) {
+    this(Channels.newChannel(input), recordLength);
+  }
+
+
+  /** Set the byte order used when reading values from each record. */
+  public RecordStream order(ByteOrder order) {
+    record.order(order);
+    return this;
+  }
+
+
+  public int recordLength() {
+    return recordLength;
+  }
+
+
+  /** Number of records read so far. */
+  public long recordCount() {
+    return recordCount;
+  }
+
+
+  /**
+   * Returns the next record, or null when the end of the file is reached.
+   * The ByteBuffer is reused by the next call.
+   */
+  public ByteBuffer readRecord() {
+    if (channel == null) {
+      return null;
+    }
+    started = true;
+    try {
+      while (buffer.remaining() < recordLength && !eof) {
+        buffer.compact();
+        if (channel.read(buffer) == -1) {
+          eof = true;
+        }
+        buffer.flip();
+      }
+      if (buffer.remaining() < recordLength) {
+        if (buffer.hasRemaining()) {
+          System.err.println("Skipping the last " + buffer.remaining() +
+                             " bytes, which are not a whole record of " +
+                             recordLength + " bytes");
+        }
+        close();
+        return null;
+      }
+      buffer.get(record.array(), 0, recordLength);
+      record.clear();
+      recordCount++;
+      return record;
+
+    } catch (IOException e) {
+      close();
+      // Re-wrap rather than forcing novices to learn about exceptions
+      throw new RuntimeException(e);
+    }
+  }
+
+
+  @Override
+  public void close() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      channel = null;
+    }
+  }
+
+
+  @Override
+  public Iterator<ByteBuffer> iterator() {
+    if (started) {
+      throw new IllegalStateException("A RecordStream can only be read once");
+    }
+    return new Iterator<>() {
+      boolean ready;
+      ByteBuffer next;
+
+      public boolean hasNext() {
+        if (!ready) {
+          next = readRecord();
+          ready = true;
+        }
+        return next != null;
+      }
+
+      public ByteBuffer next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        ready = false;
+        return next;
+      }
+    };
+  }
+}
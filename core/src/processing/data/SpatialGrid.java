@@ -0,0 +1,594 @@
+package processing.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import processing.core.PVector;
+
+
+/**
+ * Finds the points near a location without checking every point, for things
+ * like flocking, collisions, and connecting nearby particles. Space is split
+ * into cubes (or squares, when z is always 0) of <b>cellSize</b>, and each
+ * point is kept with the others in its cell, so a search only has to look
+ * at the cells it reaches. A cell size close to the usual search radius
+ * works best.
+ * <p>
+ * Points can be added one at a time with <b>insert()</b>, which returns an
+ * id for use with <b>update()</b> and <b>remove()</b>. When every point
+ * moves every frame, it's quicker to pass all of them to <b>set()</b>
+ * instead, and the ids are then the index of each point.
+ * <pre>
+ * SpatialGrid grid = new SpatialGrid(50);
+ * ...
+ * void draw() {
+ *   grid.set(boids);  // an ArrayList&lt;PVector&gt;
+ *   for (PVector p : boids) {
+ *     IntList neighbors = grid.within(p, 50);
+ *     ...
+ *   }
+ * }
+ * </pre>
+ * Searches use working space inside the grid, so one grid shouldn't be
+ * searched from more than one thread at a time.
+ */
+public class SpatialGrid {
+  static final long EMPTY = Long.MIN_VALUE;
+  static final int MIN_TABLE = 64;
+
+  float cellSize;
+  float inverse;
+
+  /** Number of points, and one past the highest id in use */
+  int count;
+  int idCount;
+  float[] px = new float[0];
+  float[] py = new float[0];
+  float[] pz = new float[0];
+
+  /** Points in each cell are a linked list, starting from heads[slot] */
+  int[] next = new int[0];
+  int[] prev = new int[0];
+  /** Table slot of the cell for each point, or -1 for an unused id */
+  int[] slotOf = new int[0];
+
+  int[] freeIds = new int[0];
+  int freeCount;
+
+  /** Hash table of cells, from their packed coordinates to the first point */
+  long[] keys;
+  int[] heads;
+  /** Full coordinates of the cell in each slot, since keys can collide */
+  int[] cellX, cellY, cellZ;
+  int tableMask;
+  int cellCount;
+
+  /** Range of cells that have been used, so searches can stop there */
+  int minX, minY, minZ;
+  int maxX, maxY, maxZ;
+
+  /** Max-heap of the closest points so far during nearest() */
+  int[] heapIds = new int[0];
+  float[] heapDist = new float[0];
+
+
+  public SpatialGrid(float cellSize) {
+    if (!(cellSize > 0)) {
+      throw new IllegalArgumentException("cellSize must be greater than 0");
+    }
+    this.cellSize = cellSize;
+    inverse = 1 / cellSize;
+    resetTable(MIN_TABLE);
+  }
+
+
+  public float cellSize() {
+    return cellSize;
+  }
+
+
+  /**
+   * Get the number of points in the grid.
+   */
+  public int size() {
+    return count;
+  }
+
+
+  /**
+   * Remove all points from the grid.
+   */
+  public void clear() {
+    count = 0;
+    idCount = 0;
+    freeCount = 0;
+    resetTable(MIN_TABLE);
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // ADDING AND MOVING POINTS
+
+
+  public int insert(PVector p) {
+    return insert(p.x, p.y, p.z);
+  }
+
+
+  public int insert(float x, float y) {
+    return insert(x, y, 0);
+  }
+
+
+  /**
+   * Add a point to the grid.
+   * @return id of the point, for use with update(), remove(), and get()
+   */
+  public int insert(float x, float y, float z) {
+    makeRoom();
+    int id;
+    if (freeCount > 0) {
+      id = freeIds[--freeCount];
+    } else {
+      id = idCount++;
+      ensureCapacity(idCount);
+    }
+    count++;
+    px[id] = x;
+    py[id] = y;
+    pz[id] = z;
+    link(id, slot(cell(x), cell(y), cell(z)));
+    return id;
+  }
+
+
+  public void update(int id, PVector p) {
+    update(id, p.x, p.y, p.z);
+  }
+
+
+  public void update(int id, float x, float y) {
+    update(id, x, y, 0);
+  }
+
+
+  /**
+   * Move a point to a new location.
+   */
+  public void update(int id, float x, float y, float z) {
+    checkId(id);
+    int cx = cell(x), cy = cell(y), cz = cell(z);
+    px[id] = x;
+    py[id] = y;
+    pz[id] = z;
+    if (!holds(slotOf[id], cx, cy, cz)) {
+      makeRoom();
+      unlink(id);
+      link(id, slot(cx, cy, cz));
+    }
+  }
+
+
+  /**
+   * Remove a point from the grid. Its id may be given to a later insert().
+   */
+  public void remove(int id) {
+    checkId(id);
+    unlink(id);
+    slotOf[id] = -1;
+    count--;
+    if (freeCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, Math.max(16, freeCount << 1));
+    }
+    freeIds[freeCount++] = id;
+  }
+
+
+  /**
+   * Copy the location of a point into target, or a new PVector if null.
+   */
+  public PVector get(int id, PVector target) {
+    checkId(id);
+    if (target == null) {
+      return new PVector(px[id], py[id], pz[id]);
+    }
+    return target.set(px[id], py[id], pz[id]);
+  }
+
+
+  /**
+   * Replace everything in the grid with these points, which is quicker than
+   * updating them one at a time when they have all moved. The id of each
+   * point is its index in the list.
+   */
+  public void set(List<PVector> points) {
+    int length = points.size();
+    prepare(length);
+    for (int i = 0; i < length; i++) {
+      PVector p = points.get(i);
+      px[i] = p.x;
+      py[i] = p.y;
+      pz[i] = p.z;
+    }
+    relinkAll();
+  }
+
+
+  public void set(PVector[] points) {
+    set(Arrays.asList(points));
+  }
+
+
+  /**
+   * Replace everything in the grid with points held in separate arrays of
+   * x, y, and z values. The z array can be null for 2D points.
+   * @param length number of points to use from the arrays
+   */
+  public void set(float[] x, float[] y, float[] z, int length) {
+    prepare(length);
+    System.arraycopy(x, 0, px, 0, length);
+    System.arraycopy(y, 0, py, 0, length);
+    if (z != null) {
+      System.arraycopy(z, 0, pz, 0, length);
+    } else {
+      Arrays.fill(pz, 0, length, 0);
+    }
+    relinkAll();
+  }
+
+
+  private void prepare(int length) {
+    ensureCapacity(length);
+    count = length;
+    idCount = length;
+    freeCount = 0;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // SEARCHING
+
+
+  public IntList within(PVector p, float radius) {
+    return within(p.x, p.y, p.z, radius, null);
+  }
+
+
+  public IntList within(float x, float y, float radius) {
+    return within(x, y, 0, radius, null);
+  }
+
+
+  /**
+   * Get the ids of all points within radius of (x, y, z), in no particular
+   * order. When searching many times per frame, pass the same IntList as
+   * target each time so that a new one isn't created for every search.
+   * @param target list for the results, or null to make a new one
+   */
+  public IntList within(float x, float y, float z, float radius,
+                        IntList target) {
+    if (target == null) {
+      target = new IntList();
+    } else {
+      target.clear();
+    }
+    int x0 = Math.max(minX, cell(x - radius));
+    int x1 = Math.min(maxX, cell(x + radius));
+    int y0 = Math.max(minY, cell(y - radius));
+    int y1 = Math.min(maxY, cell(y + radius));
+    int z0 = Math.max(minZ, cell(z - radius));
+    int z1 = Math.min(maxZ, cell(z + radius));
+    float radiusSq = radius * radius;
+
+    for (int k = z0; k <= z1; k++) {
+      for (int j = y0; j <= y1; j++) {
+        for (int i = x0; i <= x1; i++) {
+          int slot = find(i, j, k);
+          if (slot == -1) continue;
+          for (int id = heads[slot]; id != -1; id = next[id]) {
+            float dx = px[id] - x;
+            float dy = py[id] - y;
+            float dz = pz[id] - z;
+            if (dx*dx + dy*dy + dz*dz <= radiusSq) {
+              target.append(id);
+            }
+          }
+        }
+      }
+    }
+    return target;
+  }
+
+
+  public IntList nearest(PVector p, int k) {
+    return nearest(p.x, p.y, p.z, k, null);
+  }
+
+
+  public IntList nearest(float x, float y, int k) {
+    return nearest(x, y, 0, k, null);
+  }
+
+
+  /**
+   * Get the ids of the k points closest to (x, y, z), nearest first. Fewer
+   * are returned when the grid has fewer than k points. The search works
+   * outward a ring of cells at a time, so it's quickest when the k points
+   * are found within a few cells.
+   * @param target list for the results, or null to make a new one
+   */
+  public IntList nearest(float x, float y, float z, int k, IntList target) {
+    if (target == null) {
+      target = new IntList();
+    } else {
+      target.clear();
+    }
+    k = Math.min(k, count);
+    if (k <= 0) return target;
+    if (heapIds.length < k) {
+      heapIds = new int[k];
+      heapDist = new float[k];
+    }
+
+    int cx = cell(x), cy = cell(y), cz = cell(z);
+    int rings = Math.max(Math.max(Math.max(cx - minX, maxX - cx),
+                                  Math.max(cy - minY, maxY - cy)),
+                         Math.max(cz - minZ, maxZ - cz));
+    // where the point sits inside its cell, from 0 to 1 on each axis
+    float fx = x * inverse - cx;
+    float fy = y * inverse - cy;
+    float fz = z * inverse - cz;
+    int found = 0;
+    for (int r = 0; r <= rings; r++) {
+      if (found == k && r > 0) {
+        // nothing in ring r or beyond is closer than its nearest face
+        float edge = Float.MAX_VALUE;
+        if (cx - r >= minX) edge = Math.min(edge, fx);
+        if (cx + r <= maxX) edge = Math.min(edge, 1 - fx);
+        if (cy - r >= minY) edge = Math.min(edge, fy);
+        if (cy + r <= maxY) edge = Math.min(edge, 1 - fy);
+        if (cz - r >= minZ) edge = Math.min(edge, fz);
+        if (cz + r <= maxZ) edge = Math.min(edge, 1 - fz);
+        float reach = (r - 1 + edge) * cellSize;
+        if (heapDist[0] <= reach * reach) break;
+      }
+      int z0 = Math.max(minZ, cz - r), z1 = Math.min(maxZ, cz + r);
+      int y0 = Math.max(minY, cy - r), y1 = Math.min(maxY, cy + r);
+      for (int l = z0; l <= z1; l++) {
+        for (int j = y0; j <= y1; j++) {
+          if (Math.abs(l - cz) == r || Math.abs(j - cy) == r) {
+            // a face of the ring, so every cell along x
+            int x0 = Math.max(minX, cx - r), x1 = Math.min(maxX, cx + r);
+            for (int i = x0; i <= x1; i++) {
+              found = visit(i, j, l, x, y, z, k, found);
+            }
+          } else {
+            // inside the ring, only the cells at either end
+            if (cx - r >= minX) {
+              found = visit(cx - r, j, l, x, y, z, k, found);
+            }
+            if (r != 0 && cx + r <= maxX) {
+              found = visit(cx + r, j, l, x, y, z, k, found);
+            }
+          }
+        }
+      }
+    }
+
+    // take the farthest off the heap first to fill the list back to front
+    target.resize(found);
+    for (int n = found - 1; n >= 0; n--) {
+      target.set(n, heapIds[0]);
+      heapIds[0] = heapIds[n];
+      heapDist[0] = heapDist[n];
+      siftDown(n);
+    }
+    return target;
+  }
+
+
+  private int visit(int i, int j, int l, float x, float y, float z,
+                    int k, int found) {
+    int slot = find(i, j, l);
+    if (slot == -1) return found;
+    for (int id = heads[slot]; id != -1; id = next[id]) {
+      float dx = px[id] - x;
+      float dy = py[id] - y;
+      float dz = pz[id] - z;
+      float d = dx*dx + dy*dy + dz*dz;
+      if (found < k) {
+        // add to the end and move up the heap
+        int n = found++;
+        while (n > 0) {
+          int parent = (n - 1) >> 1;
+          if (heapDist[parent] >= d) break;
+          heapIds[n] = heapIds[parent];
+          heapDist[n] = heapDist[parent];
+          n = parent;
+        }
+        heapIds[n] = id;
+        heapDist[n] = d;
+      } else if (d < heapDist[0]) {
+        heapIds[0] = id;
+        heapDist[0] = d;
+        siftDown(k);
+      }
+    }
+    return found;
+  }
+
+
+  /** Move the top of a heap of the given size down to where it belongs. */
+  private void siftDown(int size) {
+    int id = heapIds[0];
+    float d = heapDist[0];
+    int n = 0;
+    while (true) {
+      int child = 2*n + 1;
+      if (child >= size) break;
+      if (child + 1 < size && heapDist[child + 1] > heapDist[child]) {
+        child++;
+      }
+      if (heapDist[child] <= d) break;
+      heapIds[n] = heapIds[child];
+      heapDist[n] = heapDist[child];
+      n = child;
+    }
+    heapIds[n] = id;
+    heapDist[n] = d;
+  }
+
+
+  //////////////////////////////////////////////////////////////
+
+  // CELLS
+
+
+  private int cell(float v) {
+    return (int) Math.floor(v * inverse);
+  }
+
+
+  /**
+   * Pack cell coordinates into a key. Only 21 bits of each coordinate are
+   * kept, so cells 2^21 apart share a key, and the table has to check the
+   * full coordinates with holds() as well.
+   */
+  static private long key(int cx, int cy, int cz) {
+    return ((long) (cx & 0x1FFFFF) << 42) |
+           ((long) (cy & 0x1FFFFF) << 21) |
+           (cz & 0x1FFFFF);
+  }
+
+
+  static private int hash(long key) {
+    key *= 0x9E3779B97F4A7C15L;
+    return (int) (key ^ (key >>> 32));
+  }
+
+
+  /** Get the table slot for a cell, or -1 if it has no points. */
+  private int find(int cx, int cy, int cz) {
+    long key = key(cx, cy, cz);
+    for (int slot = hash(key) & tableMask; ; slot = (slot + 1) & tableMask) {
+      long k = keys[slot];
+      if (k == key && holds(slot, cx, cy, cz)) {
+        return heads[slot] == -1 ? -1 : slot;
+      }
+      if (k == EMPTY) return -1;
+    }
+  }
+
+
+  /** Get the table slot for a cell, adding it if necessary. */
+  private int slot(int cx, int cy, int cz) {
+    long key = key(cx, cy, cz);
+    int slot = hash(key) & tableMask;
+    while (keys[slot] != EMPTY) {
+      if (keys[slot] == key && holds(slot, cx, cy, cz)) return slot;
+      slot = (slot + 1) & tableMask;
+    }
+    keys[slot] = key;
+    cellX[slot] = cx;
+    cellY[slot] = cy;
+    cellZ[slot] = cz;
+    cellCount++;
+    if (cx < minX) minX = cx;
+    if (cx > maxX) maxX = cx;
+    if (cy < minY) minY = cy;
+    if (cy > maxY) maxY = cy;
+    if (cz < minZ) minZ = cz;
+    if (cz > maxZ) maxZ = cz;
+    return slot;
+  }
+
+
+  private boolean holds(int slot, int cx, int cy, int cz) {
+    return cellX[slot] == cx && cellY[slot] == cy && cellZ[slot] == cz;
+  }
+
+
+  private void resetTable(int length) {
+    if (keys == null || keys.length != length) {
+      keys = new long[length];
+      heads = new int[length];
+      cellX = new int[length];
+      cellY = new int[length];
+      cellZ = new int[length];
+      tableMask = length - 1;
+    }
+    Arrays.fill(keys, EMPTY);
+    Arrays.fill(heads, -1);
+    cellCount = 0;
+    minX = minY = minZ = Integer.MAX_VALUE;
+    maxX = maxY = maxZ = Integer.MIN_VALUE;
+  }
+
+
+  /**
+   * Make sure there's room in the table for one more cell. Cells that have
+   * emptied out stay in the table, so when it fills up, start over with just
+   * the cells that still have points.
+   */
+  private void makeRoom() {
+    if (2 * (cellCount + 1) > keys.length) {
+      relinkAll();
+    }
+  }
+
+
+  /** Put every point back into a freshly reset table. */
+  private void relinkAll() {
+    resetTable(Math.max(MIN_TABLE, Integer.highestOneBit(count) << 3));
+    boolean all = freeCount == 0;
+    for (int id = 0; id < idCount; id++) {
+      if (all || slotOf[id] != -1) {
+        link(id, slot(cell(px[id]), cell(py[id]), cell(pz[id])));
+      }
+    }
+  }
+
+
+  private void link(int id, int slot) {
+    int head = heads[slot];
+    next[id] = head;
+    prev[id] = -1;
+    if (head != -1) prev[head] = id;
+    heads[slot] = id;
+    slotOf[id] = slot;
+  }
+
+
+  private void unlink(int id) {
+    int before = prev[id];
+    int after = next[id];
+    if (before != -1) {
+      next[before] = after;
+    } else {
+      heads[slotOf[id]] = after;
+    }
+    if (after != -1) prev[after] = before;
+  }
+
+
+  private void checkId(int id) {
+    if (id < 0 || id >= idCount || slotOf[id] == -1) {
+      throw new IllegalArgumentException("No point with id " + id);
+    }
+  }
+
+
+  private void ensureCapacity(int length) {
+    if (length > px.length) {
+      int capacity = Math.max(length, px.length << 1);
+      px = Arrays.copyOf(px, capacity);
+      py = Arrays.copyOf(py, capacity);
+      pz = Arrays.copyOf(pz, capacity);
+      next = Arrays.copyOf(next, capacity);
+      prev = Arrays.copyOf(prev, capacity);
+      slotOf = Arrays.copyOf(slotOf, capacity);
+    }
+  }
+}
@@ -487,6 +487,8 @@ public class PGraphicsOpenGL extends PGraphics {
   final static protected int   MIN_POINT_ACCURACY    = 20;
   final static protected int   MAX_POINT_ACCURACY    = 200;
   final static protected float POINT_ACCURACY_FACTOR = 10.0f;
+  /** Fewest points around an ellipse when curveTolerance is set */
+  final static protected int   MIN_TOLERANCE_ACCURACY = 8;
 
   /** Used in quad point tessellation. */
   final static protected float[][] QUAD_POINT_SIGNS =
@@ -1383,6 +1385,8 @@ public class PGraphicsOpenGL extends PGraphics {
 
   @Override
   public void beginDraw() {
+    pixelBytesLoaded = 0;
+    pixelBytesUpdated = 0;
     if (primaryGraphics) {
       if (!initialized) {
         initPrimary();
@@ -1849,10 +1853,11 @@ public class PGraphicsOpenGL extends PGraphics {
         // We flush the geometry using the previous line setting.
         flush();
       }
-    } else if (which == ENABLE_DEPTH_SORT) {
+    } else if (which == ENABLE_DEPTH_SORT || which == ENABLE_EXACT_DEPTH_SORT) {
       if (is3D()) {
         flush();
         if (sorter == null) sorter = new DepthSorter(this);
+        sorter.exact = which == ENABLE_EXACT_DEPTH_SORT;
         isDepthSortingEnabled = true;
       } else {
         PGraphics.showWarning("Depth sorting can only be enabled in 3D");
@@ -1862,6 +1867,11 @@ public class PGraphicsOpenGL extends PGraphics {
         flush();
         isDepthSortingEnabled = false;
       }
+    } else if (which == DISABLE_EXACT_DEPTH_SORT) {
+      if (is3D() && sorter != null) {
+        flush();
+        sorter.exact = false;
+      }
     } else if (which == ENABLE_BUFFER_READING) {
       restartPGL();
     } else if (which == DISABLE_BUFFER_READING) {
@@ -2324,8 +2334,14 @@ public class PGraphicsOpenGL extends PGraphics {
 
 
   protected void flushPixels() {
-    drawPixels(mx1, my1, mx2 - mx1, my2 - my1);
-    modified = false;
+    int[] rects = getModifiedRects();
+    for (int i = 0, n = getModifiedRectCount() * 4; i < n; i += 4) {
+      int w = rects[i + 2] - rects[i];
+      int h = rects[i + 3] - rects[i + 1];
+      drawPixels(rects[i], rects[i + 1], w, h);
+      pixelBytesUpdated += 4L * w * h;
+    }
+    setModified(false);
   }
 
 
@@ -2610,15 +2626,15 @@ public class PGraphicsOpenGL extends PGraphics {
     float[] uv = tessGeo.polyTexCoords;
     short[] indices = tessGeo.polyIndices;
 
-    sorter.sort(tessGeo);
-    int[] triangleIndices = sorter.triangleIndices;
+    // flushSortedPolys() has already sorted polyIndices, texMap, and
+    // voffsetMap in place (both the regular and the exact sort do), so
+    // the triangles are read here in order
     int[] texMap = sorter.texMap;
     int[] voffsetMap = sorter.voffsetMap;
 
     int[] vertexOffset = tessGeo.polyIndexCache.vertexOffset;
 
-    for (int i = 0; i < tessGeo.polyIndexCount/3; i++) {
-      int ti = triangleIndices[i];
+    for (int ti = 0; ti < tessGeo.polyIndexCount/3; ti++) {
       PImage tex = texCache.getTextureImage(texMap[ti]);
       int voffset = vertexOffset[voffsetMap[ti]];
 
@@ -5405,6 +5421,7 @@ public class PGraphicsOpenGL extends PGraphics {
       // Idem...
       PGL.getIntArray(pixelBuffer, pixels);
       PGL.nativeToJavaARGB(pixels, pixelWidth, pixelHeight);
+      pixelBytesLoaded += 4L * pixels.length;
     } catch (ArrayIndexOutOfBoundsException e) {
       // ignored
     }
@@ -6151,6 +6168,16 @@ public class PGraphicsOpenGL extends PGraphics {
 
     flush(); // make sure that the screen contents are up to date.
 
+    if (src instanceof PTiledImage tiled) {
+      // only read the tiles that are needed, from a smaller level of the
+      // pyramid when the region is shrunk
+      src = tiled.getScaled(sx, sy, sw, sh, dw, dh);
+      sx = 0;
+      sy = 0;
+      sw = src.pixelWidth;
+      sh = src.pixelHeight;
+    }
+
     Texture tex = getTexture(src);
     boolean invX = tex.invertedX();
     boolean invY = tex.invertedY();
@@ -6397,7 +6424,9 @@ public class PGraphicsOpenGL extends PGraphics {
     Texture tex = (Texture)getCache(img);
     if (tex == null || tex.contextIsOutdated()) {
       tex = addTexture(img);
-      if (tex != null) {
+      if (tex != null && setDirect(img, tex, 0, img.pixelHeight)) {
+        img.setModified(false);
+      } else if (tex != null) {
         boolean dispose = img.pixels == null;
         img.loadPixels();
         tex.set(img.pixels, img.format);
@@ -6491,18 +6520,54 @@ public class PGraphicsOpenGL extends PGraphics {
 
   protected void updateTexture(PImage img, Texture tex) {
     if (tex != null) {
-      if (img.isModified()) {
-        int x = img.getModifiedX1();
-        int y = img.getModifiedY1();
-        int w = img.getModifiedX2() - x;
-        int h = img.getModifiedY2() - y;
-        tex.set(img.pixels, x, y, w, h, img.format);
+      int[] rects = img.getModifiedRects();
+      for (int i = 0, n = img.getModifiedRectCount() * 4; i < n; i += 4) {
+        int x = rects[i];
+        int y = rects[i + 1];
+        int w = rects[i + 2] - x;
+        int h = rects[i + 3] - y;
+        if (setDirect(img, tex, y, y + h)) {
+          pixelBytesUpdated += 4L * img.pixelWidth * h;
+        } else if (w == img.pixelWidth && h == img.pixelHeight) {
+          tex.set(img.pixels, 0, 0, w, h, img.format);
+          pixelBytesUpdated += 4L * w * h;
+        } else if (w > 0 && h > 0) {
+          // Texture.set() expects just the pixels inside the region
+          int[] region = new int[w * h];
+          for (int j = 0; j < h; j++) {
+            System.arraycopy(img.pixels, (y + j) * img.pixelWidth + x,
+                             region, j * w, w);
+          }
+          tex.set(region, x, y, w, h, img.format);
+          pixelBytesUpdated += 4L * w * h;
+        }
       }
     }
     img.setModified(false);
   }
 
 
+  /**
+   * Upload rows y1 to y2 of an image straight from its directPixels(),
+   * which are already in OpenGL order, so nothing needs to be converted or
+   * copied. Whole rows are sent so that they're one contiguous piece of
+   * the buffer. Returns false if the image has no direct pixels, or the
+   * texture expects them in some other arrangement.
+   */
+  protected boolean setDirect(PImage img, Texture tex, int y1, int y2) {
+    if (!img.hasDirectPixels() || tex.invertedX() || tex.invertedY() ||
+        tex.width != img.pixelWidth || tex.height != img.pixelHeight) {
+      return false;
+    }
+    if (y2 > y1) {
+      int w = img.pixelWidth;
+      tex.setNative(img.directPixels().slice(y1 * w, (y2 - y1) * w),
+                    0, y1, w, y2 - y1);
+    }
+    return true;
+  }
+
+
   protected void deleteSurfaceTextures() {
     if (texture != null) {
       texture.dispose();
@@ -6541,6 +6606,12 @@ public class PGraphicsOpenGL extends PGraphics {
   }
 
 
+  @Override
+  public void resize(int wide, int high, int filter) {
+    PGraphics.showMethodWarning("resize");
+  }
+
+
   //////////////////////////////////////////////////////////////
 
   // INITIALIZATION ROUTINES
@@ -7514,6 +7585,26 @@ public class PGraphicsOpenGL extends PGraphics {
       return size - 1;
     }
 
+    // Adds entries first to last - 1 of another cache, moved to follow the
+    // entries already here as if they had been added with addNew().
+    void append(IndexCache src, int first, int last) {
+      if (first == last) return;
+      int indexShift = -src.indexOffset[first];
+      int vertexShift = -src.vertexOffset[first];
+      if (0 < size) {
+        indexShift += indexOffset[size - 1] + indexCount[size - 1];
+        vertexShift += vertexOffset[size - 1] + vertexCount[size - 1];
+      }
+      for (int i = first; i < last; i++) {
+        arrayCheck();
+        indexCount[size] = src.indexCount[i];
+        indexOffset[size] = src.indexOffset[i] + indexShift;
+        vertexCount[size] = src.vertexCount[i];
+        vertexOffset[size] = src.vertexOffset[i] + vertexShift;
+        size++;
+      }
+    }
+
     int getLast() {
       if (size == 0) {
         arrayCheck();
@@ -8699,16 +8790,7 @@ public class PGraphicsOpenGL extends PGraphics {
       float centerX = x + radiusH;
       float centerY = y + radiusV;
 
-      // should call screenX/Y using current renderer.
-      float sx1 = pg.screenX(x, y);
-      float sy1 = pg.screenY(x, y);
-      float sx2 = pg.screenX(x + w, y + h);
-      float sy2 = pg.screenY(x + w, y + h);
-
-      int accuracy =
-        PApplet.min(MAX_POINT_ACCURACY, PApplet.max(MIN_POINT_ACCURACY,
-                    (int) (TWO_PI * PApplet.dist(sx1, sy1, sx2, sy2) /
-                    POINT_ACCURACY_FACTOR)));
+      int accuracy = ellipseAccuracy(x, y, w, h);
       float inc = (float) SINCOS_LENGTH / accuracy;
 
       if (fill) {
@@ -8741,6 +8823,28 @@ public class PGraphicsOpenGL extends PGraphics {
       }
     }
 
+    // Number of points around a full ellipse, from its size on screen.
+    int ellipseAccuracy(float x, float y, float w, float h) {
+      // should call screenX/Y using current renderer.
+      float sx1 = pg.screenX(x, y);
+      float sy1 = pg.screenY(x, y);
+      float sx2 = pg.screenX(x + w, y + h);
+      float sy2 = pg.screenY(x + w, y + h);
+      float diagonal = PApplet.dist(sx1, sy1, sx2, sy2);
+
+      if (pg.curveTolerance > 0) {
+        // The middle of each side is r * (1 - cos(PI / accuracy)) from the
+        // curve. Half the diagonal is at least as big as either radius.
+        float r = diagonal / 2;
+        float cos = PApplet.max(-1, 1 - pg.curveTolerance / r);
+        int accuracy = (int) Math.ceil(PI / Math.acos(cos));
+        return PApplet.constrain(accuracy, MIN_TOLERANCE_ACCURACY,
+                                 SINCOS_LENGTH);
+      }
+      return PApplet.min(MAX_POINT_ACCURACY, PApplet.max(MIN_POINT_ACCURACY,
+                         (int) (TWO_PI * diagonal / POINT_ACCURACY_FACTOR)));
+    }
+
     // arcMode can be 0, OPEN, CHORD, or PIE
     void addArc(float x, float y, float w, float h,
                 float start, float stop,
@@ -8787,15 +8891,7 @@ public class PGraphicsOpenGL extends PGraphics {
 
       int inc;
       { // initializes inc the same way ellipse does
-        float sx1 = pg.screenX(x, y);
-        float sy1 = pg.screenY(x, y);
-        float sx2 = pg.screenX(x + w, y + h);
-        float sy2 = pg.screenY(x + w, y + h);
-
-        int accuracy =
-          PApplet.min(MAX_POINT_ACCURACY, PApplet.max(MIN_POINT_ACCURACY,
-                      (int) (TWO_PI * PApplet.dist(sx1, sy1, sx2, sy2) /
-                      POINT_ACCURACY_FACTOR)));
+        int accuracy = ellipseAccuracy(x, y, w, h);
         inc = PApplet.max(1, SINCOS_LENGTH / accuracy);
       }
 
@@ -9385,6 +9481,80 @@ public class PGraphicsOpenGL extends PGraphics {
       lastPointIndex = pointIndexCount - 1;
     }
 
+    // -----------------------------------------------------------------
+    //
+    // Merging
+
+    // The vertex, index, and index cache counts, to mark where the geometry
+    // of one shape begins and ends.
+    int[] getCounts() {
+      return new int[] {
+        polyVertexCount, polyIndexCount, polyIndexCache.size,
+        lineVertexCount, lineIndexCount, lineIndexCache.size,
+        pointVertexCount, pointIndexCount, pointIndexCache.size
+      };
+    }
+
+    // Adds the geometry that src received between the two getCounts(), as
+    // if it had been tessellated here. Indices are relative to the offsets
+    // in their index cache, so only the caches need to be moved. Custom
+    // vertex attributes aren't copied, so groups that have them are never
+    // tessellated in parallel (see PShapeOpenGL.tessellateChildren()).
+    void append(TessGeometry src, int[] start, int[] stop) {
+      int count = stop[0] - start[0];
+      if (0 < count) {
+        polyVertexCheck(count);
+        int from = start[0];
+        int to = firstPolyVertex;
+        PApplet.arrayCopy(src.polyVertices, 4 * from, polyVertices, 4 * to, 4 * count);
+        PApplet.arrayCopy(src.polyColors, from, polyColors, to, count);
+        PApplet.arrayCopy(src.polyNormals, 3 * from, polyNormals, 3 * to, 3 * count);
+        PApplet.arrayCopy(src.polyTexCoords, 2 * from, polyTexCoords, 2 * to, 2 * count);
+        PApplet.arrayCopy(src.polyAmbient, from, polyAmbient, to, count);
+        PApplet.arrayCopy(src.polySpecular, from, polySpecular, to, count);
+        PApplet.arrayCopy(src.polyEmissive, from, polyEmissive, to, count);
+        PApplet.arrayCopy(src.polyShininess, from, polyShininess, to, count);
+      }
+      count = stop[1] - start[1];
+      if (0 < count) {
+        polyIndexCheck(count);
+        PApplet.arrayCopy(src.polyIndices, start[1], polyIndices, firstPolyIndex, count);
+      }
+      polyIndexCache.append(src.polyIndexCache, start[2], stop[2]);
+
+      count = stop[3] - start[3];
+      if (0 < count) {
+        lineVertexCheck(count);
+        int from = start[3];
+        int to = firstLineVertex;
+        PApplet.arrayCopy(src.lineVertices, 4 * from, lineVertices, 4 * to, 4 * count);
+        PApplet.arrayCopy(src.lineColors, from, lineColors, to, count);
+        PApplet.arrayCopy(src.lineDirections, 4 * from, lineDirections, 4 * to, 4 * count);
+      }
+      count = stop[4] - start[4];
+      if (0 < count) {
+        lineIndexCheck(count);
+        PApplet.arrayCopy(src.lineIndices, start[4], lineIndices, firstLineIndex, count);
+      }
+      lineIndexCache.append(src.lineIndexCache, start[5], stop[5]);
+
+      count = stop[6] - start[6];
+      if (0 < count) {
+        pointVertexCheck(count);
+        int from = start[6];
+        int to = firstPointVertex;
+        PApplet.arrayCopy(src.pointVertices, 4 * from, pointVertices, 4 * to, 4 * count);
+        PApplet.arrayCopy(src.pointColors, from, pointColors, to, count);
+        PApplet.arrayCopy(src.pointOffsets, 2 * from, pointOffsets, 2 * to, 2 * count);
+      }
+      count = stop[7] - start[7];
+      if (0 < count) {
+        pointIndexCheck(count);
+        PApplet.arrayCopy(src.pointIndices, start[7], pointIndices, firstPointIndex, count);
+      }
+      pointIndexCache.append(src.pointIndexCache, start[8], stop[8]);
+    }
+
     // -----------------------------------------------------------------
     //
     // Query
@@ -11324,6 +11494,76 @@ public class PGraphicsOpenGL extends PGraphics {
       polyShininess[tessIdx] = shine;
     }
 
+    // Adds the vertex at barycentric coordinates (b0, b1, b2) in the triangle
+    // with vertices i0, i1, and i2, blending all their attributes. Used when
+    // triangles are split up for sorting.
+    void addPolyVertex(int i0, int i1, int i2, float b0, float b1, float b2) {
+      polyVertexCheck();
+      int tessIdx = polyVertexCount - 1;
+
+      for (int k = 0; k < 4; k++) {
+        polyVertices[4 * tessIdx + k] = b0 * polyVertices[4 * i0 + k] +
+                                        b1 * polyVertices[4 * i1 + k] +
+                                        b2 * polyVertices[4 * i2 + k];
+      }
+      for (int k = 0; k < 3; k++) {
+        polyNormals[3 * tessIdx + k] = b0 * polyNormals[3 * i0 + k] +
+                                       b1 * polyNormals[3 * i1 + k] +
+                                       b2 * polyNormals[3 * i2 + k];
+      }
+      for (int k = 0; k < 2; k++) {
+        polyTexCoords[2 * tessIdx + k] = b0 * polyTexCoords[2 * i0 + k] +
+                                         b1 * polyTexCoords[2 * i1 + k] +
+                                         b2 * polyTexCoords[2 * i2 + k];
+      }
+      polyColors[tessIdx] = blendColor(polyColors, i0, i1, i2, b0, b1, b2);
+      polyAmbient[tessIdx] = blendColor(polyAmbient, i0, i1, i2, b0, b1, b2);
+      polySpecular[tessIdx] = blendColor(polySpecular, i0, i1, i2, b0, b1, b2);
+      polyEmissive[tessIdx] = blendColor(polyEmissive, i0, i1, i2, b0, b1, b2);
+      polyShininess[tessIdx] = b0 * polyShininess[i0] +
+                               b1 * polyShininess[i1] +
+                               b2 * polyShininess[i2];
+
+      // booleans can't be blended, so those come from the nearest vertex
+      int nearest = b0 >= b1 && b0 >= b2 ? i0 : b1 >= b2 ? i1 : i2;
+      for (String name: polyAttribs.keySet()) {
+        VertexAttribute attrib = polyAttribs.get(name);
+        int size = attrib.tessSize;
+        if (attrib.type == PGL.FLOAT) {
+          float[] values = fpolyAttribs.get(name);
+          for (int k = 0; k < size; k++) {
+            values[size * tessIdx + k] = b0 * values[size * i0 + k] +
+                                         b1 * values[size * i1 + k] +
+                                         b2 * values[size * i2 + k];
+          }
+        } else if (attrib.type == PGL.INT) {
+          int[] values = ipolyAttribs.get(name);
+          for (int k = 0; k < size; k++) {
+            values[size * tessIdx + k] =
+              Math.round(b0 * values[size * i0 + k] +
+                         b1 * values[size * i1 + k] +
+                         b2 * values[size * i2 + k]);
+          }
+        } else if (attrib.type == PGL.BOOL) {
+          byte[] values = bpolyAttribs.get(name);
+          PApplet.arrayCopy(values, size * nearest, values, size * tessIdx, size);
+        }
+      }
+    }
+
+    static int blendColor(int[] colors, int i0, int i1, int i2,
+                          float b0, float b1, float b2) {
+      int c0 = colors[i0], c1 = colors[i1], c2 = colors[i2];
+      int result = 0;
+      for (int shift = 0; shift < 32; shift += 8) {
+        float value = b0 * ((c0 >>> shift) & 0xFF) +
+                      b1 * ((c1 >>> shift) & 0xFF) +
+                      b2 * ((c2 >>> shift) & 0xFF);
+        result |= PApplet.constrain((int) (value + 0.5f), 0, 255) << shift;
+      }
+      return result;
+    }
+
     void addPolyVertices(InGeometry in, boolean clampXY) {
       addPolyVertices(in, 0, in.vertexCount - 1, clampXY);
     }
@@ -11875,6 +12115,12 @@ public class PGraphicsOpenGL extends PGraphics {
     int firstPointIndexCache;
     int lastPointIndexCache;
 
+    // Curves that are split into a different number of segments than the
+    // bezier or curve detail use this matrix rather than the renderer's, so
+    // that several tessellators can work at the same time.
+    PMatrix3D splineMatrix;
+    int splineSegments;
+
     // Accessor arrays to get the geometry data needed to tessellate the
     // strokes, it can point to either the input geometry, or the internal
     // path vertices generated in the polygon discretization.
@@ -11976,6 +12222,29 @@ public class PGraphicsOpenGL extends PGraphics {
       pg.curveVertexCount = 0;
     }
 
+    void bezierInitCheck() {
+      pg.bezierInitCheck();
+    }
+
+    PMatrix3D splineDrawMatrix(PMatrix3D basis, PMatrix3D draw, int detail,
+                               float x1, float y1, float z1,
+                               float x2, float y2, float z2,
+                               float x3, float y3, float z3,
+                               float x4, float y4, float z4) {
+      splineSegments = pg.splineSegments(basis, detail, transformScale(),
+                                         x1, y1, z1, x2, y2, z2,
+                                         x3, y3, z3, x4, y4, z4);
+      if (splineSegments == detail) {
+        return draw;
+      }
+      if (splineMatrix == null) {
+        splineMatrix = new PMatrix3D();
+      }
+      pg.splineForward(splineSegments, splineMatrix);
+      splineMatrix.apply(basis);
+      return splineMatrix;
+    }
+
     // -----------------------------------------------------------------
     //
     // Point tessellation
@@ -13550,8 +13819,6 @@ public class PGraphicsOpenGL extends PGraphics {
       pg.bezierInitCheck();
       pg.bezierVertexCheck(POLYGON, i);
 
-      PMatrix3D draw = pg.bezierDrawMatrix;
-
       int i1 = i - 1;
       float x1 = in.vertices[3*i1 + 0];
       float y1 = in.vertices[3*i1 + 1];
@@ -13576,6 +13843,12 @@ public class PGraphicsOpenGL extends PGraphics {
       float y4 = in.vertices[3*(i+2) + 1];
       float z4 = in.vertices[3*(i+2) + 2];
 
+      PMatrix3D draw =
+        splineDrawMatrix(pg.bezierBasisMatrix, pg.bezierDrawMatrix,
+                         pg.bezierDetail, x1, y1, z1, x2, y2, z2,
+                         x3, y3, z3, x4, y4, z4);
+      int segments = splineSegments;
+
       float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
       float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
       float xplot3 = draw.m30*x1 + draw.m31*x2 + draw.m32*x3 + draw.m33*x4;
@@ -13588,7 +13861,7 @@ public class PGraphicsOpenGL extends PGraphics {
       float zplot2 = draw.m20*z1 + draw.m21*z2 + draw.m22*z3 + draw.m23*z4;
       float zplot3 = draw.m30*z1 + draw.m31*z2 + draw.m32*z3 + draw.m33*z4;
 
-      for (int j = 0; j < pg.bezierDetail; j++) {
+      for (int j = 0; j < segments; j++) {
         x1 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
         y1 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
         z1 += zplot1; zplot1 += zplot2; zplot2 += zplot3;
@@ -13608,8 +13881,6 @@ public class PGraphicsOpenGL extends PGraphics {
       pg.bezierInitCheck();
       pg.bezierVertexCheck(POLYGON, i);
 
-      PMatrix3D draw = pg.bezierDrawMatrix;
-
       int i1 = i - 1;
       float x1 = in.vertices[3*i1 + 0];
       float y1 = in.vertices[3*i1 + 1];
@@ -13641,6 +13912,12 @@ public class PGraphicsOpenGL extends PGraphics {
       float y4 = y;
       float z4 = z;
 
+      PMatrix3D draw =
+        splineDrawMatrix(pg.bezierBasisMatrix, pg.bezierDrawMatrix,
+                         pg.bezierDetail, x1, y1, z1, x2, y2, z2,
+                         x3, y3, z3, x4, y4, z4);
+      int segments = splineSegments;
+
       float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
       float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
       float xplot3 = draw.m30*x1 + draw.m31*x2 + draw.m32*x3 + draw.m33*x4;
@@ -13653,7 +13930,7 @@ public class PGraphicsOpenGL extends PGraphics {
       float zplot2 = draw.m20*z1 + draw.m21*z2 + draw.m22*z3 + draw.m23*z4;
       float zplot3 = draw.m30*z1 + draw.m31*z2 + draw.m32*z3 + draw.m33*z4;
 
-      for (int j = 0; j < pg.bezierDetail; j++) {
+      for (int j = 0; j < segments; j++) {
         x1 += xplot1; xplot1 += xplot2; xplot2 += xplot3;
         y1 += yplot1; yplot1 += yplot2; yplot2 += yplot3;
         z1 += zplot1; zplot1 += zplot2; zplot2 += zplot3;
@@ -13724,7 +14001,11 @@ public class PGraphicsOpenGL extends PGraphics {
       float y = y2;
       float z = z2;
 
-      PMatrix3D draw = pg.curveDrawMatrix;
+      PMatrix3D draw =
+        splineDrawMatrix(pg.curveBasisMatrix, pg.curveDrawMatrix,
+                         pg.curveDetail, x1, y1, z1, x2, y2, z2,
+                         x3, y3, z3, x4, y4, z4);
+      int segments = splineSegments;
 
       float xplot1 = draw.m10*x1 + draw.m11*x2 + draw.m12*x3 + draw.m13*x4;
       float xplot2 = draw.m20*x1 + draw.m21*x2 + draw.m22*x3 + draw.m23*x4;
@@ -13738,7 +14019,7 @@ public class PGraphicsOpenGL extends PGraphics {
       float zplot2 = draw.m20*z1 + draw.m21*z2 + draw.m22*z3 + draw.m23*z4;
       float zplot3 = draw.m30*z1 + draw.m31*z2 + draw.m32*z3 + draw.m33*z4;
 
-      for (int j = 0; j < pg.curveDetail; j++) {
+      for (int j = 0; j < segments; j++) {
         x += xplot1; xplot1 += xplot2; xplot2 += xplot3;
         y += yplot1; yplot1 += yplot2; yplot2 += yplot3;
         z += zplot1; zplot1 += zplot2; zplot2 += zplot3;
@@ -14220,6 +14501,24 @@ public class PGraphicsOpenGL extends PGraphics {
     static final int Y2 = 7;
     static final int Z2 = 8;
 
+    // Bits of the depth keys sorted in each pass of the radix sort
+    static final int RADIX_BITS = 11;
+    static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+    // Fixing the order of triangles that overlap in depth can mean testing
+    // every one against every other, so this many tests per triangle are
+    // done at most (but never fewer than MIN_RESOLVE_TESTS). Past that, the
+    // triangles are left sorted by depth only.
+    static final int RESOLVE_TESTS_PER_TRIANGLE = 16;
+    static final int MIN_RESOLVE_TESTS = 1 << 20;
+
+    // For the exact sort: how close to a plane a point counts as lying in
+    // it, how many triangles are tried as the plane that splits the others
+    // up, and how many of the others each one is tried against.
+    static final float PLANE_EPSILON = 1e-6f;
+    static final int SPLITTER_CANDIDATES = 5;
+    static final int SPLITTER_SAMPLES = 256;
+
     int[] triangleIndices = new int[0];
     int[] texMap = new int[0];
     int[] voffsetMap = new int[0];
@@ -14231,7 +14530,13 @@ public class PGraphicsOpenGL extends PGraphics {
     float[] maxYBuffer = new float[0];
     float[] maxZBuffer = new float[0];
 
+    int[] depthKeys = new int[0];
+    int[] depthKeysTemp = new int[0];
+    int[] triangleIndicesTemp = new int[0];
+    int[] radixCounts = new int[RADIX_MASK + 1];
+
     float[] screenVertices = new float[0];
+    float[] screenW = new float[0];
 
     float[] triA = new float[9];
     float[] triB = new float[9];
@@ -14239,6 +14544,23 @@ public class PGraphicsOpenGL extends PGraphics {
     BitSet marked = new BitSet();
     BitSet swapped = new BitSet();
 
+    // The exact sort cuts triangles into pieces. Each piece has three
+    // points, stored as the screen position, w, and barycentric coordinates
+    // in the triangle it came from, so the vertex attributes can be blended.
+    boolean exact;
+    int pointCount;
+    float[] points = new float[0];
+    int pieceCount;
+    int[] pieceCorners = new int[0];
+    int[] pieceTriangles = new int[0];
+    int[] triangleVertices = new int[0];
+    float[] trianglePlanes = new float[0];
+    int[] sortedPieces = new int[0];
+    int[] sortedTexMap = new int[0];
+    int[] sortedVoffsetMap = new int[0];
+    short[] sortedIndices = new short[0];
+    BitSet emitted = new BitSet();
+
     PGraphicsOpenGL pg;
 
     DepthSorter (PGraphicsOpenGL pg) {
@@ -14257,6 +14579,9 @@ public class PGraphicsOpenGL extends PGraphics {
         maxXBuffer      = new float[newSize];
         maxYBuffer      = new float[newSize];
         maxZBuffer      = new float[newSize];
+        depthKeys           = new int[newSize];
+        depthKeysTemp       = new int[newSize];
+        triangleIndicesTemp = new int[newSize];
       }
     }
 
@@ -14265,12 +14590,17 @@ public class PGraphicsOpenGL extends PGraphics {
       if (screenVertices.length < coordCount) {
         int newSize = (coordCount / 4 + 1) * 5;
         screenVertices  = new float[newSize];
+        screenW         = new float[newSize / 3 + 1];
       }
     }
 
     // Sorting --------------------------------------------
 
     void sort(TessGeometry tessGeo) {
+      sort(tessGeo, pg.texCache, pg.projection);
+    }
+
+    void sort(TessGeometry tessGeo, TexCache texCache, PMatrix3D projection) {
 
       int triangleCount = tessGeo.polyIndexCount / 3;
       checkIndexBuffers(triangleCount);
@@ -14285,7 +14615,6 @@ public class PGraphicsOpenGL extends PGraphics {
       }
 
       { // Map caches to triangles
-        TexCache texCache = pg.texCache;
         IndexCache indexCache = tessGeo.polyIndexCache;
         for (int i = 0; i < texCache.size; i++) {
           int first = texCache.firstCache[i];
@@ -14310,11 +14639,10 @@ public class PGraphicsOpenGL extends PGraphics {
         int polyVertexCount = tessGeo.polyVertexCount;
         checkVertexBuffer(polyVertexCount);
         float[] screenVertices = this.screenVertices;
+        float[] screenW = this.screenW;
 
         float[] polyVertices = tessGeo.polyVertices;
 
-        PMatrix3D projection = pg.projection;
-
         for (int i = 0; i < polyVertexCount; i++) {
           float x = polyVertices[4*i+X];
           float y = polyVertices[4*i+Y];
@@ -14337,8 +14665,15 @@ public class PGraphicsOpenGL extends PGraphics {
           screenVertices[3*i+X] = ox;
           screenVertices[3*i+Y] = oy;
           screenVertices[3*i+Z] = -oz;
+          screenW[i] = ow;
         }
       }
+
+      if (exact) {
+        sortExact(tessGeo, triangleCount);
+        return;
+      }
+
       float[] screenVertices = this.screenVertices;
 
       int[] vertexOffset = tessGeo.polyIndexCache.vertexOffset;
@@ -14357,16 +14692,18 @@ public class PGraphicsOpenGL extends PGraphics {
         maxZBuffer[i] = PApplet.max(triA[Z0], triA[Z1], triA[Z2]);
       }
 
-      sortByMinZ(0, triangleCount - 1, triangleIndices, minZBuffer);
+      sortByMinZ(triangleCount);
 
       int activeTid = 0;
+      long budget = Math.max(MIN_RESOLVE_TESTS,
+                             (long) RESOLVE_TESTS_PER_TRIANGLE * triangleCount);
 
       BitSet marked = this.marked;
       BitSet swapped = this.swapped;
 
       marked.clear();
 
-      while (activeTid < triangleCount) {
+      while (activeTid < triangleCount && 0 < budget) {
         int testTid = activeTid + 1;
         boolean draw = false;
 
@@ -14381,8 +14718,9 @@ public class PGraphicsOpenGL extends PGraphics {
 
         fetchTriCoords(triA, ati, vertexOffset, voffsetMap, screenVertices, polyIndices);
 
-        while (!draw && testTid < triangleCount) {
+        while (!draw && testTid < triangleCount && 0 < budget) {
           int tti = triangleIndices[testTid];
+          budget--;
 
           // TEST 1 // Z overlap
           if (maxZA <= minZBuffer[tti] && !marked.get(tti)) {
@@ -14488,30 +14826,367 @@ public class PGraphicsOpenGL extends PGraphics {
       tri[Z2] = screenVertices[i2+Z];
     }
 
-    static void sortByMinZ(int leftTid, int rightTid, int[] triangleIndices,
-        float[] minZBuffer) {
-
-      // swap pivot to the front
-      swap(triangleIndices, leftTid, ((leftTid + rightTid) / 2));
+    // Sorts the first count triangle indices by min z with a radix sort,
+    // which takes the same time for every pass no matter how the triangles
+    // are laid out. The float bits are flipped so that they sort as ints
+    // in the same order as the floats.
+    void sortByMinZ(int count) {
+      int[] indices = triangleIndices;
+      int[] indicesTemp = triangleIndicesTemp;
+      int[] keys = depthKeys;
+      int[] keysTemp = depthKeysTemp;
+      int[] counts = radixCounts;
 
-      int k = leftTid;
-      float leftMinZ = minZBuffer[triangleIndices[leftTid]];
+      for (int i = 0; i < count; i++) {
+        int bits = Float.floatToIntBits(minZBuffer[indices[i]]);
+        keys[i] = bits ^ ((bits >> 31) | 0x80000000);
+      }
 
-      // sort by min z
-      for (int tid = leftTid+1; tid <= rightTid; tid++) {
-        float minZ = minZBuffer[triangleIndices[tid]];
-        if (minZ < leftMinZ) {
-          swap(triangleIndices, ++k, tid);
+      for (int shift = 0; shift < 32; shift += RADIX_BITS) {
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < count; i++) {
+          counts[(keys[i] >>> shift) & RADIX_MASK]++;
+        }
+        if (count == 0 || counts[(keys[0] >>> shift) & RADIX_MASK] == count) {
+          continue;  // all the same in these bits
+        }
+        int sum = 0;
+        for (int d = 0; d <= RADIX_MASK; d++) {
+          int c = counts[d];
+          counts[d] = sum;
+          sum += c;
+        }
+        for (int i = 0; i < count; i++) {
+          int key = keys[i];
+          int j = counts[(key >>> shift) & RADIX_MASK]++;
+          keysTemp[j] = key;
+          indicesTemp[j] = indices[i];
         }
+        int[] temp = keys;
+        keys = keysTemp;
+        keysTemp = temp;
+        temp = indices;
+        indices = indicesTemp;
+        indicesTemp = temp;
       }
 
-      // swap pivot back to the middle
-      swap(triangleIndices, leftTid, k);
+      if (indices != triangleIndices) {
+        System.arraycopy(indices, 0, triangleIndices, 0, count);
+      }
+    }
 
-      if (leftTid  < k - 1) sortByMinZ(leftTid,  k - 1, triangleIndices,
-          minZBuffer);
-      if (k + 1 < rightTid) sortByMinZ(k + 1, rightTid, triangleIndices,
-          minZBuffer);
+    // Exact sorting --------------------------------------
+
+    // Builds a BSP tree from the triangles, walking it from back to front
+    // as it goes, and cuts any triangle that crosses the plane of another
+    // one into pieces. Those pieces get new vertices at the end of tessGeo
+    // (with index caches of their own), and the sorted triangles replace
+    // the old ones in polyIndices, texMap, and voffsetMap.
+    void sortExact(TessGeometry tessGeo, int triangleCount) {
+      int[] vertexOffset = tessGeo.polyIndexCache.vertexOffset;
+      short[] polyIndices = tessGeo.polyIndices;
+      float[] screenVertices = this.screenVertices;
+      float[] screenW = this.screenW;
+
+      pointCount = 0;
+      pieceCount = 0;
+      if (triangleVertices.length < 3 * triangleCount) {
+        triangleVertices = new int[3 * triangleCount];
+        trianglePlanes = new float[4 * triangleCount];
+      }
+      int[] start = new int[triangleCount];
+      for (int t = 0; t < triangleCount; t++) {
+        int voffset = vertexOffset[voffsetMap[t]];
+        for (int k = 0; k < 3; k++) {
+          int v = voffset + polyIndices[3*t+k];
+          triangleVertices[3*t+k] = v;
+          addPoint(screenVertices[3*v+X], screenVertices[3*v+Y],
+                   screenVertices[3*v+Z], screenW[v],
+                   k == 0 ? 1 : 0, k == 1 ? 1 : 0, k == 2 ? 1 : 0);
+        }
+        addPiece(3*t, 3*t+1, 3*t+2, t);
+        trianglePlane(t);
+        start[t] = t;
+      }
+
+      // Sets of pieces still to be split up, and sets ready to draw
+      int sortedCount = 0;
+      ArrayList<int[]> stack = new ArrayList<>();
+      BitSet emitted = this.emitted;
+      emitted.clear();
+      if (0 < triangleCount) stack.add(start);
+
+      float[] distances = new float[3];
+      while (!stack.isEmpty()) {
+        int top = stack.size() - 1;
+        int[] set = stack.remove(top);
+        int splitter = emitted.get(top) || set.length == 1 ? -1 : chooseSplitter(set);
+        emitted.clear(top);
+        if (splitter == -1) {
+          if (sortedPieces.length < sortedCount + set.length) {
+            sortedPieces = Arrays.copyOf(sortedPieces,
+                                         2 * (sortedCount + set.length));
+          }
+          System.arraycopy(set, 0, sortedPieces, sortedCount, set.length);
+          sortedCount += set.length;
+          continue;
+        }
+
+        float[] plane = trianglePlanes;
+        int pi = 4 * pieceTriangles[splitter];
+        int[] front = new int[2 * set.length];
+        int[] back = new int[2 * set.length];
+        int[] coplanar = new int[set.length];
+        int frontCount = 0, backCount = 0, coplanarCount = 0;
+        int splitTriangle = pieceTriangles[splitter];
+        for (int piece: set) {
+          int sides = pieceTriangles[piece] == splitTriangle ? 0 :
+              classify(piece, plane[pi+X], plane[pi+Y], plane[pi+Z],
+                       plane[pi+W], distances);
+          if (sides == 0) {
+            coplanar[coplanarCount++] = piece;
+          } else if (sides == 1) {
+            front[frontCount++] = piece;
+          } else if (sides == -1) {
+            back[backCount++] = piece;
+          } else {
+            if (front.length < frontCount + 2) front = Arrays.copyOf(front, 2 * front.length);
+            if (back.length < backCount + 2) back = Arrays.copyOf(back, 2 * back.length);
+            int cut = pieceCount;
+            int frontPieces = splitPiece(piece, distances);
+            for (int p = cut; p < pieceCount; p++) {
+              if (p < cut + frontPieces) {
+                front[frontCount++] = p;
+              } else {
+                back[backCount++] = p;
+              }
+            }
+          }
+        }
+
+        // The viewer is toward +z, so the side the plane faces away from
+        // is drawn first. The stack is last in, first out.
+        boolean frontIsNear = 0 <= plane[pi+Z];
+        int[] near = frontIsNear ? Arrays.copyOf(front, frontCount)
+                                 : Arrays.copyOf(back, backCount);
+        int[] far = frontIsNear ? Arrays.copyOf(back, backCount)
+                                : Arrays.copyOf(front, frontCount);
+        if (0 < near.length) stack.add(near);
+        emitted.set(stack.size());
+        stack.add(Arrays.copyOf(coplanar, coplanarCount));
+        if (0 < far.length) stack.add(far);
+      }
+
+      { // Write out the sorted triangles, adding the vertices of the pieces
+        if (sortedTexMap.length < sortedCount) {
+          int newSize = (sortedCount / 4 + 1) * 5;
+          sortedTexMap = new int[newSize];
+          sortedVoffsetMap = new int[newSize];
+          sortedIndices = new short[3 * newSize];
+        }
+        IndexCache cache = tessGeo.polyIndexCache;
+        int pieceCache = -1;
+        for (int i = 0; i < sortedCount; i++) {
+          int piece = sortedPieces[i];
+          int t = pieceTriangles[piece];
+          sortedTexMap[i] = texMap[t];
+          if (piece < triangleCount) {
+            // still the whole triangle
+            sortedVoffsetMap[i] = voffsetMap[t];
+            sortedIndices[3*i+0] = polyIndices[3*t+0];
+            sortedIndices[3*i+1] = polyIndices[3*t+1];
+            sortedIndices[3*i+2] = polyIndices[3*t+2];
+            continue;
+          }
+          if (pieceCache == -1 ||
+              PGL.MAX_VERTEX_INDEX1 < cache.vertexCount[pieceCache] + 3) {
+            pieceCache = cache.addNew();
+            cache.vertexOffset[pieceCache] = tessGeo.polyVertexCount;
+            cache.vertexCount[pieceCache] = 0;
+          }
+          for (int k = 0; k < 3; k++) {
+            int p = 7 * pieceCorners[3*piece+k];
+            tessGeo.addPolyVertex(triangleVertices[3*t+0],
+                                  triangleVertices[3*t+1],
+                                  triangleVertices[3*t+2],
+                                  points[p+4], points[p+5], points[p+6]);
+            sortedIndices[3*i+k] = (short) cache.vertexCount[pieceCache]++;
+          }
+          cache.indexCount[pieceCache] += 3;
+          sortedVoffsetMap[i] = pieceCache;
+        }
+
+        if (triangleCount < sortedCount) {
+          tessGeo.polyIndexCheck(3 * (sortedCount - triangleCount));
+          checkIndexBuffers(sortedCount);
+        }
+        System.arraycopy(sortedIndices, 0, tessGeo.polyIndices, 0, 3 * sortedCount);
+        System.arraycopy(sortedTexMap, 0, this.texMap, 0, sortedCount);
+        System.arraycopy(sortedVoffsetMap, 0, this.voffsetMap, 0, sortedCount);
+      }
+    }
+
+    // Picks the piece whose plane splits the fewest other pieces and leaves
+    // the two sides most even, out of a few candidates. Returns -1 if none
+    // of the pieces has a plane, because they're all degenerate.
+    int chooseSplitter(int[] set) {
+      float[] plane = trianglePlanes;
+      int step = Math.max(1, set.length / SPLITTER_SAMPLES);
+      int best = -1;
+      long bestScore = Long.MAX_VALUE;
+      for (int c = 0; c < SPLITTER_CANDIDATES; c++) {
+        int candidate = set[(int) ((long) c * set.length / SPLITTER_CANDIDATES)];
+        int pi = 4 * pieceTriangles[candidate];
+        if (Float.isNaN(plane[pi+W])) continue;
+        int front = 0, back = 0, split = 0;
+        for (int i = 0; i < set.length; i += step) {
+          int sides = classify(set[i], plane[pi+X], plane[pi+Y], plane[pi+Z],
+                               plane[pi+W], null);
+          if (sides == 1) front++;
+          else if (sides == -1) back++;
+          else if (sides == 2) split++;
+        }
+        long score = 8L * split + Math.abs(front - back);
+        if (score < bestScore) {
+          best = candidate;
+          bestScore = score;
+        }
+      }
+      if (best == -1) {
+        for (int piece: set) {
+          if (!Float.isNaN(plane[4 * pieceTriangles[piece] + W])) return piece;
+        }
+      }
+      return best;
+    }
+
+    // Tells on which side of the plane a piece is: 1 in front, -1 behind,
+    // 0 in the plane, or 2 for both sides, in which case the distances of
+    // its points to the plane are stored in distances.
+    int classify(int piece, float a, float b, float c, float d,
+                 float[] distances) {
+      boolean front = false;
+      boolean back = false;
+      for (int k = 0; k < 3; k++) {
+        int p = 7 * pieceCorners[3*piece+k];
+        float dist = a * points[p+X] + b * points[p+Y] + c * points[p+Z] + d;
+        if (distances != null) distances[k] = dist;
+        if (dist > PLANE_EPSILON) front = true;
+        else if (dist < -PLANE_EPSILON) back = true;
+      }
+      return front && back ? 2 : front ? 1 : back ? -1 : 0;
+    }
+
+    // Cuts a piece in two along the plane the distances are measured to,
+    // adding up to three new pieces with the same winding: first the ones
+    // in front of the plane, whose number is returned, then those behind.
+    int splitPiece(int piece, float[] distances) {
+      int[] front = new int[4];
+      int[] back = new int[4];
+      int frontCount = 0, backCount = 0;
+      int t = pieceTriangles[piece];
+      for (int k = 0; k < 3; k++) {
+        int j = (k + 1) % 3;
+        int pk = pieceCorners[3*piece+k];
+        int pj = pieceCorners[3*piece+j];
+        float dk = distances[k];
+        float dj = distances[j];
+        int sk = dk > PLANE_EPSILON ? 1 : dk < -PLANE_EPSILON ? -1 : 0;
+        int sj = dj > PLANE_EPSILON ? 1 : dj < -PLANE_EPSILON ? -1 : 0;
+        if (0 <= sk) front[frontCount++] = pk;
+        if (sk <= 0) back[backCount++] = pk;
+        if (sk * sj < 0) {
+          int q = addSplitPoint(pk, pj, dk / (dk - dj));
+          front[frontCount++] = q;
+          back[backCount++] = q;
+        }
+      }
+      for (int k = 2; k < frontCount; k++) {
+        addPiece(front[0], front[k-1], front[k], t);
+      }
+      for (int k = 2; k < backCount; k++) {
+        addPiece(back[0], back[k-1], back[k], t);
+      }
+      return frontCount - 2;
+    }
+
+    // Adds the point a fraction f of the way from point a to point b on the
+    // screen. Distances on the screen aren't proportional to those in the
+    // scene, so the barycentric coordinates are blended by the fraction of
+    // the way in clip space, the same way the GPU blends attributes.
+    int addSplitPoint(int a, int b, float f) {
+      float[] points = this.points;
+      int pa = 7 * a;
+      int pb = 7 * b;
+      float wa = points[pa+W];
+      float wb = points[pb+W];
+      float denom = f * wa + (1 - f) * wb;
+      float g = nonZero(denom) ? f * wa / denom : f;
+      return addPoint(points[pa+X] + f * (points[pb+X] - points[pa+X]),
+                      points[pa+Y] + f * (points[pb+Y] - points[pa+Y]),
+                      points[pa+Z] + f * (points[pb+Z] - points[pa+Z]),
+                      wa + g * (wb - wa),
+                      points[pa+4] + g * (points[pb+4] - points[pa+4]),
+                      points[pa+5] + g * (points[pb+5] - points[pa+5]),
+                      points[pa+6] + g * (points[pb+6] - points[pa+6]));
+    }
+
+    int addPoint(float x, float y, float z, float w,
+                 float b0, float b1, float b2) {
+      if (points.length < 7 * (pointCount + 1)) {
+        points = Arrays.copyOf(points, 7 * (2 * pointCount + 16));
+      }
+      int p = 7 * pointCount;
+      points[p+X] = x;
+      points[p+Y] = y;
+      points[p+Z] = z;
+      points[p+W] = w;
+      points[p+4] = b0;
+      points[p+5] = b1;
+      points[p+6] = b2;
+      return pointCount++;
+    }
+
+    int addPiece(int p0, int p1, int p2, int triangle) {
+      if (pieceTriangles.length < pieceCount + 1) {
+        int newSize = 2 * pieceCount + 16;
+        pieceCorners = Arrays.copyOf(pieceCorners, 3 * newSize);
+        pieceTriangles = Arrays.copyOf(pieceTriangles, newSize);
+      }
+      pieceCorners[3*pieceCount+0] = p0;
+      pieceCorners[3*pieceCount+1] = p1;
+      pieceCorners[3*pieceCount+2] = p2;
+      pieceTriangles[pieceCount] = triangle;
+      return pieceCount++;
+    }
+
+    // Stores the plane of a triangle, with a normal of length one, or NaN
+    // if the triangle has no area. Pieces lie in the plane of the triangle
+    // they come from, so theirs isn't worked out again.
+    void trianglePlane(int t) {
+      float[] points = this.points;
+      int p0 = 7 * pieceCorners[3*t+0];
+      int p1 = 7 * pieceCorners[3*t+1];
+      int p2 = 7 * pieceCorners[3*t+2];
+      float
+          ABx = points[p1+X] - points[p0+X], ACx = points[p2+X] - points[p0+X],
+          ABy = points[p1+Y] - points[p0+Y], ACy = points[p2+Y] - points[p0+Y],
+          ABz = points[p1+Z] - points[p0+Z], ACz = points[p2+Z] - points[p0+Z];
+
+      float Dx = ABy*ACz - ABz*ACy;
+      float Dy = ABz*ACx - ABx*ACz;
+      float Dz = ABx*ACy - ABy*ACx;
+      float mag = (float) Math.sqrt(Dx * Dx + Dy * Dy + Dz * Dz);
+      int pi = 4 * t;
+      if (0 < mag && mag < Float.POSITIVE_INFINITY) {
+        trianglePlanes[pi+X] = Dx / mag;
+        trianglePlanes[pi+Y] = Dy / mag;
+        trianglePlanes[pi+Z] = Dz / mag;
+        trianglePlanes[pi+W] = -dot(Dx / mag, Dy / mag, Dz / mag,
+                                    points[p0+X], points[p0+Y], points[p0+Z]);
+      } else {
+        trianglePlanes[pi+W] = Float.NaN;
+      }
     }
 
     // Math -----------------------------------------------
@@ -14565,12 +15240,6 @@ public class PGraphicsOpenGL extends PGraphics {
 
     // Array utils ---------------------------------------
 
-    static void swap(int[] array, int i1, int i2) {
-      int temp = array[i1];
-      array[i1] = array[i2];
-      array[i2] = temp;
-    }
-
     static void rotateRight(int[] array, int i1, int i2) {
       if (i1 == i2) return;
       int temp = array[i2];
@@ -40,8 +40,11 @@ import processing.opengl.PGraphicsOpenGL.TessGeometry;
 import processing.opengl.PGraphicsOpenGL.Tessellator;
 import processing.opengl.PGraphicsOpenGL.VertexAttribute;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * This class holds a 3D model composed of vertices, normals, colors
@@ -176,6 +179,14 @@ public class PShapeOpenGL extends PShape {
   protected boolean tessellated;
   protected boolean needBufferInit = false;
 
+  // Groups with at least this many input vertices are tessellated on
+  // several threads, see tessellateChildren().
+  static protected final int PARALLEL_TESS_VERTICES = 1 << 12;
+
+  // Shapes that tessellateImpl() set aside for tessellateChildren(), only
+  // used by the root while it tessellates.
+  protected ArrayList<PShapeOpenGL> deferredShapes;
+
   // Flag to indicate if the shape can have holes or not.
   protected boolean solid = true;
 
@@ -3657,114 +3668,23 @@ public class PShapeOpenGL extends PShape {
         collectPolyAttribs();
       }
 
-      for (int i = 0; i < childCount; i++) {
-        PShapeOpenGL child = (PShapeOpenGL) children[i];
-        child.tessellateImpl();
+      if (this != root || !tessellateChildren()) {
+        for (int i = 0; i < childCount; i++) {
+          PShapeOpenGL child = (PShapeOpenGL) children[i];
+          child.tessellateImpl();
+        }
       }
     } else {
       if (shapeCreated) {
-        // If the geometry was tessellated previously, then
-        // the edges information will still be stored in the
-        // input object, so it needs to be removed to avoid
-        // duplication.
-        inGeo.clearEdges();
-
-        tessellator.setInGeometry(inGeo);
-        tessellator.setTessGeometry(tessGeo);
-        tessellator.setFill(fill || image != null);
-        tessellator.setTexCache(null, null);
-        tessellator.setStroke(stroke);
-        tessellator.setStrokeColor(strokeColor);
-        tessellator.setStrokeWeight(strokeWeight);
-        tessellator.setStrokeCap(strokeCap);
-        tessellator.setStrokeJoin(strokeJoin);
-        tessellator.setRenderer(pg);
-        tessellator.setTransform(matrix);
-        tessellator.set3D(is3D());
-
-        if (family == GEOMETRY) {
-          if (kind == POINTS) {
-            tessellator.tessellatePoints();
-          } else if (kind == LINES) {
-            tessellator.tessellateLines();
-          } else if (kind == LINE_STRIP) {
-            tessellator.tessellateLineStrip();
-          } else if (kind == LINE_LOOP) {
-            tessellator.tessellateLineLoop();
-          } else if (kind == TRIANGLE || kind == TRIANGLES) {
-            if (stroke) inGeo.addTrianglesEdges();
-            if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTrianglesNormals();
-            tessellator.tessellateTriangles();
-          } else if (kind == TRIANGLE_FAN) {
-            if (stroke) inGeo.addTriangleFanEdges();
-            if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTriangleFanNormals();
-            tessellator.tessellateTriangleFan();
-          } else if (kind == TRIANGLE_STRIP) {
-            if (stroke) inGeo.addTriangleStripEdges();
-            if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTriangleStripNormals();
-            tessellator.tessellateTriangleStrip();
-          } else if (kind == QUAD || kind == QUADS) {
-            if (stroke) inGeo.addQuadsEdges();
-            if (normalMode == NORMAL_MODE_AUTO) inGeo.calcQuadsNormals();
-            tessellator.tessellateQuads();
-          } else if (kind == QUAD_STRIP) {
-            if (stroke) inGeo.addQuadStripEdges();
-            if (normalMode == NORMAL_MODE_AUTO) inGeo.calcQuadStripNormals();
-            tessellator.tessellateQuadStrip();
-          } else if (kind == POLYGON) {
-            boolean bez = inGeo.hasBezierVertex();
-            boolean quad = inGeo.hasQuadraticVertex();
-            boolean curv = inGeo.hasCurveVertex();
-            if (bez || quad) saveBezierVertexSettings();
-            if (curv) {
-              saveCurveVertexSettings();
-              tessellator.resetCurveVertexCount();
-            }
-            tessellator.tessellatePolygon(solid, close,
-                                          normalMode == NORMAL_MODE_AUTO);
-            if (bez ||quad) restoreBezierVertexSettings();
-            if (curv) restoreCurveVertexSettings();
-          }
-        } else if (family == PRIMITIVE) {
-          // The input geometry needs to be cleared because the geometry
-          // generation methods in InGeometry add the vertices of the
-          // new primitive to what is already stored.
-          inGeo.clear();
-
-          if (kind == POINT) {
-            tessellatePoint();
-          } else if (kind == LINE) {
-            tessellateLine();
-          } else if (kind == TRIANGLE) {
-            tessellateTriangle();
-          } else if (kind == QUAD) {
-            tessellateQuad();
-          } else if (kind == RECT) {
-            tessellateRect();
-          } else if (kind == ELLIPSE) {
-            tessellateEllipse();
-          } else if (kind == ARC) {
-            tessellateArc();
-          } else if (kind == BOX) {
-            tessellateBox();
-          } else if (kind == SPHERE) {
-            tessellateSphere();
-          }
-        } else if (family == PATH) {
-          inGeo.clear();
-          tessellatePath();
-        }
+        if (root.deferredShapes != null) {
+          root.deferredShapes.add(this);
+        } else {
+          tessellateShape();
 
-        if (image != null && parent != null) {
-          ((PShapeOpenGL)parent).addTexture(image);
+          if (image != null && parent != null) {
+            ((PShapeOpenGL)parent).addTexture(image);
+          }
         }
-
-        firstPolyIndexCache = tessellator.firstPolyIndexCache;
-        lastPolyIndexCache = tessellator.lastPolyIndexCache;
-        firstLineIndexCache = tessellator.firstLineIndexCache;
-        lastLineIndexCache = tessellator.lastLineIndexCache;
-        firstPointIndexCache = tessellator.firstPointIndexCache;
-        lastPointIndexCache = tessellator.lastPointIndexCache;
       }
     }
 
@@ -3776,6 +3696,253 @@ public class PShapeOpenGL extends PShape {
   }
 
 
+  // Tessellates this shape, which is not a group, into tessGeo using
+  // tessellator. See tessellateChildren() for when these aren't the ones
+  // of the root shape and the renderer.
+  protected void tessellateShape() {
+    // If the geometry was tessellated previously, then
+    // the edges information will still be stored in the
+    // input object, so it needs to be removed to avoid
+    // duplication.
+    inGeo.clearEdges();
+
+    tessellator.setInGeometry(inGeo);
+    tessellator.setTessGeometry(tessGeo);
+    tessellator.setFill(fill || image != null);
+    tessellator.setTexCache(null, null);
+    tessellator.setStroke(stroke);
+    tessellator.setStrokeColor(strokeColor);
+    tessellator.setStrokeWeight(strokeWeight);
+    tessellator.setStrokeCap(strokeCap);
+    tessellator.setStrokeJoin(strokeJoin);
+    tessellator.setRenderer(pg);
+    tessellator.setTransform(matrix);
+    tessellator.set3D(is3D());
+
+    if (family == GEOMETRY) {
+      if (kind == POINTS) {
+        tessellator.tessellatePoints();
+      } else if (kind == LINES) {
+        tessellator.tessellateLines();
+      } else if (kind == LINE_STRIP) {
+        tessellator.tessellateLineStrip();
+      } else if (kind == LINE_LOOP) {
+        tessellator.tessellateLineLoop();
+      } else if (kind == TRIANGLE || kind == TRIANGLES) {
+        if (stroke) inGeo.addTrianglesEdges();
+        if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTrianglesNormals();
+        tessellator.tessellateTriangles();
+      } else if (kind == TRIANGLE_FAN) {
+        if (stroke) inGeo.addTriangleFanEdges();
+        if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTriangleFanNormals();
+        tessellator.tessellateTriangleFan();
+      } else if (kind == TRIANGLE_STRIP) {
+        if (stroke) inGeo.addTriangleStripEdges();
+        if (normalMode == NORMAL_MODE_AUTO) inGeo.calcTriangleStripNormals();
+        tessellator.tessellateTriangleStrip();
+      } else if (kind == QUAD || kind == QUADS) {
+        if (stroke) inGeo.addQuadsEdges();
+        if (normalMode == NORMAL_MODE_AUTO) inGeo.calcQuadsNormals();
+        tessellator.tessellateQuads();
+      } else if (kind == QUAD_STRIP) {
+        if (stroke) inGeo.addQuadStripEdges();
+        if (normalMode == NORMAL_MODE_AUTO) inGeo.calcQuadStripNormals();
+        tessellator.tessellateQuadStrip();
+      } else if (kind == POLYGON) {
+        boolean bez = inGeo.hasBezierVertex();
+        boolean quad = inGeo.hasQuadraticVertex();
+        boolean curv = inGeo.hasCurveVertex();
+        if (bez || quad) saveBezierVertexSettings();
+        if (curv) {
+          saveCurveVertexSettings();
+          tessellator.resetCurveVertexCount();
+        }
+        tessellator.tessellatePolygon(solid, close,
+                                      normalMode == NORMAL_MODE_AUTO);
+        if (bez ||quad) restoreBezierVertexSettings();
+        if (curv) restoreCurveVertexSettings();
+      }
+    } else if (family == PRIMITIVE) {
+      // The input geometry needs to be cleared because the geometry
+      // generation methods in InGeometry add the vertices of the
+      // new primitive to what is already stored.
+      inGeo.clear();
+
+      if (kind == POINT) {
+        tessellatePoint();
+      } else if (kind == LINE) {
+        tessellateLine();
+      } else if (kind == TRIANGLE) {
+        tessellateTriangle();
+      } else if (kind == QUAD) {
+        tessellateQuad();
+      } else if (kind == RECT) {
+        tessellateRect();
+      } else if (kind == ELLIPSE) {
+        tessellateEllipse();
+      } else if (kind == ARC) {
+        tessellateArc();
+      } else if (kind == BOX) {
+        tessellateBox();
+      } else if (kind == SPHERE) {
+        tessellateSphere();
+      }
+    } else if (family == PATH) {
+      inGeo.clear();
+      tessellatePath();
+    }
+
+    firstPolyIndexCache = tessellator.firstPolyIndexCache;
+    lastPolyIndexCache = tessellator.lastPolyIndexCache;
+    firstLineIndexCache = tessellator.firstLineIndexCache;
+    lastLineIndexCache = tessellator.lastLineIndexCache;
+    firstPointIndexCache = tessellator.firstPointIndexCache;
+    lastPointIndexCache = tessellator.lastPointIndexCache;
+  }
+
+
+  /**
+   * Tessellates the shapes in this group on several threads, when there's
+   * enough geometry to be worth it. The shapes are split into runs that
+   * each get their own Tessellator and TessGeometry, and the results are
+   * copied into the root geometry in order, so they come out exactly the
+   * same as tessellating one shape after another. Shapes that can't be
+   * tessellated alongside others (see canTessellateInParallel()) are done
+   * on this thread when their turn comes. Returns false when the children
+   * should be tessellated one at a time instead.
+   */
+  protected boolean tessellateChildren() {
+    int threads = ForkJoinPool.getCommonPoolParallelism();
+    if (threads < 2 || !polyAttribs.isEmpty() ||
+        countInputVertices() < PARALLEL_TESS_VERTICES) {
+      return false;
+    }
+
+    // Set up the groups the usual way, but collect the other shapes
+    deferredShapes = new ArrayList<>();
+    for (int i = 0; i < childCount; i++) {
+      PShapeOpenGL child = (PShapeOpenGL) children[i];
+      child.tessellateImpl();
+    }
+    PShapeOpenGL[] shapes = deferredShapes.toArray(new PShapeOpenGL[0]);
+    deferredShapes = null;
+
+    int count = shapes.length;
+    boolean[] parallel = new boolean[count];
+    for (int i = 0; i < count; i++) {
+      parallel[i] = shapes[i].canTessellateInParallel();
+    }
+    int runs = Math.max(1, Math.min(count, threads * 4));
+    TessGeometry[] geometry = new TessGeometry[runs];
+    Tessellator[] tessellators = new Tessellator[runs];
+    for (int r = 0; r < runs; r++) {
+      geometry[r] = PGraphicsOpenGL.newTessGeometry(pg, polyAttribs,
+                                                    PGraphicsOpenGL.RETAINED, true);
+      tessellators[r] = new Tessellator();
+      tessellators[r].setRenderer(pg);
+    }
+    // bezier vertices read the renderer's bezier matrices, so make sure
+    // they're set up before anyone starts reading them
+    tessellators[0].bezierInitCheck();
+
+    TessGeometry[] source = new TessGeometry[count];
+    int[][] start = new int[count][];
+    int[][] stop = new int[count][];
+    IntStream.range(0, runs).parallel().forEach(r -> {
+      for (int i = r * count / runs; i < (r + 1) * count / runs; i++) {
+        if (parallel[i]) {
+          PShapeOpenGL shape = shapes[i];
+          Tessellator saved = shape.tessellator;
+          shape.tessGeo = source[i] = geometry[r];
+          shape.tessellator = tessellators[r];
+          start[i] = geometry[r].getCounts();
+          try {
+            shape.tessellateShape();
+          } finally {
+            shape.tessGeo = tessGeo;
+            shape.tessellator = saved;
+          }
+          stop[i] = geometry[r].getCounts();
+        }
+      }
+    });
+
+    for (int i = 0; i < count; i++) {
+      PShapeOpenGL shape = shapes[i];
+      if (parallel[i]) {
+        int polyShift = tessGeo.polyIndexCache.size - start[i][2];
+        int lineShift = tessGeo.lineIndexCache.size - start[i][5];
+        int pointShift = tessGeo.pointIndexCache.size - start[i][8];
+        tessGeo.append(source[i], start[i], stop[i]);
+        shape.shiftIndexCaches(polyShift, lineShift, pointShift);
+      } else {
+        shape.tessellateShape();
+      }
+      if (shape.image != null && shape.parent != null) {
+        ((PShapeOpenGL)shape.parent).addTexture(shape.image);
+      }
+    }
+    return true;
+  }
+
+
+  // Roughly how much work tessellating this shape and its children is.
+  protected int countInputVertices() {
+    if (family == GROUP) {
+      int count = 0;
+      for (int i = 0; i < childCount; i++) {
+        count += ((PShapeOpenGL) children[i]).countInputVertices();
+      }
+      return count;
+    } else if (family == PATH) {
+      return vertexCount + 1;
+    } else {
+      return inGeo.vertexCount + 1;
+    }
+  }
+
+
+  // Whether tessellateShape() can run at the same time as other shapes.
+  // Curve vertices use scratch space in the renderer, and spheres and
+  // bezier vertices with a detail of their own change its settings.
+  // Rounded rects are drawn with bezier vertices too.
+  protected boolean canTessellateInParallel() {
+    boolean bezier = false;
+    boolean curve = false;
+    if (family == PRIMITIVE) {
+      if (kind == SPHERE) return false;
+      bezier = kind == RECT && (params.length == 5 || params.length == 8);
+    } else if (family == PATH) {
+      for (int i = 0; i < vertexCodeCount; i++) {
+        int code = vertexCodes[i];
+        bezier |= code == BEZIER_VERTEX || code == QUADRATIC_VERTEX;
+        curve |= code == CURVE_VERTEX;
+      }
+    } else if (family == GEOMETRY && kind == POLYGON) {
+      bezier = inGeo.hasBezierVertex() || inGeo.hasQuadraticVertex();
+      curve = inGeo.hasCurveVertex();
+    }
+    return !curve && (!bezier || bezierDetail == pg.bezierDetail);
+  }
+
+
+  // Moves the index cache positions set by tessellateShape() after its
+  // geometry was copied to another TessGeometry. In 2D, lines and points
+  // are drawn as polygons, so their positions are in the poly cache.
+  protected void shiftIndexCaches(int polyShift, int lineShift,
+                                  int pointShift) {
+    if (!is3D()) {
+      lineShift = pointShift = polyShift;
+    }
+    if (firstPolyIndexCache != -1) firstPolyIndexCache += polyShift;
+    if (lastPolyIndexCache != -1) lastPolyIndexCache += polyShift;
+    if (firstLineIndexCache != -1) firstLineIndexCache += lineShift;
+    if (lastLineIndexCache != -1) lastLineIndexCache += lineShift;
+    if (firstPointIndexCache != -1) firstPointIndexCache += pointShift;
+    if (lastPointIndexCache != -1) lastPointIndexCache += pointShift;
+  }
+
+
   protected void tessellatePoint() {
     float x = 0, y = 0, z = 0;
     if (params.length == 2) {
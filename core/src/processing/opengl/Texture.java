@@ -345,7 +345,7 @@ public class Texture implements PConstants {
     updatePixelBuffer(rgbaPixels);
     pgl.texSubImage2D(glTarget, 0, x, y, w, h, PGL.RGBA, PGL.UNSIGNED_BYTE,
                       pixelBuffer);
-    fillEdges(x, y, w, h);
+    fillEdges(pixelBuffer, x, y, w, h);
 
     if (usingMipmaps) {
       if (PGraphicsOpenGL.autoMipmapGenSupported) {
@@ -411,7 +411,7 @@ public class Texture implements PConstants {
 
     pgl.texSubImage2D(glTarget, 0, x, y, w, h, PGL.RGBA, PGL.UNSIGNED_BYTE,
                       pixBuf);
-    fillEdges(x, y, w, h);
+    fillEdges(pixBuf, x, y, w, h);
 
     if (usingMipmaps) {
       if (PGraphicsOpenGL.autoMipmapGenSupported) {
@@ -1474,13 +1474,18 @@ public class Texture implements PConstants {
   }
 
 
-  protected void fillEdges(int x, int y, int w, int h) {
+  /**
+   * Repeat the last column and row of the w x h pixels in pixBuf (already
+   * in OpenGL order) into the unused part of a texture that's larger
+   * than the image.
+   */
+  protected void fillEdges(IntBuffer pixBuf, int x, int y, int w, int h) {
     if ((width < glWidth || height < glHeight) && (x + w == width || y + h == height)) {
       if (x + w == width) {
         int ew = glWidth - width;
         edgePixels = new int[h * ew];
         for (int i = 0; i < h; i++) {
-          int c = rgbaPixels[i * w + (w - 1)];
+          int c = pixBuf.get(i * w + (w - 1));
           Arrays.fill(edgePixels, i * ew, (i + 1) * ew, c);
         }
         edgeBuffer = PGL.updateIntBuffer(edgeBuffer, edgePixels, true);
@@ -1491,8 +1496,9 @@ public class Texture implements PConstants {
       if (y + h == height) {
         int eh = glHeight - height;
         edgePixels = new int[eh * w];
-        for (int i = 0; i < eh; i++) {
-          System.arraycopy(rgbaPixels, (h - 1) * w, edgePixels, i * w, w);
+        pixBuf.get((h - 1) * w, edgePixels, 0, w);
+        for (int i = 1; i < eh; i++) {
+          System.arraycopy(edgePixels, 0, edgePixels, i * w, w);
         }
         edgeBuffer = PGL.updateIntBuffer(edgeBuffer, edgePixels, true);
         pgl.texSubImage2D(glTarget, 0, x, height, w, eh, PGL.RGBA,
@@ -1502,7 +1508,7 @@ public class Texture implements PConstants {
       if (x + w == width && y + h == height) {
         int ew = glWidth - width;
         int eh = glHeight - height;
-        int c = rgbaPixels[w * h - 1];
+        int c = pixBuf.get(w * h - 1);
         edgePixels = new int[eh * ew];
         Arrays.fill(edgePixels, 0, eh * ew, c);
         edgeBuffer = PGL.updateIntBuffer(edgeBuffer, edgePixels, true);
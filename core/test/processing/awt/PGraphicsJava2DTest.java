@@ -0,0 +1,52 @@
+package processing.awt;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.core.PFont;
+
+
+public class PGraphicsJava2DTest {
+
+  static PGraphicsJava2D graphics(PFont font) {
+    PGraphicsJava2D g = new PGraphicsJava2D();
+    g.setSize(300, 60);
+    g.beginDraw();
+    g.background(255);
+    g.fill(0);
+    // sets the size on the native font, which turns on kerning
+    g.textFont(font, 40);
+    return g;
+  }
+
+
+  @Test
+  public void cachedTextMatchesDrawChars() {
+    PFont font = new PFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12), true);
+    String text = "AVATAR To Ty";
+
+    PGraphicsJava2D g = graphics(font);
+    g.text(text, 10, 45);
+    g.background(255);
+    g.text(text, 10, 45);  // from the cache this time
+    g.endDraw();
+    g.loadPixels();
+
+    // what text() did before there was a cache
+    PGraphicsJava2D expected = graphics(font);
+    Graphics2D g2 = (Graphics2D) expected.getNative();
+    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                        RenderingHints.VALUE_ANTIALIAS_ON);
+    g2.setColor(java.awt.Color.BLACK);
+    g2.drawChars(text.toCharArray(), 0, text.length(), 10, 45);
+    expected.endDraw();
+    expected.loadPixels();
+
+    Assert.assertArrayEquals(expected.pixels, g.pixels);
+    Assert.assertEquals(1, g.textCacheHits());
+  }
+}
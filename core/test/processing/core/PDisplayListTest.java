@@ -0,0 +1,96 @@
+package processing.core;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.awt.PGraphicsJava2D;
+
+
+public class PDisplayListTest {
+
+  @Test
+  public void writeAndRead() throws IOException {
+    PDisplayList list = new PDisplayList();
+    list.beginDraw();
+    list.colorMode(PConstants.RGB, 1);
+    list.fill(0.5f, 0.25f, 1);
+    list.translate(10, 20);
+    list.rect(0, 0, 30, 40);
+    list.text("hello", 5, 5);
+    list.image(new PImage(4, 4, PConstants.ARGB), 1, 2);
+    list.endDraw();
+    // colorMode() isn't recorded, the colors are
+    Assert.assertEquals(5, list.commandCount());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    list.write(output);
+    PDisplayList copy =
+      PDisplayList.read(new ByteArrayInputStream(output.toByteArray()));
+    Assert.assertEquals(list.commandCount(), copy.commandCount());
+    Assert.assertArrayEquals(
+      java.util.Arrays.copyOf(list.params, list.paramCount),
+      java.util.Arrays.copyOf(copy.params, copy.paramCount), 0);
+    Assert.assertEquals("hello", copy.objects.get(0));
+    Assert.assertEquals(4, ((PImage) copy.objects.get(1)).width);
+  }
+
+
+  static void drawScene(PGraphics g, PFont font, PImage image) {
+    g.background(255);
+    g.noStroke();
+    g.fill(200, 0, 0);
+    g.rect(10, 10, 80, 30);
+    g.stroke(0, 0, 200);
+    g.strokeWeight(3);
+    g.fill(0, 150, 0, 128);
+    g.ellipse(100, 60, 70, 50);
+    g.image(image, 120, 5);
+    g.fill(0);
+    g.textFont(font);
+    g.text("Display list", 10, 90);
+  }
+
+
+  static int[] render(PDisplayList list, PFont font, PImage image) {
+    PGraphicsJava2D g = new PGraphicsJava2D();
+    g.setSize(160, 100);
+    g.beginDraw();
+    if (list != null) {
+      list.draw(g);
+    } else {
+      drawScene(g, font, image);
+    }
+    g.endDraw();
+    g.loadPixels();
+    return g.pixels;
+  }
+
+
+  @Test
+  public void savedListDrawsTheSame() throws IOException {
+    PImage image = new PImage(20, 20, PConstants.ARGB);
+    for (int i = 0; i < image.pixels.length; i++) {
+      image.pixels[i] = 0x80000000 | (i * 0x010305);
+    }
+    // the glyphs of this font are only made when they're needed
+    PFont font = new PFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20), true);
+
+    PDisplayList list = new PDisplayList();
+    list.beginDraw();
+    drawScene(list, font, image);
+    list.endDraw();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    list.write(output);
+    PDisplayList copy =
+      PDisplayList.read(new ByteArrayInputStream(output.toByteArray()));
+
+    int[] expected = render(null, font, image);
+    Assert.assertArrayEquals(expected, render(list, null, null));
+    Assert.assertArrayEquals(expected, render(copy, null, null));
+  }
+}
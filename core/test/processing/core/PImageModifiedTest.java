@@ -0,0 +1,117 @@
+package processing.core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PImageModifiedTest {
+
+  static boolean covered(PImage image, int x, int y) {
+    int[] rects = image.getModifiedRects();
+    for (int i = 0; i < image.getModifiedRectCount(); i++) {
+      int r = i * 4;
+      if (rects[r] <= x && x < rects[r+2] && rects[r+1] <= y && y < rects[r+3]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  // The regions don't overlap and stay inside the overall bounds
+  static void checkRects(PImage image) {
+    int[] rects = image.getModifiedRects();
+    int count = image.getModifiedRectCount();
+    for (int i = 0; i < count; i++) {
+      int a = i * 4;
+      Assert.assertTrue(image.getModifiedX1() <= rects[a]);
+      Assert.assertTrue(image.getModifiedY1() <= rects[a+1]);
+      Assert.assertTrue(rects[a+2] <= image.getModifiedX2());
+      Assert.assertTrue(rects[a+3] <= image.getModifiedY2());
+      for (int j = i + 1; j < count; j++) {
+        int b = j * 4;
+        Assert.assertFalse(rects[a] < rects[b+2] && rects[b] < rects[a+2] &&
+                           rects[a+1] < rects[b+3] && rects[b+1] < rects[a+3]);
+      }
+    }
+  }
+
+
+  @Test
+  public void separateRegionsStaySeparate() {
+    PImage image = new PImage(100, 100);
+    image.updatePixels(0, 0, 10, 10);
+    image.updatePixels(80, 80, 10, 10);
+    Assert.assertEquals(2, image.getModifiedRectCount());
+    Assert.assertFalse(covered(image, 50, 50));
+    checkRects(image);
+  }
+
+
+  @Test
+  public void overlappingRegionsMerge() {
+    PImage image = new PImage(100, 100);
+    image.updatePixels(0, 0, 20, 20);
+    image.updatePixels(40, 0, 20, 20);
+    // overlaps both of them
+    image.updatePixels(10, 5, 40, 5);
+    Assert.assertEquals(1, image.getModifiedRectCount());
+    Assert.assertArrayEquals(new int[] { 0, 0, 60, 20 },
+                             Arrays.copyOf(image.getModifiedRects(), 4));
+  }
+
+
+  @Test
+  public void tooManyRegionsAreCombined() {
+    Random random = new Random(5);
+    PImage image = new PImage(200, 200);
+    boolean[] updated = new boolean[200 * 200];
+    for (int n = 0; n < 100; n++) {
+      int x = random.nextInt(220) - 10;
+      int y = random.nextInt(220) - 10;
+      int w = 1 + random.nextInt(15);
+      int h = 1 + random.nextInt(15);
+      image.updatePixels(x, y, w, h);
+      for (int j = Math.max(0, y); j < Math.min(200, y + h); j++) {
+        for (int i = Math.max(0, x); i < Math.min(200, x + w); i++) {
+          updated[j*200 + i] = true;
+        }
+      }
+      Assert.assertTrue(image.getModifiedRectCount() < PImage.MAX_MODIFIED_RECTS);
+      checkRects(image);
+    }
+    // nothing that was updated may be left out
+    for (int i = 0; i < updated.length; i++) {
+      if (updated[i]) {
+        Assert.assertTrue(covered(image, i % 200, i / 200));
+      }
+    }
+  }
+
+
+  @Test
+  public void setModifiedResets() {
+    PImage image = new PImage(100, 100);
+    image.updatePixels(0, 0, 10, 10);
+    image.updatePixels(80, 80, 10, 10);
+
+    // only the bounds are known after setModified()
+    image.setModified();
+    Assert.assertEquals(1, image.getModifiedRectCount());
+    Assert.assertArrayEquals(new int[] { 0, 0, 100, 100 },
+                             Arrays.copyOf(image.getModifiedRects(), 4));
+
+    // and nothing once the changes have been uploaded
+    image.setModified(false);
+    Assert.assertEquals(0, image.getModifiedRectCount());
+
+    // starting over, the old regions are gone
+    image.updatePixels(50, 50, 5, 5);
+    Assert.assertEquals(1, image.getModifiedRectCount());
+    Assert.assertArrayEquals(new int[] { 50, 50, 55, 55 },
+                             Arrays.copyOf(image.getModifiedRects(), 4));
+  }
+}
@@ -0,0 +1,56 @@
+package processing.core;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PImageResamplerTest {
+
+  static PImage solid(int w, int h, int format, int color) {
+    PImage image = new PImage(w, h, format);
+    Arrays.fill(image.pixels, color);
+    return image;
+  }
+
+
+  @Test
+  public void translucentColorsKeepTheirValues() {
+    for (int filter : new int[] { PConstants.BILINEAR, PConstants.LANCZOS }) {
+      PImage image = solid(5, 5, PConstants.ARGB, 0x10336699);
+      int[] pixels = PImageResampler.resample(image, 10, 10, filter);
+      for (int c : pixels) {
+        Assert.assertEquals(0x10336699, c);
+      }
+    }
+  }
+
+
+  @Test
+  public void bigShrinkKeepsTheColor() {
+    for (int filter : new int[] { PConstants.AREA, PConstants.BILINEAR, PConstants.LANCZOS }) {
+      PImage image = solid(3000, 2, PConstants.RGB, 0xff336699);
+      int[] pixels = PImageResampler.resample(image, 1, 1, filter);
+      Assert.assertEquals(0xff336699, pixels[0]);
+    }
+  }
+
+
+  @Test
+  public void fixedWeightsAddUpToOne() {
+    for (int filter : new int[] { PConstants.AREA, PConstants.BILINEAR, PConstants.LANCZOS }) {
+      for (int[] size : new int[][] { { 3000, 1 }, { 1000, 7 }, { 13, 50 } }) {
+        PImageResampler.Weights weights =
+          new PImageResampler.Weights(size[0], size[1], filter);
+        for (int i = 0; i < weights.length; i++) {
+          int sum = 0;
+          for (int j = 0; j < weights.count; j++) {
+            sum += weights.fixed[i * weights.count + j];
+          }
+          Assert.assertEquals(1 << PImageResampler.FIXED_BITS, sum);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package processing.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PNoiseTest {
+
+  @Test
+  public void fillMatchesNoise() {
+    PApplet applet = new PApplet();
+    applet.noiseSeed(1234);
+    applet.noiseDetail(6, 0.45f);
+
+    PNoise noise = new PNoise(1234);
+    noise.noiseDetail(6, 0.45f);
+
+    int cols = 64, rows = 40, slices = 3;
+    float[] line = new float[cols];
+    float[] grid = new float[cols * rows];
+    float[] volume = new float[cols * rows * slices];
+    noise.fill(line, -2, 0.07f);
+    noise.fill(grid, cols, rows, -2, -1, 0.07f, 0.11f);
+    noise.fill(volume, cols, rows, slices, -2, -1, 0.5f, 0.07f, 0.11f, 0.3f);
+
+    for (int k = 0; k < slices; k++) {
+      for (int j = 0; j < rows; j++) {
+        for (int i = 0; i < cols; i++) {
+          float x = -2 + i*0.07f;
+          float y = -1 + j*0.11f;
+          float z = 0.5f + k*0.3f;
+          Assert.assertEquals(applet.noise(x), line[i], 0);
+          Assert.assertEquals(applet.noise(x, y), grid[j*cols + i], 0);
+          Assert.assertEquals(applet.noise(x, y, z),
+                              volume[(k*rows + j)*cols + i], 0);
+        }
+      }
+    }
+  }
+
+
+  // Recorded from noise() before it used PNoise, with noiseSeed(1234) and
+  // noiseDetail(6, 0.45f), at { i, j, k } of the grids in recordedValues()
+  static final int[][] SAMPLES = {
+    { 0, 0, 0 }, { 5, 3, 1 }, { 17, 22, 2 }, { 31, 9, 0 },
+    { 40, 39, 2 }, { 63, 0, 1 }, { 12, 30, 2 }, { 50, 17, 1 }
+  };
+  // noise(x), noise(x, y), and noise(x, y, z) at each sample
+  static final float[][] RECORDED = {
+    { 0.75383884f, 0.23131824f, 0.5094479f },
+    { 0.5395379f, 0.2900332f, 0.58503634f },
+    { 0.37848762f, 0.45614564f, 0.5211806f },
+    { 0.5002757f, 0.4999708f, 0.5243704f },
+    { 0.37135968f, 0.29061007f, 0.37927818f },
+    { 0.47049266f, 0.29718038f, 0.5181403f },
+    { 0.39044142f, 0.63618374f, 0.2749497f },
+    { 0.4264123f, 0.32085273f, 0.6205535f }
+  };
+
+
+  @Test
+  public void recordedValues() {
+    PApplet applet = new PApplet();
+    applet.noiseSeed(1234);
+    applet.noiseDetail(6, 0.45f);
+
+    PNoise noise = new PNoise(1234);
+    noise.noiseDetail(6, 0.45f);
+
+    int cols = 64, rows = 40, slices = 3;
+    float[] line = new float[cols];
+    float[] grid = new float[cols * rows];
+    float[] volume = new float[cols * rows * slices];
+    noise.fill(line, -2, 0.07f);
+    noise.fill(grid, cols, rows, -2, -1, 0.07f, 0.11f);
+    noise.fill(volume, cols, rows, slices, -2, -1, 0.5f, 0.07f, 0.11f, 0.3f);
+
+    for (int n = 0; n < SAMPLES.length; n++) {
+      int i = SAMPLES[n][0], j = SAMPLES[n][1], k = SAMPLES[n][2];
+      float x = -2 + i*0.07f;
+      float y = -1 + j*0.11f;
+      float z = 0.5f + k*0.3f;
+      float[] expected = RECORDED[n];
+      Assert.assertEquals(expected[0], applet.noise(x), 0);
+      Assert.assertEquals(expected[1], applet.noise(x, y), 0);
+      Assert.assertEquals(expected[2], applet.noise(x, y, z), 0);
+      Assert.assertEquals(expected[0], line[i], 0);
+      Assert.assertEquals(expected[1], grid[j*cols + i], 0);
+      Assert.assertEquals(expected[2], volume[(k*rows + j)*cols + i], 0);
+    }
+  }
+
+
+  @Test
+  public void parallelFillMatchesNoise() {
+    PNoise noise = new PNoise(99);
+    int cols = 512, rows = 256;  // large enough to be split across threads
+    float[] grid = new float[cols * rows];
+    noise.fill(grid, cols, rows, 10, 20, 0.01f, 0.02f);
+    for (int j = 0; j < rows; j++) {
+      for (int i = 0; i < cols; i++) {
+        Assert.assertEquals(noise.noise(10 + i*0.01f, 20 + j*0.02f),
+                            grid[j*cols + i], 0);
+      }
+    }
+  }
+}
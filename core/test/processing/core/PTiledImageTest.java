@@ -0,0 +1,115 @@
+package processing.core;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.awt.PGraphicsJava2D;
+
+
+public class PTiledImageTest {
+
+  static int color(int x, int y) {
+    return 0xff000000 | (x & 0xff) << 16 | (y & 0xff) << 8 | ((x ^ y) & 0xff);
+  }
+
+
+  static PTiledImage create(int w, int h, int tileSize) {
+    return new PTiledImage(w, h, PConstants.RGB, tileSize, (x, y, tw, th, step) -> {
+      if (step > 1) return null;  // make the pyramid by averaging
+      PImage tile = new PImage(tw, th, PConstants.RGB);
+      for (int j = 0; j < th; j++) {
+        for (int i = 0; i < tw; i++) {
+          tile.pixels[j*tw + i] = color(x + i, y + j);
+        }
+      }
+      return tile;
+    });
+  }
+
+
+  @Test
+  public void getMatchesSource() {
+    PTiledImage image = create(1000, 700, 64);
+    Assert.assertEquals(5, image.levelCount());
+
+    for (int y = 0; y < 700; y += 13) {
+      for (int x = 0; x < 1000; x += 7) {
+        Assert.assertEquals(color(x, y), image.get(x, y));
+      }
+    }
+    PImage region = image.get(950, 650, 100, 60);
+    region.loadPixels();
+    Assert.assertEquals(color(999, 699), region.pixels[49*100 + 49]);
+    Assert.assertEquals(0, region.pixels[59*100 + 99]);  // outside the image
+  }
+
+
+  @Test
+  public void cacheStaysBounded() {
+    PTiledImage image = create(1000, 700, 64);
+    image.tileCache(10 * 64*64*4);
+    image.get(0, 0, 1000, 700);
+    Assert.assertTrue(image.tileCacheSize() <= 10 * 64*64*4);
+    // every tile of level 0 was read once
+    Assert.assertEquals(16 * 11, image.tileReads());
+  }
+
+
+  @Test
+  public void levelsAreAveraged() {
+    PTiledImage image = create(256, 256, 64);
+    PImage tile = image.getTile(1, 0, 0);
+    // average of the 2x2 block at (2, 2)
+    int sum = 0;
+    for (int j = 0; j < 2; j++) {
+      for (int i = 0; i < 2; i++) {
+        sum += (color(2 + i, 2 + j) >> 16) & 0xff;
+      }
+    }
+    Assert.assertEquals((sum + 2) / 4, (tile.pixels[64 + 1] >> 16) & 0xff);
+  }
+
+
+  @Test
+  public void copyReadsTiles() {
+    PTiledImage image = create(1000, 700, 64);
+    PGraphicsJava2D g = new PGraphicsJava2D();
+    g.setSize(100, 100);
+    g.beginDraw();
+    g.copy(image, 900, 600, 100, 100, 0, 0, 100, 100);
+    g.endDraw();
+    g.loadPixels();
+    Assert.assertEquals(color(900, 600), g.pixels[0]);
+    Assert.assertEquals(color(999, 699), g.pixels[99*100 + 99]);
+  }
+
+
+  @Test
+  public void shrinkingCopyUsesSmallerLevels() {
+    int[] fullSizeReads = new int[1];
+    PTiledImage image = new PTiledImage(4096, 4096, PConstants.RGB, 256, (x, y, tw, th, step) -> {
+      if (step == 1) fullSizeReads[0]++;
+      PImage tile = new PImage((tw + step - 1) / step, (th + step - 1) / step, PConstants.RGB);
+      Arrays.fill(tile.pixels, 0xff336699);
+      return tile;
+    });
+
+    PImage target = new PImage(64, 64, PConstants.RGB);
+    target.copy(image, 0, 0, 4096, 4096, 0, 0, 64, 64);
+    Assert.assertEquals(0xff336699, target.pixels[0]);
+    Assert.assertEquals(0xff336699, target.pixels[63*64 + 63]);
+
+    PGraphicsJava2D g = new PGraphicsJava2D();
+    g.setSize(64, 64);
+    g.beginDraw();
+    g.copy(image, 0, 0, 4096, 4096, 0, 0, 64, 64);
+    g.endDraw();
+    g.loadPixels();
+    Assert.assertEquals(0xff336699, g.pixels[63*64 + 63]);
+
+    // 256 full-size tiles would have been read otherwise
+    Assert.assertEquals(0, fullSizeReads[0]);
+  }
+}
@@ -0,0 +1,52 @@
+package processing.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PVectorListTest {
+
+  @Test
+  public void matchesPVector() {
+    // large enough to be split across threads
+    int count = 100000;
+    PVectorList list = new PVectorList();
+    PVector[] vectors = new PVector[count];
+    for (int i = 0; i < count; i++) {
+      vectors[i] = new PVector((i % 17) - 8, (i % 5) * 0.5f, i == 0 ? 0 : 3);
+      if (i == 0) vectors[i].set(0, 0, 0);
+      list.append(vectors[i]);
+    }
+    list.limit(4);
+    list.mult(2);
+    list.add(1, 0, -1);
+    list.normalize();
+    PVector v = new PVector();
+    for (int i = 0; i < count; i++) {
+      PVector expected = vectors[i].copy().limit(4).mult(2).add(1, 0, -1).normalize();
+      list.get(i, v);
+      Assert.assertEquals(expected.x, v.x, 1e-6f);
+      Assert.assertEquals(expected.y, v.y, 1e-6f);
+      Assert.assertEquals(expected.z, v.z, 1e-6f);
+    }
+  }
+
+
+  @Test
+  public void integrateAndRemove() {
+    PVectorList position = new PVectorList(1);
+    PVectorList velocity = new PVectorList(1);
+    for (int i = 0; i < 4; i++) {
+      position.append(i, 0);
+      velocity.append(0, i);
+    }
+    position.integrate(velocity, 0.5f);
+    Assert.assertEquals(1.5f, position.getY(3), 0);
+    float[] dist = position.dist(new PVector(3, 0), null);
+    Assert.assertEquals(1.5f, dist[3], 0);
+
+    position.remove(0);
+    Assert.assertEquals(3, position.size());
+    Assert.assertEquals(3, position.getX(0), 0);
+  }
+}
@@ -0,0 +1,82 @@
+package processing.data;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.core.PApplet;
+
+
+public class LineStreamTest {
+
+  private String[] stream(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    List<String> lines = new ArrayList<>();
+    for (String line : new LineStream(new ByteArrayInputStream(bytes))) {
+      lines.add(line);
+    }
+    return lines.toArray(new String[0]);
+  }
+
+
+  private String[] load(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    return PApplet.loadStrings(new ByteArrayInputStream(bytes));
+  }
+
+
+  @Test
+  public void matchesLoadStrings() {
+    String[] samples = {
+      "", "one", "one\n", "one\ntwo", "one\r\ntwo\r\n", "one\rtwo\r",
+      "\n\n", "a\r\n\r\nb", "café\n日本\n"
+    };
+    for (String sample : samples) {
+      Assert.assertArrayEquals(sample, load(sample), stream(sample));
+    }
+  }
+
+
+  @Test
+  public void linesLongerThanBuffer() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < LineStream.BUFFER_SIZE * 2 + 17; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    String longLine = sb.toString();
+    String text = "first\r" + longLine + "\r\n" + longLine + "\nlast";
+    Assert.assertArrayEquals(load(text), stream(text));
+  }
+
+
+  @Test
+  public void skipsByteOrderMark() {
+    Assert.assertArrayEquals(new String[] { "bom", "x" }, stream("\uFEFFbom\nx"));
+  }
+
+
+  @Test
+  public void readsRecords() {
+    ByteBuffer bb = ByteBuffer.allocate(8 * 3 + 5).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < 3; i++) {
+      bb.putInt(i).putFloat(i * 0.5f);
+    }
+    RecordStream records =
+      new RecordStream(new ByteArrayInputStream(bb.array()), 8);
+    records.order(ByteOrder.LITTLE_ENDIAN);
+    int count = 0;
+    for (ByteBuffer record : records) {
+      Assert.assertEquals(count, record.getInt());
+      Assert.assertEquals(count * 0.5f, record.getFloat(), 0);
+      count++;
+    }
+    Assert.assertEquals(3, count);
+    Assert.assertEquals(3, records.recordCount());
+  }
+}
@@ -0,0 +1,93 @@
+package processing.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class SpatialGridTest {
+
+  static int[] sorted(IntList list) {
+    int[] outgoing = list.toArray();
+    Arrays.sort(outgoing);
+    return outgoing;
+  }
+
+
+  @Test
+  public void matchesBruteForce() {
+    Random random = new Random(7);
+    int count = 2000;
+    float[] x = new float[count];
+    float[] y = new float[count];
+    SpatialGrid grid = new SpatialGrid(20);
+    for (int i = 0; i < count; i++) {
+      x[i] = random.nextFloat() * 500 - 100;
+      y[i] = random.nextFloat() * 500 - 100;
+      Assert.assertEquals(i, grid.insert(x[i], y[i]));
+    }
+    // move half of them, some into new cells
+    for (int i = 0; i < count; i += 2) {
+      x[i] += random.nextFloat() * 60 - 30;
+      y[i] += random.nextFloat() * 60 - 30;
+      grid.update(i, x[i], y[i]);
+    }
+
+    for (int q = 0; q < 50; q++) {
+      float qx = random.nextFloat() * 600 - 150;
+      float qy = random.nextFloat() * 600 - 150;
+      float radius = random.nextFloat() * 50;
+
+      IntList expected = new IntList();
+      float[] dist = new float[count];
+      Integer[] order = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        float dx = x[i] - qx, dy = y[i] - qy;
+        dist[i] = dx*dx + dy*dy;
+        order[i] = i;
+        if (dist[i] <= radius * radius) expected.append(i);
+      }
+      Assert.assertArrayEquals(sorted(expected), sorted(grid.within(qx, qy, radius)));
+
+      Arrays.sort(order, (a, b) -> Float.compare(dist[a], dist[b]));
+      IntList nearest = grid.nearest(qx, qy, 10);
+      Assert.assertEquals(10, nearest.size());
+      for (int n = 0; n < 10; n++) {
+        Assert.assertEquals(dist[order[n]], dist[nearest.get(n)], 0);
+      }
+    }
+  }
+
+
+  @Test
+  public void removeAndSet() {
+    SpatialGrid grid = new SpatialGrid(1);
+    int a = grid.insert(0, 0, 0);
+    int b = grid.insert(0.5f, 0, 0);
+    grid.remove(a);
+    Assert.assertEquals(1, grid.size());
+    Assert.assertArrayEquals(new int[] { b }, grid.within(0, 0, 1).toArray());
+    Assert.assertEquals(a, grid.insert(5, 5, 5));  // id is reused
+
+    grid.set(new float[] { 3, 4 }, new float[] { 3, 4 }, null, 2);
+    Assert.assertEquals(2, grid.size());
+    Assert.assertArrayEquals(new int[] { 1, 0 }, grid.nearest(5, 5, 2).toArray());
+  }
+
+
+  @Test
+  public void farApartCellsStaySeparate() {
+    // these cells are 2^21 apart, so their packed keys are the same
+    SpatialGrid grid = new SpatialGrid(1);
+    int near = grid.insert(0.5f, 0.5f);
+    int far = grid.insert(2097152.5f, 0.5f);
+    Assert.assertArrayEquals(new int[] { far }, grid.within(2097152.5f, 0.5f, 1).toArray());
+    Assert.assertArrayEquals(new int[] { near }, grid.within(0.5f, 0.5f, 1).toArray());
+    Assert.assertArrayEquals(new int[] { near }, grid.nearest(0, 0, 1).toArray());
+
+    grid.update(near, 1.5f, 0.5f);
+    Assert.assertArrayEquals(new int[] { far }, grid.within(2097152.5f, 0.5f, 1).toArray());
+  }
+}
@@ -0,0 +1,206 @@
+package processing.opengl;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.core.PMatrix3D;
+import processing.opengl.PGraphicsOpenGL.AttributeMap;
+import processing.opengl.PGraphicsOpenGL.DepthSorter;
+import processing.opengl.PGraphicsOpenGL.IndexCache;
+import processing.opengl.PGraphicsOpenGL.TessGeometry;
+import processing.opengl.PGraphicsOpenGL.TexCache;
+
+
+/**
+ * The sorter works on tessellated geometry and doesn't need OpenGL, so the
+ * triangles are put together by hand. Run main() for timings.
+ */
+public class DepthSorterTest {
+
+  // Same as perspective() with the default field of view, looking down -z
+  static PMatrix3D projection() {
+    float near = 10, far = 2000;
+    float f = 1 / (float) Math.tan(Math.PI / 6);
+    return new PMatrix3D(f, 0, 0, 0,
+                         0, f, 0, 0,
+                         0, 0, -(far + near) / (far - near), -2 * far * near / (far - near),
+                         0, 0, -1, 0);
+  }
+
+
+  static TessGeometry geometry(float[] coords) {
+    TessGeometry geo = new TessGeometry(null, new AttributeMap(),
+                                        PGraphicsOpenGL.RETAINED, true);
+    IndexCache cache = geo.polyIndexCache;
+    int index = cache.addNew();
+    for (int i = 0; i < coords.length; i += 9) {
+      if (PGL.MAX_VERTEX_INDEX1 < cache.vertexCount[index] + 3) {
+        index = cache.addNew();
+      }
+      for (int k = 0; k < 3; k++) {
+        geo.addPolyVertex(coords[i + 3*k], coords[i + 3*k + 1], coords[i + 3*k + 2],
+                          0xFF000000 | i, 0, 0, 1, 0, 0, 0, 0, 0, 0, false);
+        geo.polyIndexCheck();
+        geo.polyIndices[geo.polyIndexCount - 1] = (short) cache.vertexCount[index];
+        cache.incCounts(index, 1, 1);
+      }
+    }
+    return geo;
+  }
+
+
+  static DepthSorter sort(TessGeometry geo, boolean exact) {
+    DepthSorter sorter = new DepthSorter(null);
+    sorter.exact = exact;
+    sort(geo, sorter);
+    return sorter;
+  }
+
+
+  static void sort(TessGeometry geo, DepthSorter sorter) {
+    TexCache texCache = new TexCache(null);
+    texCache.addTexture(null, 0, 0, geo.polyIndexCount - 1,
+                        geo.polyIndexCache.size - 1);
+    sorter.sort(geo, texCache, projection());
+  }
+
+
+  // Screen coordinates of the corners of sorted triangle i
+  static float[] screen(TessGeometry geo, DepthSorter sorter, int i) {
+    PMatrix3D m = projection();
+    float[] tri = new float[9];
+    int voffset = geo.polyIndexCache.vertexOffset[sorter.voffsetMap[i]];
+    for (int k = 0; k < 3; k++) {
+      int v = 4 * (voffset + geo.polyIndices[3*i + k]);
+      float[] in = { geo.polyVertices[v], geo.polyVertices[v+1],
+                     geo.polyVertices[v+2], geo.polyVertices[v+3] };
+      float[] out = m.mult(in, new float[4]);
+      tri[3*k] = out[0] / out[3];
+      tri[3*k + 1] = out[1] / out[3];
+      tri[3*k + 2] = -out[2] / out[3];
+    }
+    return tri;
+  }
+
+
+  // Depth of the triangle at (x, y) on the screen, or NaN outside of it
+  static float depthAt(float[] tri, float x, float y) {
+    float d = (tri[4] - tri[7]) * (tri[0] - tri[6]) + (tri[6] - tri[3]) * (tri[1] - tri[7]);
+    if (d == 0) return Float.NaN;
+    float b0 = ((tri[4] - tri[7]) * (x - tri[6]) + (tri[6] - tri[3]) * (y - tri[7])) / d;
+    float b1 = ((tri[7] - tri[1]) * (x - tri[6]) + (tri[0] - tri[6]) * (y - tri[7])) / d;
+    float b2 = 1 - b0 - b1;
+    if (b0 < 0 || b1 < 0 || b2 < 0) return Float.NaN;
+    return b0 * tri[2] + b1 * tri[5] + b2 * tri[8];
+  }
+
+
+  static float[] randomTriangles(int count, float size, long seed) {
+    Random random = new Random(seed);
+    float[] coords = new float[9 * count];
+    for (int i = 0; i < coords.length; i += 9) {
+      float cx = (random.nextFloat() - 0.5f) * 400;
+      float cy = (random.nextFloat() - 0.5f) * 400;
+      float cz = -600 - (random.nextFloat() - 0.5f) * 400;
+      for (int k = 0; k < 9; k += 3) {
+        coords[i + k] = cx + (random.nextFloat() - 0.5f) * size;
+        coords[i + k + 1] = cy + (random.nextFloat() - 0.5f) * size;
+        coords[i + k + 2] = cz + (random.nextFloat() - 0.5f) * size;
+      }
+    }
+    return coords;
+  }
+
+
+  @Test
+  public void sortsBackToFront() {
+    // flat triangles, each at its own depth
+    Random random = new Random(1);
+    float[] coords = new float[9 * 1000];
+    for (int i = 0; i < coords.length; i += 9) {
+      float z = -100 - random.nextFloat() * 1000;
+      for (int k = 0; k < 9; k += 3) {
+        coords[i + k] = (random.nextFloat() - 0.5f) * 100;
+        coords[i + k + 1] = (random.nextFloat() - 0.5f) * 100;
+        coords[i + k + 2] = z;
+      }
+    }
+    TessGeometry geo = geometry(coords);
+    DepthSorter sorter = sort(geo, false);
+
+    Assert.assertEquals(3000, geo.polyIndexCount);
+    float last = Float.NEGATIVE_INFINITY;
+    for (int i = 0; i < 1000; i++) {
+      float z = screen(geo, sorter, i)[2];
+      Assert.assertTrue(last <= z);
+      last = z;
+    }
+  }
+
+
+  @Test
+  public void exactSortSplitsIntersectingTriangles() {
+    int count = 300;
+    TessGeometry geo = geometry(randomTriangles(count, 150, 2));
+    DepthSorter sorter = sort(geo, true);
+
+    int sorted = geo.polyIndexCount / 3;
+    Assert.assertTrue(count < sorted);
+    Assert.assertTrue(3 * count < geo.polyVertexCount);
+    for (int i = 0; i < sorted; i++) {
+      // the color of each triangle is the same at all of its corners
+      int voffset = geo.polyIndexCache.vertexOffset[sorter.voffsetMap[i]];
+      int color = geo.polyColors[voffset + geo.polyIndices[3*i]];
+      Assert.assertEquals(color, geo.polyColors[voffset + geo.polyIndices[3*i + 1]]);
+      Assert.assertEquals(color, geo.polyColors[voffset + geo.polyIndices[3*i + 2]]);
+    }
+
+    // Everywhere on the screen, each triangle that's drawn has to be in
+    // front of the ones drawn there before it.
+    float[][] tris = new float[sorted][];
+    for (int i = 0; i < sorted; i++) {
+      tris[i] = screen(geo, sorter, i);
+    }
+    for (int j = 0; j < 64; j++) {
+      for (int i = 0; i < 64; i++) {
+        float x = -0.8f + 1.6f * (i + 0.5f) / 64;
+        float y = -0.8f + 1.6f * (j + 0.5f) / 64;
+        float nearest = Float.NEGATIVE_INFINITY;
+        for (float[] tri : tris) {
+          float z = depthAt(tri, x, y);
+          if (z == z) {
+            Assert.assertTrue(nearest - 1e-4f <= z);
+            nearest = Math.max(nearest, z);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Prints how long sorting 50,000 intersecting triangles takes, with and
+   * without hint(ENABLE_EXACT_DEPTH_SORT).
+   */
+  public static void main(String[] args) {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    float[] coords = randomTriangles(count, 10, 3);
+    for (boolean exact : new boolean[] { false, true }) {
+      DepthSorter sorter = new DepthSorter(null);
+      sorter.exact = exact;
+      long best = Long.MAX_VALUE;
+      int sorted = 0;
+      for (int run = 0; run < 5; run++) {
+        TessGeometry geo = geometry(coords);
+        long start = System.nanoTime();
+        sort(geo, sorter);
+        best = Math.min(best, System.nanoTime() - start);
+        sorted = geo.polyIndexCount / 3;
+      }
+      System.out.printf("%s sort: %d triangles, %d after sorting, %.1f ms%n",
+                        exact ? "exact" : "depth", count, sorted, best / 1e6);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package processing.opengl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import processing.core.PConstants;
+import processing.core.PShape;
+
+
+public class PShapeOpenGLTest {
+
+  static PShape roundedRect(PGraphicsOpenGL pg, int i) {
+    PShape rect = pg.createShape(PConstants.RECT, i % 50 * 10, i / 50 * 10,
+                                 8, 8, 3);
+    rect.bezierDetail(5);
+    return rect;
+  }
+
+
+  @Test
+  public void roundedRectsKeepTheRendererBezierDetail() {
+    PGraphicsOpenGL pg = new PGraphics2D();
+    pg.setSize(500, 500);
+    // normally made when the renderer first draws
+    pg.tessellator = new PGraphicsOpenGL.Tessellator();
+    pg.noFill();
+    pg.bezierDetail(20);
+
+    PShapeOpenGL single = (PShapeOpenGL) roundedRect(pg, 0);
+    single.updateTessellation();
+    int vertices = single.tessGeo.polyVertexCount;
+    // its own bezierDetail() means it can't share the renderer's
+    Assert.assertFalse(single.canTessellateInParallel());
+
+    // enough of them for the group to be split across threads
+    int count = 2000;
+    PShapeOpenGL group = (PShapeOpenGL) pg.createShape(PConstants.GROUP);
+    for (int i = 0; i < count; i++) {
+      group.addChild(roundedRect(pg, i));
+    }
+    group.updateTessellation();
+    Assert.assertEquals(20, pg.bezierDetail);
+    Assert.assertEquals(count * vertices, group.tessGeo.polyVertexCount);
+  }
+}